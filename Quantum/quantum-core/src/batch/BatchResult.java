@@ -0,0 +1,131 @@
+package batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of simulating one saved circuit.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class BatchResult {
+	/** Why the circuit could not be simulated, or null. */
+	private final String error;
+	/** The circuit file. */
+	private final String file;
+	/** The number of gates in the circuit. */
+	private final int gates;
+	/** The time taken to load the circuit. */
+	private final long loadNanos;
+	/** The probability of each qubit measuring one after all gates. */
+	private final List<Double> probabilities;
+	/** The time taken to simulate the circuit. */
+	private final long simulateNanos;
+	/** The number of wires in the circuit. */
+	private final int wires;
+
+	/**
+	 * Constructor for a simulated circuit.
+	 * 
+	 * @param file          The circuit file.
+	 * @param wires         The number of wires in the circuit.
+	 * @param gates         The number of gates in the circuit.
+	 * @param loadNanos     The time taken to load the circuit.
+	 * @param simulateNanos The time taken to simulate the circuit.
+	 * @param probabilities The probability of each qubit measuring one.
+	 */
+	public BatchResult(final String file, final int wires, final int gates, final long loadNanos,
+			final long simulateNanos, final List<Double> probabilities) {
+		this(file, wires, gates, loadNanos, simulateNanos, probabilities, null);
+	}
+
+	/**
+	 * Constructor for a circuit that failed.
+	 * 
+	 * @param file      The circuit file.
+	 * @param loadNanos The time taken until the failure.
+	 * @param error     Why the circuit could not be simulated.
+	 */
+	public BatchResult(final String file, final long loadNanos, final String error) {
+		this(file, 0, 0, loadNanos, 0, new ArrayList<>(), error);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param file          The circuit file.
+	 * @param wires         The number of wires in the circuit.
+	 * @param gates         The number of gates in the circuit.
+	 * @param loadNanos     The time taken to load the circuit.
+	 * @param simulateNanos The time taken to simulate the circuit.
+	 * @param probabilities The probability of each qubit measuring one.
+	 * @param error         Why the circuit could not be simulated, or null.
+	 */
+	private BatchResult(final String file, final int wires, final int gates, final long loadNanos,
+			final long simulateNanos, final List<Double> probabilities, final String error) {
+		this.file = file;
+		this.wires = wires;
+		this.gates = gates;
+		this.loadNanos = loadNanos;
+		this.simulateNanos = simulateNanos;
+		this.probabilities = probabilities;
+		this.error = error;
+	}
+
+	/**
+	 * @return Why the circuit could not be simulated, or null.
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @return The circuit file.
+	 */
+	public String getFile() {
+		return file;
+	}
+
+	/**
+	 * @return The number of gates in the circuit.
+	 */
+	public int getGates() {
+		return gates;
+	}
+
+	/**
+	 * @return The time taken to load the circuit.
+	 */
+	public long getLoadNanos() {
+		return loadNanos;
+	}
+
+	/**
+	 * @return The probability of each qubit measuring one after all gates.
+	 */
+	public List<Double> getProbabilities() {
+		return probabilities;
+	}
+
+	/**
+	 * @return The time taken to simulate the circuit.
+	 */
+	public long getSimulateNanos() {
+		return simulateNanos;
+	}
+
+	/**
+	 * @return The time taken to load and simulate the circuit.
+	 */
+	public long getTotalNanos() {
+		return loadNanos + simulateNanos;
+	}
+
+	/**
+	 * @return The number of wires in the circuit.
+	 */
+	public int getWires() {
+		return wires;
+	}
+}
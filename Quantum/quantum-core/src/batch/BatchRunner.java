@@ -0,0 +1,181 @@
+package batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import model.Complex;
+import model.QuantumCircuit;
+
+/**
+ * Simulates every saved circuit of a directory without the user interface.
+ * The circuits run on a work stealing pool, one line of results is written per
+ * circuit as soon as it finishes, and a throughput and latency summary is
+ * written to standard error at the end.
+ * 
+ * Usage: {@code BatchRunner <directory> [--format csv|json] [--threads n]}
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class BatchRunner {
+	/** The extension of saved circuits. */
+	public static final String EXTENSION = ".qcdxml";
+
+	/**
+	 * Main launcher.
+	 * 
+	 * @param args command line arguments.
+	 */
+	public static void main(final String[] args) {
+		Path directory = null;
+		OutputFormat format = OutputFormat.CSV;
+		int threads = Runtime.getRuntime().availableProcessors();
+		try {
+			for (int n = 0; n < args.length; ++n) {
+				if (args[n].equals("--format") && n + 1 < args.length) {
+					format = OutputFormat.valueOf(args[++n].toUpperCase(Locale.ROOT));
+				} else if (args[n].equals("--threads") && n + 1 < args.length) {
+					threads = Integer.parseInt(args[++n]);
+				} else if (directory == null && !args[n].startsWith("--")) {
+					directory = Paths.get(args[n]);
+				} else {
+					throw new IllegalArgumentException("Unknown argument " + args[n]);
+				}
+			}
+			if (directory == null || threads < 1) {
+				throw new IllegalArgumentException("A directory and a positive thread count are needed.");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: BatchRunner <directory> [--format csv|json] [--threads n]");
+			System.exit(2);
+			return;
+		}
+		try {
+			LatencySummary summary = new BatchRunner(directory, format, threads).run(System.out);
+			System.err.println(summary);
+		} catch (IOException | InterruptedException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/** The directory holding the saved circuits. */
+	private final Path directory;
+	/** The line format of the results. */
+	private final OutputFormat format;
+	/** The number of circuits simulated at once. */
+	private final int threads;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param directory The directory holding the saved circuits.
+	 * @param format    The line format of the results.
+	 * @param threads   The number of circuits simulated at once.
+	 */
+	public BatchRunner(final Path directory, final OutputFormat format, final int threads) {
+		this.directory = directory;
+		this.format = format;
+		this.threads = threads;
+	}
+
+	/**
+	 * @return The saved circuits of the directory, by name.
+	 * @throws IOException If the directory cannot be listed.
+	 */
+	public List<Path> getFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().endsWith(EXTENSION)).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Simulates every saved circuit of the directory.
+	 * 
+	 * @param output Where the result lines are written, in the order the circuits
+	 *               finish.
+	 * @return The throughput and latency summary.
+	 * @throws IOException          If the directory cannot be listed.
+	 * @throws InterruptedException If interrupted while waiting for the circuits.
+	 */
+	public LatencySummary run(final PrintStream output) throws IOException, InterruptedException {
+		List<Path> files = getFiles();
+		String header = format.header();
+		if (header != null) {
+			output.println(header);
+		}
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newWorkStealingPool(threads);
+		List<Callable<BatchResult>> tasks = new ArrayList<>();
+		for (Path file : files) {
+			tasks.add(() -> {
+				BatchResult result = simulate(file);
+				String line = format.format(result);
+				synchronized (output) {
+					output.println(line);
+				}
+				return result;
+			});
+		}
+		long[] latencies = new long[files.size()];
+		int failures = 0;
+		try {
+			List<Future<BatchResult>> results = pool.invokeAll(tasks);
+			for (int n = 0; n < results.size(); ++n) {
+				BatchResult result = results.get(n).get();
+				latencies[n] = result.getTotalNanos();
+				if (result.getError() != null) {
+					++failures;
+				}
+			}
+		} catch (ExecutionException e) {
+			// simulate catches everything a circuit can throw.
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		output.flush();
+		return new LatencySummary(latencies, failures, System.nanoTime() - start);
+	}
+
+	/**
+	 * Loads and simulates one saved circuit.
+	 * 
+	 * @param file The saved circuit.
+	 * @return The probability of each qubit measuring one after all gates, or the
+	 *         reason it failed.
+	 */
+	public BatchResult simulate(final Path file) {
+		long start = System.nanoTime();
+		try {
+			QuantumCircuit qc = new QuantumCircuit();
+			try (InputStream input = Files.newInputStream(file)) {
+				qc.loadFromXML(input);
+			}
+			long loaded = System.nanoTime();
+			List<Double> probabilities = qc.getFinalQubitProbabilities().stream().map(Complex::getReal)
+					.collect(Collectors.toList());
+			return new BatchResult(file.toString(), qc.getWires().size(), qc.getGates().size(), loaded - start,
+					System.nanoTime() - loaded, probabilities);
+		} catch (Exception | OutOfMemoryError e) {
+			return new BatchResult(file.toString(), System.nanoTime() - start,
+					e.getClass().getSimpleName() + ": " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package batch;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Throughput and latency percentiles of a batch.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class LatencySummary {
+	/** The reported percentiles. */
+	private static final double[] PERCENTILES = { 50, 90, 99 };
+
+	/** The number of circuits that failed. */
+	private final int failures;
+	/** The latency of each circuit, sorted. */
+	private final long[] latencies;
+	/** The wall clock time of the whole batch. */
+	private final long wallNanos;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param latencies The time taken by each circuit.
+	 * @param failures  The number of circuits that failed.
+	 * @param wallNanos The wall clock time of the whole batch.
+	 */
+	public LatencySummary(final long[] latencies, final int failures, final long wallNanos) {
+		this.latencies = latencies.clone();
+		Arrays.sort(this.latencies);
+		this.failures = failures;
+		this.wallNanos = wallNanos;
+	}
+
+	/**
+	 * @param percentile A percentile from zero to one hundred.
+	 * @return The latency below which that share of the circuits finished, by
+	 *         nearest rank. Zero for an empty batch.
+	 */
+	public long getPercentile(final double percentile) {
+		if (latencies.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+		return latencies[Math.min(latencies.length - 1, Math.max(0, rank - 1))];
+	}
+
+	/**
+	 * @return The number of circuits finished per second of wall clock time.
+	 */
+	public double getThroughput() {
+		return wallNanos == 0 ? 0 : latencies.length * 1e9 / wallNanos;
+	}
+
+	/**
+	 * @return The summary as one line.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder returnValue = new StringBuilder().append(latencies.length).append(" circuits, ")
+				.append(failures).append(" failed, ").append(OutputFormat.millis(wallNanos)).append(" ms, ")
+				.append(String.format(Locale.ROOT, "%.2f", getThroughput())).append(" circuits/s");
+		for (double percentile : PERCENTILES) {
+			returnValue.append(", p").append((int) percentile).append(' ')
+					.append(OutputFormat.millis(getPercentile(percentile))).append(" ms");
+		}
+		if (latencies.length > 0) {
+			returnValue.append(", max ").append(OutputFormat.millis(latencies[latencies.length - 1])).append(" ms");
+		}
+		return returnValue.toString();
+	}
+}
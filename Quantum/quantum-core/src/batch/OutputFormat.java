@@ -0,0 +1,96 @@
+package batch;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * The line format of batch results.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public enum OutputFormat {
+	/** Comma separated values with a header line. Probabilities are space separated. */
+	CSV {
+		@Override
+		public String header() {
+			return "file,wires,gates,loadMillis,simulateMillis,probabilities,error";
+		}
+
+		@Override
+		public String format(final BatchResult result) {
+			return quote(result.getFile()) + "," + result.getWires() + "," + result.getGates() + ","
+					+ millis(result.getLoadNanos()) + "," + millis(result.getSimulateNanos()) + ","
+					+ result.getProbabilities().stream().map(String::valueOf).collect(Collectors.joining(" ")) + ","
+					+ (result.getError() == null ? "" : quote(result.getError()));
+		}
+
+		/**
+		 * @param text Any text.
+		 * @return The text as a quoted CSV field.
+		 */
+		private String quote(final String text) {
+			return "\"" + text.replace("\"", "\"\"") + "\"";
+		}
+	},
+	/** One JSON object per line. */
+	JSON {
+		@Override
+		public String header() {
+			return null;
+		}
+
+		@Override
+		public String format(final BatchResult result) {
+			StringBuilder returnValue = new StringBuilder("{\"file\":").append(quote(result.getFile()));
+			if (result.getError() != null) {
+				return returnValue.append(",\"error\":").append(quote(result.getError())).append('}').toString();
+			}
+			List<Double> probabilities = result.getProbabilities();
+			return returnValue.append(",\"wires\":").append(result.getWires()).append(",\"gates\":")
+					.append(result.getGates()).append(",\"loadMillis\":").append(millis(result.getLoadNanos()))
+					.append(",\"simulateMillis\":").append(millis(result.getSimulateNanos()))
+					.append(",\"probabilities\":")
+					.append(probabilities.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]")))
+					.append('}').toString();
+		}
+
+		/**
+		 * @param text Any text.
+		 * @return The text as a JSON string.
+		 */
+		private String quote(final String text) {
+			StringBuilder returnValue = new StringBuilder("\"");
+			for (char c : text.toCharArray()) {
+				if (c == '"' || c == '\\') {
+					returnValue.append('\\').append(c);
+				} else if (c < ' ') {
+					returnValue.append(String.format("\\u%04x", (int) c));
+				} else {
+					returnValue.append(c);
+				}
+			}
+			return returnValue.append('"').toString();
+		}
+	};
+
+	/**
+	 * @param nanos A duration in nanoseconds.
+	 * @return The duration in milliseconds with three decimals.
+	 */
+	static String millis(final long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	/**
+	 * @return The line written before any result, or null for none.
+	 */
+	public abstract String header();
+
+	/**
+	 * @param result The result of one circuit.
+	 * @return The result as one line.
+	 */
+	public abstract String format(BatchResult result);
+}
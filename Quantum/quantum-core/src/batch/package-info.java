@@ -0,0 +1,5 @@
+/**
+ * Package containing the headless batch runner, which simulates saved circuits
+ * without javafx.
+ */
+package batch;
@@ -0,0 +1,65 @@
+package model;
+
+/**
+ * One amplitude of a state vector together with its basis state.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class Amplitude {
+	/** The imaginary part. */
+	private final double imaginary;
+	/** The basis state, with wire zero as the most significant bit. */
+	private final long index;
+	/** The real part. */
+	private final double real;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param index     The basis state, with wire zero as the most significant bit.
+	 * @param real      The real part.
+	 * @param imaginary The imaginary part.
+	 */
+	public Amplitude(final long index, final double real, final double imaginary) {
+		this.index = index;
+		this.real = real;
+		this.imaginary = imaginary;
+	}
+
+	/**
+	 * @return The imaginary part.
+	 */
+	public double getImaginary() {
+		return imaginary;
+	}
+
+	/**
+	 * @return The basis state, with wire zero as the most significant bit.
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return The probability of measuring the basis state.
+	 */
+	public double getProbability() {
+		return real * real + imaginary * imaginary;
+	}
+
+	/**
+	 * @return The real part.
+	 */
+	public double getReal() {
+		return real;
+	}
+
+	/**
+	 * @return The basis state and the amplitude.
+	 */
+	@Override
+	public String toString() {
+		return index + ": " + new Complex(real, imaginary);
+	}
+}
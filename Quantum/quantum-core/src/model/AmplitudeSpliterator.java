@@ -0,0 +1,153 @@
+package model;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Traverses the amplitudes of a state vector in place, skipping those below a
+ * probability threshold. Splits in halves down to chunks of
+ * {@link #MIN_CHUNK} amplitudes, so parallel streams of huge states need no
+ * second copy of the state.
+ * 
+ * Amplitudes come in the order of the state layout, which is not the order of
+ * their basis states once the wires are relabeled.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class AmplitudeSpliterator implements Spliterator<Amplitude> {
+	/** The smallest number of amplitudes split off for a thread. */
+	public static final int MIN_CHUNK = 1 << 12;
+
+	/**
+	 * @return A state vector holding the single amplitude one.
+	 */
+	private static ComplexArray unit() {
+		ComplexArray returnValue = new ComplexArray(1);
+		returnValue.set(0, 1, 0);
+		return returnValue;
+	}
+
+	/** One past the last amplitude to traverse. */
+	private final int end;
+	/** The next amplitude to traverse. */
+	private int index;
+	/** The layout the state is indexed by, or null for a single basis state. */
+	private final WireLayout layout;
+	/** The only basis state of a basis state vector, or -1. */
+	private final long singleIndex;
+	/** The state vector. Never modified. */
+	private final ComplexArray state;
+	/** The smallest probability of a traversed amplitude. */
+	private final double threshold;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param state     The state vector. Must not change during the traversal.
+	 * @param layout    The layout the state is indexed by.
+	 * @param threshold The smallest probability of a traversed amplitude. Zero
+	 *                  traverses every amplitude.
+	 */
+	public AmplitudeSpliterator(final ComplexArray state, final WireLayout layout, final double threshold) {
+		this(state, layout, -1, threshold, 0, state.length());
+	}
+
+	/**
+	 * Constructor for a basis state, which is never built as a vector.
+	 * 
+	 * @param basisState The basis state, with wire zero as the most significant
+	 *                   bit.
+	 * @param threshold  The smallest probability of a traversed amplitude.
+	 */
+	public AmplitudeSpliterator(final long basisState, final double threshold) {
+		this(unit(), null, basisState, threshold, 0, 1);
+	}
+
+	/**
+	 * Constructor for a part of a state vector.
+	 * 
+	 * @param state       The state vector.
+	 * @param layout      The layout the state is indexed by.
+	 * @param singleIndex The only basis state of a basis state vector, or -1.
+	 * @param threshold   The smallest probability of a traversed amplitude.
+	 * @param index       The first amplitude to traverse.
+	 * @param end         One past the last amplitude to traverse.
+	 */
+	private AmplitudeSpliterator(final ComplexArray state, final WireLayout layout, final long singleIndex,
+			final double threshold, final int index, final int end) {
+		this.state = state;
+		this.layout = layout;
+		this.singleIndex = singleIndex;
+		this.threshold = threshold;
+		this.index = index;
+		this.end = end;
+	}
+
+	/**
+	 * @return SIZED and SUBSIZED only without a threshold, since filtering makes
+	 *         the size unknown.
+	 */
+	@Override
+	public int characteristics() {
+		int returnValue = ORDERED | NONNULL | IMMUTABLE;
+		if (threshold <= 0) {
+			returnValue |= SIZED | SUBSIZED;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @return The number of amplitudes left, exact without a threshold.
+	 */
+	@Override
+	public long estimateSize() {
+		return end - index;
+	}
+
+	@Override
+	public void forEachRemaining(final Consumer<? super Amplitude> action) {
+		for (; index < end; ++index) {
+			double real = state.getReal(index);
+			double imaginary = state.getImaginary(index);
+			if (real * real + imaginary * imaginary >= threshold) {
+				action.accept(new Amplitude(toBasisState(index), real, imaginary));
+			}
+		}
+	}
+
+	@Override
+	public boolean tryAdvance(final Consumer<? super Amplitude> action) {
+		while (index < end) {
+			double real = state.getReal(index);
+			double imaginary = state.getImaginary(index);
+			int current = index++;
+			if (real * real + imaginary * imaginary >= threshold) {
+				action.accept(new Amplitude(toBasisState(current), real, imaginary));
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param stateIndex An index of the state vector.
+	 * @return The basis state of the amplitude at the index.
+	 */
+	private long toBasisState(final int stateIndex) {
+		return layout == null ? singleIndex : layout.toDefaultIndex(stateIndex);
+	}
+
+	@Override
+	public Spliterator<Amplitude> trySplit() {
+		int size = end - index;
+		if (size < 2 * MIN_CHUNK) {
+			return null;
+		}
+		int middle = index + size / 2;
+		Spliterator<Amplitude> returnValue = new AmplitudeSpliterator(state, layout, singleIndex, threshold, index,
+				middle);
+		index = middle;
+		return returnValue;
+	}
+}
@@ -0,0 +1,258 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs a sequence of gates over a state vector in cache sized blocks. Runs of
+ * consecutive gates that only touch the low order bits of the state index are
+ * applied block by block, so each block is loaded into cache once for the whole
+ * run instead of once per gate. Gates touching a higher bit sweep the whole
+ * state on their own as before.
+ * 
+ * The block size comes from the L2 cache size: the {@value #L2_PROPERTY} system
+ * property in bytes if it is set, otherwise the size Linux reports for the first
+ * CPU, otherwise {@link #DEFAULT_L2_BYTES}. Java has no portable way to ask.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class BlockedScheduler {
+	/** Bytes of L2 cache assumed when it is neither set nor detected. */
+	public static final long DEFAULT_L2_BYTES = 256 * 1024;
+	/** The system property holding the L2 cache size in bytes. */
+	public static final String L2_PROPERTY = "quantum.l2.bytes";
+	/** The most wires a merged run of diagonal gates may cover. */
+	public static final int MAX_MERGED_WIRES = 10;
+	/** Bytes taken by one amplitude, a real and an imaginary double. */
+	private static final int BYTES_PER_AMPLITUDE = 16;
+	/** Where Linux describes the caches of the first CPU. */
+	private static final Path CPU_CACHES = Paths.get("/sys/devices/system/cpu/cpu0/cache");
+	/** The detected L2 cache size in bytes, or -1 where it cannot be read. */
+	private static final long DETECTED_L2_BYTES = detectL2Bytes(CPU_CACHES);
+
+	/**
+	 * Chooses the block size for an L2 cache. A block takes half of the cache so
+	 * the kernel tables and the rest of the program still fit.
+	 * 
+	 * @param l2Bytes The size of the L2 cache in bytes.
+	 * @return The number of index bits in one block.
+	 */
+	public static int blockBitsFor(final long l2Bytes) {
+		long amplitudes = Math.max(2, l2Bytes / BYTES_PER_AMPLITUDE / 2);
+		return 63 - Long.numberOfLeadingZeros(amplitudes);
+	}
+
+	/**
+	 * Reads the L2 cache size from the cache descriptions of a CPU, as Linux
+	 * publishes them: one directory per cache, with its level, type and size.
+	 * 
+	 * @param caches The cache directory of the CPU.
+	 * @return The size in bytes, or -1 if it cannot be read.
+	 */
+	static long detectL2Bytes(final Path caches) {
+		try (DirectoryStream<Path> indexes = Files.newDirectoryStream(caches, "index*")) {
+			for (Path index : indexes) {
+				if (readLine(index.resolve("level")).equals("2")
+						&& !readLine(index.resolve("type")).equals("Instruction")) {
+					String size = readLine(index.resolve("size"));
+					int shift = size.endsWith("K") ? 10 : size.endsWith("M") ? 20 : 0;
+					return Long.parseLong(shift == 0 ? size : size.substring(0, size.length() - 1)) << shift;
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			return -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param file A text file.
+	 * @return The first line of the file, trimmed.
+	 * @throws IOException If the file cannot be read.
+	 */
+	private static String readLine(final Path file) throws IOException {
+		List<String> lines = Files.readAllLines(file);
+		return lines.isEmpty() ? "" : lines.get(0).trim();
+	}
+
+	/**
+	 * @return The number of index bits in one block for the configured or detected
+	 *         L2 cache.
+	 */
+	public static int getDefaultBlockBits() {
+		return blockBitsFor(Long.getLong(L2_PROPERTY, DETECTED_L2_BYTES > 0 ? DETECTED_L2_BYTES : DEFAULT_L2_BYTES));
+	}
+
+	/**
+	 * Compiles the gates into kernels, merging consecutive diagonal gates into one
+	 * phase pass as long as their kernels cover at most {@value #MAX_MERGED_WIRES}
+	 * wires together. A kernel only covers the wires its gate acts on, so the
+	 * controls it dropped do not count.
+	 * 
+	 * @param gates The gates in circuit order.
+	 * @return The kernels to apply in order.
+	 */
+	private static List<GateKernel> mergeDiagonalRuns(final List<QuantumGate> gates) {
+		List<GateKernel> returnValue = new ArrayList<>();
+		List<GateKernel> diagonalRun = new ArrayList<>();
+		Set<Integer> diagonalWires = new HashSet<>();
+		for (QuantumGate gate : gates) {
+			GateKernel kernel = GateMatrixRegistry.getInstance().getKernel(gate);
+			if (kernel.getKind() == GateKind.DIAGONAL) {
+				Set<Integer> merged = new HashSet<>(diagonalWires);
+				addWires(kernel, merged);
+				if (merged.size() > MAX_MERGED_WIRES) {
+					flushDiagonalRun(diagonalRun, returnValue);
+					merged = new HashSet<>();
+					addWires(kernel, merged);
+				}
+				diagonalRun.add(kernel);
+				diagonalWires = merged;
+			} else {
+				flushDiagonalRun(diagonalRun, returnValue);
+				diagonalWires.clear();
+				returnValue.add(kernel);
+			}
+		}
+		flushDiagonalRun(diagonalRun, returnValue);
+		return returnValue;
+	}
+
+	/**
+	 * @param kernel A kernel.
+	 * @param wires  The set to add the wires of the kernel to.
+	 */
+	private static void addWires(final GateKernel kernel, final Set<Integer> wires) {
+		for (int wire : kernel.getWires()) {
+			wires.add(wire);
+		}
+	}
+
+	/**
+	 * Moves a run of diagonal kernels into the kernel list as one kernel.
+	 * 
+	 * @param diagonalRun The diagonal kernels. Emptied.
+	 * @param kernels     The kernel list to add to.
+	 */
+	private static void flushDiagonalRun(final List<GateKernel> diagonalRun, final List<GateKernel> kernels) {
+		if (diagonalRun.size() == 1) {
+			kernels.add(diagonalRun.get(0));
+		} else if (diagonalRun.size() > 1) {
+			kernels.add(GateKernel.mergeDiagonal(diagonalRun));
+		}
+		diagonalRun.clear();
+	}
+
+	/** The number of index bits in one block. */
+	private final int blockBits;
+	/** The layout of the state vectors this scheduler runs on. */
+	private final WireLayout layout;
+	/** The kernels of the gates, split into runs. */
+	private final List<Run> runs = new ArrayList<>();
+
+	/**
+	 * Constructor using the block size for the configured L2 cache.
+	 * 
+	 * @param gates  The gates to run, in circuit order.
+	 * @param layout The layout of the state vectors.
+	 */
+	public BlockedScheduler(final List<QuantumGate> gates, final WireLayout layout) {
+		this(gates, layout, getDefaultBlockBits());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param gates     The gates to run, in circuit order.
+	 * @param layout    The layout of the state vectors.
+	 * @param blockBits The number of index bits in one block.
+	 */
+	public BlockedScheduler(final List<QuantumGate> gates, final WireLayout layout, final int blockBits) {
+		if (blockBits < 1) {
+			throw new IllegalArgumentException("A block must hold at least two amplitudes.");
+		}
+		this.blockBits = blockBits;
+		this.layout = layout;
+		Run current = null;
+		for (GateKernel kernel : mergeDiagonalRuns(gates)) {
+			boolean blocked = kernel.getMaxBit(layout) < blockBits;
+			if (current == null || current.blocked != blocked || !blocked) {
+				current = new Run(blocked);
+				runs.add(current);
+			}
+			current.kernels.add(kernel);
+		}
+	}
+
+	/**
+	 * @return The number of kernels applied block by block. A merged run of
+	 *         diagonal gates counts once.
+	 */
+	public int getBlockedGateCount() {
+		return runs.stream().filter(run -> run.blocked).mapToInt(run -> run.kernels.size()).sum();
+	}
+
+	/**
+	 * @return The number of index bits in one block.
+	 */
+	public int getBlockBits() {
+		return blockBits;
+	}
+
+	/**
+	 * @return The number of passes over the whole state needed to apply every gate.
+	 */
+	public int getSweepCount() {
+		return runs.size();
+	}
+
+	/**
+	 * Applies every gate in place to a state vector.
+	 * 
+	 * @param state The state vector to update, indexed by the layout of this
+	 *              scheduler.
+	 */
+	public void run(final ComplexArray state) {
+		int blockSize = 1 << blockBits;
+		for (Run run : runs) {
+			if (!run.blocked || state.length() <= blockSize) {
+				for (GateKernel kernel : run.kernels) {
+					kernel.apply(state, layout);
+				}
+				continue;
+			}
+			for (int from = 0; from < state.length(); from += blockSize) {
+				for (GateKernel kernel : run.kernels) {
+					kernel.apply(state, layout, from, from + blockSize);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Consecutive kernels swept over the state together.
+	 */
+	private static final class Run {
+		/** True if every kernel only touches bits inside one block. */
+		private final boolean blocked;
+		/** The kernels in order. */
+		private final List<GateKernel> kernels = new ArrayList<>();
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param blocked True if every kernel only touches bits inside one block.
+		 */
+		private Run(final boolean blocked) {
+			this.blocked = blocked;
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Dependency graph of the gates in a circuit. A gate depends on an earlier gate
+ * when their wire spans overlap and the two gates do not commute. Gates are then
+ * re-layered as soon as possible, so gates that used to sit in separate columns
+ * can share one column and the circuit takes fewer sweeps to simulate. The
+ * gates of one layer never overlap and can run in parallel or be fused.
+ * 
+ * Two gates are known to commute when, on every wire they share, both act
+ * diagonally. That covers diagonal gates such as Z, S, T and Rz with each other,
+ * and control wires with Z type gates or other controls.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class CircuitDag {
+	/**
+	 * Checks if two gates are known to commute.
+	 * 
+	 * @param gate1 The first gate.
+	 * @param gate2 The second gate.
+	 * @return True if the gates can be swapped without changing the circuit.
+	 */
+	public static boolean commute(final QuantumGate gate1, final QuantumGate gate2) {
+		if (gate1.getMaxWire() < gate2.getMinWire() || gate2.getMaxWire() < gate1.getMinWire()) {
+			return true;
+		}
+		GateKernel kernel1 = GateMatrixRegistry.getInstance().getKernel(gate1);
+		GateKernel kernel2 = GateMatrixRegistry.getInstance().getKernel(gate2);
+		int first = Math.max(gate1.getMinWire(), gate2.getMinWire());
+		int last = Math.min(gate1.getMaxWire(), gate2.getMaxWire());
+		for (int wire = first; wire <= last; ++wire) {
+			if (!kernel1.isDiagonalOn(wire) || !kernel2.isDiagonalOn(wire)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** The gates in their original order. */
+	private final List<QuantumGate> gates;
+	/** The layer given to each gate. */
+	private final Map<QuantumGate, Integer> layerOf = new HashMap<>();
+	/** The gates of each layer. */
+	private final List<List<QuantumGate>> layers = new ArrayList<>();
+	/** The earlier gates each gate depends on. */
+	private final Map<QuantumGate, List<QuantumGate>> predecessors = new HashMap<>();
+	/** The later gates depending on each gate. */
+	private final Map<QuantumGate, List<QuantumGate>> successors = new HashMap<>();
+
+	/**
+	 * Builds the graph from a list of gates.
+	 * 
+	 * @param circuitGates The gates of a circuit, for example from
+	 *                     {@link QuantumCircuit#getGates()}.
+	 */
+	public CircuitDag(final Collection<QuantumGate> circuitGates) {
+		gates = new ArrayList<>(circuitGates);
+		gates.sort(Comparator.comparingInt(QuantumGate::getGatePosition).thenComparingInt(QuantumGate::getMinWire));
+
+		// the gates seen so far on every wire, in order.
+		Map<Integer, List<QuantumGate>> history = new HashMap<>();
+		// the wire spans used on every layer, keyed by lowest wire.
+		List<TreeMap<Integer, QuantumGate>> layerSpans = new ArrayList<>();
+		for (QuantumGate gate : gates) {
+			List<QuantumGate> before = new ArrayList<>();
+			for (int wire = gate.getMinWire(); wire <= gate.getMaxWire(); ++wire) {
+				List<QuantumGate> onWire = history.computeIfAbsent(wire, x -> new ArrayList<>());
+				for (int n = onWire.size() - 1; n >= 0; --n) {
+					QuantumGate earlier = onWire.get(n);
+					if (!commute(earlier, gate)) {
+						if (!before.contains(earlier)) {
+							before.add(earlier);
+						}
+						// everything before a gate that mixes this wire is already its predecessor.
+						if (!GateMatrixRegistry.getInstance().getKernel(earlier).isDiagonalOn(wire)) {
+							break;
+						}
+					}
+				}
+				onWire.add(gate);
+			}
+			predecessors.put(gate, before);
+			successors.put(gate, new ArrayList<>());
+			int layer = 0;
+			for (QuantumGate earlier : before) {
+				successors.get(earlier).add(gate);
+				layer = Math.max(layer, layerOf.get(earlier) + 1);
+			}
+			while (layer < layerSpans.size() && overlaps(layerSpans.get(layer), gate)) {
+				++layer;
+			}
+			if (layer == layerSpans.size()) {
+				layerSpans.add(new TreeMap<>());
+				layers.add(new ArrayList<>());
+			}
+			layerSpans.get(layer).put(gate.getMinWire(), gate);
+			layers.get(layer).add(gate);
+			layerOf.put(gate, layer);
+		}
+	}
+
+	/**
+	 * @return The number of layers, which is the number of columns the relayered
+	 *         circuit needs.
+	 */
+	public int getDepth() {
+		return layers.size();
+	}
+
+	/**
+	 * @return The gates in their original order.
+	 */
+	public List<QuantumGate> getGates() {
+		return Collections.unmodifiableList(gates);
+	}
+
+	/**
+	 * @param gate A gate of the graph.
+	 * @return The layer the gate was placed on.
+	 */
+	public int getLayer(final QuantumGate gate) {
+		return layerOf.get(gate);
+	}
+
+	/**
+	 * @return The gates of each layer. Gates on one layer are independent of each
+	 *         other and never overlap.
+	 */
+	public List<List<QuantumGate>> getLayers() {
+		List<List<QuantumGate>> returnValue = new ArrayList<>();
+		for (List<QuantumGate> layer : layers) {
+			returnValue.add(Collections.unmodifiableList(layer));
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @param gate A gate of the graph.
+	 * @return The earlier gates that must run before the gate.
+	 */
+	public List<QuantumGate> getPredecessors(final QuantumGate gate) {
+		return Collections.unmodifiableList(predecessors.get(gate));
+	}
+
+	/**
+	 * @return Copies of the gates moved to the position of their layer.
+	 */
+	public List<QuantumGate> getRelayeredGates() {
+		List<QuantumGate> returnValue = new ArrayList<>();
+		for (int layer = 0; layer < layers.size(); ++layer) {
+			for (QuantumGate gate : layers.get(layer)) {
+				returnValue.add(gate.withGatePosition(layer));
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @param gate A gate of the graph.
+	 * @return The later gates that must run after the gate.
+	 */
+	public List<QuantumGate> getSuccessors(final QuantumGate gate) {
+		return Collections.unmodifiableList(successors.get(gate));
+	}
+
+	/**
+	 * Checks if a gate overlaps any of the spans already on a layer.
+	 * 
+	 * @param spans The spans on the layer keyed by lowest wire.
+	 * @param gate  The gate to check.
+	 * @return True if the gate cannot be placed on the layer.
+	 */
+	private boolean overlaps(final TreeMap<Integer, QuantumGate> spans, final QuantumGate gate) {
+		Map.Entry<Integer, QuantumGate> below = spans.floorEntry(gate.getMaxWire());
+		return below != null && below.getValue().getMaxWire() >= gate.getMinWire();
+	}
+}
@@ -0,0 +1,178 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Peephole optimizer that shrinks a circuit before simulation. It cancels pairs
+ * of self-inverse gates on the same wires, merges consecutive rotations of the
+ * same kind on the same wires into one and drops rotations whose angle is a
+ * multiple of 4 pi. Two gates count as consecutive when every gate between them
+ * on their wires commutes with the first one, see {@link CircuitDag#commute}.
+ * The surviving gates are relayered so the empty columns left behind disappear.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class CircuitOptimizer {
+	/** Angles closer than this to a multiple of 4 pi are considered zero. */
+	public static final double EPSILON = 1e-12;
+	/** Gates that are their own inverse. */
+	private static final List<String> SELF_INVERSE_TYPES = new ArrayList<>(Arrays.asList("H", "X", "Y", "Z",
+			"CNOT", "C0NOT", "CCNOT", "CC00NOT", "CCCNOT", "CCC000NOT", "CH", "C0H"));
+
+	/**
+	 * Checks if two gates act on the same target with the same controls.
+	 * 
+	 * @param gate1 The first gate.
+	 * @param gate2 The second gate.
+	 * @return True if the gates have the same type and wires.
+	 */
+	private static boolean sameGate(final QuantumGate gate1, final QuantumGate gate2) {
+		List<Integer> wires1 = gate1.getWires();
+		List<Integer> wires2 = gate2.getWires();
+		return gate1.getGateType().equals(gate2.getGateType()) && wires1.size() == wires2.size()
+				&& wires1.get(wires1.size() - 1).equals(wires2.get(wires2.size() - 1))
+				&& new HashSet<>(wires1).equals(new HashSet<>(wires2));
+	}
+
+	/** Number of self-inverse pairs removed by the last run. */
+	private int cancelledPairs;
+	/** Number of zero angle rotations removed by the last run. */
+	private int droppedRotations;
+	/** Number of rotations merged into another by the last run. */
+	private int mergedRotations;
+
+	/**
+	 * Constructor. The counts start at zero until the first run.
+	 */
+	public CircuitOptimizer() {
+	}
+
+	/**
+	 * @return Number of self-inverse pairs removed by the last run.
+	 */
+	public int getCancelledPairs() {
+		return cancelledPairs;
+	}
+
+	/**
+	 * @return Number of zero angle rotations removed by the last run.
+	 */
+	public int getDroppedRotations() {
+		return droppedRotations;
+	}
+
+	/**
+	 * @return Number of rotations merged into another by the last run.
+	 */
+	public int getMergedRotations() {
+		return mergedRotations;
+	}
+
+	/**
+	 * Optimizes a circuit.
+	 * 
+	 * @param circuit The circuit to optimize. Not changed.
+	 * @return A new, equivalent circuit with the same wires and fewer gates and
+	 *         columns where possible.
+	 */
+	public QuantumCircuit optimize(final QuantumCircuit circuit) {
+		return circuit.withGates(new CircuitDag(optimize(circuit.getGates())).getRelayeredGates());
+	}
+
+	/**
+	 * Optimizes gates until no rule applies any more.
+	 * 
+	 * @param gates The gates to optimize. Not changed.
+	 * @return The remaining gates, at their original positions.
+	 */
+	public List<QuantumGate> optimize(final Collection<QuantumGate> gates) {
+		cancelledPairs = 0;
+		droppedRotations = 0;
+		mergedRotations = 0;
+		List<QuantumGate> current = new ArrayList<>(gates);
+		current.sort(Comparator.comparingInt(QuantumGate::getGatePosition).thenComparingInt(QuantumGate::getMinWire));
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int n = 0; n < current.size();) {
+				if (simplify(current, n)) {
+					changed = true;
+				} else {
+					++n;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * @param gate The gate to check.
+	 * @return The angle of a rotation gate, or NaN for other gates.
+	 */
+	private double angleOf(final QuantumGate gate) {
+		if (gate instanceof SingleQuantumGateWithParameter || gate instanceof ControlledQuantumGateWithParameter) {
+			return ((QuantumGateWithParameter) gate).getValue();
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Tries every rule on one gate of the list.
+	 * 
+	 * @param gates The gates in circuit order. Changed in place.
+	 * @param index The gate to simplify.
+	 * @return True if the list changed.
+	 */
+	private boolean simplify(final List<QuantumGate> gates, final int index) {
+		QuantumGate gate = gates.get(index);
+		double angle = angleOf(gate);
+		if (!Double.isNaN(angle) && Math.abs(Math.IEEEremainder(angle, 4 * Math.PI)) < EPSILON) {
+			gates.remove(index);
+			++droppedRotations;
+			return true;
+		}
+		for (int next = index + 1; next < gates.size(); ++next) {
+			QuantumGate other = gates.get(next);
+			if (other.getMaxWire() < gate.getMinWire() || gate.getMaxWire() < other.getMinWire()) {
+				continue;
+			}
+			if (sameGate(gate, other)) {
+				if (SELF_INVERSE_TYPES.contains(gate.getGateType())) {
+					gates.remove(next);
+					gates.remove(index);
+					++cancelledPairs;
+					return true;
+				} else if (!Double.isNaN(angle)) {
+					gates.set(next, withAngle(other, angle + angleOf(other)));
+					gates.remove(index);
+					++mergedRotations;
+					return true;
+				}
+			}
+			if (!CircuitDag.commute(gate, other)) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param gate  A rotation gate.
+	 * @param angle The new angle.
+	 * @return A copy of the rotation gate with another angle.
+	 */
+	private QuantumGate withAngle(final QuantumGate gate, final double angle) {
+		if (gate instanceof SingleQuantumGateWithParameter) {
+			return new SingleQuantumGateWithParameter(gate.getGateType(), angle, gate.getGatePosition(),
+					gate.getWires());
+		}
+		return new ControlledQuantumGateWithParameter(gate.getGateType(), angle, gate.getGatePosition(),
+				gate.getWires());
+	}
+}
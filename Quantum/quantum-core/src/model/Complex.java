@@ -11,8 +11,31 @@ import java.io.Serializable;
 public final class Complex implements Serializable {
 	/** The number of digits to which to round numbers. */
 	public static final int PRECISION = 3;
+	/** Shared instance of one. */
+	public static final Complex ONE = new Complex(1);
+	/** Shared instance of zero. */
+	public static final Complex ZERO = new Complex();
 	/** Serializable ID. */
 	private static final long serialVersionUID = 7676764277764311560L;
+
+	/**
+	 * Factory for complex numbers. Reuses the shared zero and one instances since
+	 * gate matrices and states are mostly made of those.
+	 *
+	 * @param real      Real part of the complex number.
+	 * @param imaginary Imaginary part of the complex number.
+	 * @return A complex number with the given parts.
+	 */
+	public static Complex valueOf(final double real, final double imaginary) {
+		if (imaginary == 0) {
+			if (real == 0) {
+				return ZERO;
+			} else if (real == 1) {
+				return ONE;
+			}
+		}
+		return new Complex(real, imaginary);
+	}
 	/** The imaginary part of the complex number. */
 	private final double imaginary;
 	/** The real part of the complex number. */
@@ -0,0 +1,243 @@
+package model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A fixed length array of complex numbers stored as interleaved primitive
+ * doubles. This is the mutable companion of {@link Complex} for accumulation
+ * heavy code, where allocating a new object per operation is too expensive.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class ComplexArray implements Serializable {
+	/** Serializable ID. */
+	private static final long serialVersionUID = -3350651213009522871L;
+
+	/**
+	 * Fused multiply-accumulate of two complex numbers into a double pair.
+	 * Computes target[index] += a * b where target[index] is the real part and
+	 * target[index + 1] is the imaginary part.
+	 * 
+	 * @param target     The array holding the accumulator pair.
+	 * @param index      The index of the real part of the accumulator.
+	 * @param realA      Real part of the first factor.
+	 * @param imaginaryA Imaginary part of the first factor.
+	 * @param realB      Real part of the second factor.
+	 * @param imaginaryB Imaginary part of the second factor.
+	 */
+	public static void multiplyAccumulate(final double[] target, final int index, final double realA,
+			final double imaginaryA, final double realB, final double imaginaryB) {
+		target[index] += realA * realB - imaginaryA * imaginaryB;
+		target[index + 1] += imaginaryA * realB + realA * imaginaryB;
+	}
+
+	/**
+	 * Builds an array from a column vector such as the one returned by
+	 * {@link QuantumCircuit#getState(int)}.
+	 * 
+	 * @param column The column vector to copy.
+	 * @return A new array holding the values of the column.
+	 */
+	public static ComplexArray fromColumn(final Complex[][] column) {
+		ComplexArray returnValue = new ComplexArray(column.length);
+		for (int n = 0; n < column.length; ++n) {
+			returnValue.set(n, column[n][0].getReal(), column[n][0].getImaginary());
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Builds an array from one row of a matrix.
+	 * 
+	 * @param row The row to copy.
+	 * @return A new array holding the values of the row.
+	 */
+	public static ComplexArray fromRow(final Complex[] row) {
+		ComplexArray returnValue = new ComplexArray(row.length);
+		for (int n = 0; n < row.length; ++n) {
+			returnValue.set(n, row[n].getReal(), row[n].getImaginary());
+		}
+		return returnValue;
+	}
+
+	/** Interleaved real and imaginary parts. Element n lives at 2n and 2n + 1. */
+	private final double[] data;
+
+	/**
+	 * Constructor. All elements start at zero.
+	 * 
+	 * @param length The number of complex elements in the array.
+	 */
+	public ComplexArray(final int length) {
+		data = new double[2 * length];
+	}
+
+	/**
+	 * Adds another array to this one element by element.
+	 * 
+	 * @param other The array to add. Must be the same length.
+	 */
+	public void add(final ComplexArray other) {
+		checkLength(other);
+		for (int n = 0; n < data.length; ++n) {
+			data[n] += other.data[n];
+		}
+	}
+
+	/**
+	 * Adds a scaled copy of another array to this one, this += a * x.
+	 * 
+	 * @param realA      Real part of the scalar.
+	 * @param imaginaryA Imaginary part of the scalar.
+	 * @param x          The array to scale and add. Must be the same length.
+	 */
+	public void axpy(final double realA, final double imaginaryA, final ComplexArray x) {
+		checkLength(x);
+		if (realA == 0 && imaginaryA == 0) {
+			return;
+		}
+		for (int n = 0; n < data.length; n += 2) {
+			multiplyAccumulate(data, n, realA, imaginaryA, x.data[n], x.data[n + 1]);
+		}
+	}
+
+	/**
+	 * @return A deep copy of this array.
+	 */
+	public ComplexArray copy() {
+		ComplexArray returnValue = new ComplexArray(length());
+		System.arraycopy(data, 0, returnValue.data, 0, data.length);
+		return returnValue;
+	}
+
+	/**
+	 * Inner product of this array with another, sum of conj(this[n]) * other[n].
+	 * 
+	 * @param other The right hand side of the product. Must be the same length.
+	 * @return The inner product.
+	 */
+	public Complex dot(final ComplexArray other) {
+		checkLength(other);
+		double[] sum = new double[2];
+		for (int n = 0; n < data.length; n += 2) {
+			multiplyAccumulate(sum, 0, data[n], -data[n + 1], other.data[n], other.data[n + 1]);
+		}
+		return new Complex(sum[0], sum[1]);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		return Arrays.equals(data, ((ComplexArray) obj).data);
+	}
+
+	/**
+	 * @param index The element to get.
+	 * @return The element as an immutable complex number. Allocates, so it is meant
+	 *         for display rather than for hot loops.
+	 */
+	public Complex get(final int index) {
+		return Complex.valueOf(data[2 * index], data[2 * index + 1]);
+	}
+
+	/**
+	 * @param index The element to get.
+	 * @return The imaginary part of the element.
+	 */
+	public double getImaginary(final int index) {
+		return data[2 * index + 1];
+	}
+
+	/**
+	 * @param index The element to get.
+	 * @return The real part of the element.
+	 */
+	public double getReal(final int index) {
+		return data[2 * index];
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(data);
+	}
+
+	/**
+	 * @return The number of complex elements in the array.
+	 */
+	public int length() {
+		return data.length / 2;
+	}
+
+	/**
+	 * Multiplies every element by a scalar.
+	 * 
+	 * @param realA      Real part of the scalar.
+	 * @param imaginaryA Imaginary part of the scalar.
+	 */
+	public void scale(final double realA, final double imaginaryA) {
+		for (int n = 0; n < data.length; n += 2) {
+			double real = data[n];
+			data[n] = real * realA - data[n + 1] * imaginaryA;
+			data[n + 1] = data[n + 1] * realA + real * imaginaryA;
+		}
+	}
+
+	/**
+	 * Sets an element.
+	 * 
+	 * @param index     The element to set.
+	 * @param real      The real part.
+	 * @param imaginary The imaginary part.
+	 */
+	public void set(final int index, final double real, final double imaginary) {
+		data[2 * index] = real;
+		data[2 * index + 1] = imaginary;
+	}
+
+	/**
+	 * @return The array as a column vector of immutable complex numbers.
+	 */
+	public Complex[][] toColumn() {
+		Complex[][] returnValue = new Complex[length()][1];
+		for (int n = 0; n < returnValue.length; ++n) {
+			returnValue[n][0] = get(n);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @return The array as a matrix row of immutable complex numbers.
+	 */
+	public Complex[] toRow() {
+		Complex[] returnValue = new Complex[length()];
+		for (int n = 0; n < returnValue.length; ++n) {
+			returnValue[n] = get(n);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @return The underlying interleaved storage. Shared, not copied.
+	 */
+	double[] data() {
+		return data;
+	}
+
+	/**
+	 * Verifies that another array can be combined with this one.
+	 * 
+	 * @param other The other array.
+	 */
+	private void checkLength(final ComplexArray other) {
+		if (other.data.length != data.length) {
+			throw new IllegalArgumentException("The arrays must be the same length.");
+		}
+	}
+}
@@ -0,0 +1,457 @@
+package model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A named subcircuit, such as an oracle, an adder or a diffuser, placed as one
+ * gate over a list of wires. The body is defined once for a circuit with
+ * {@link QuantumCircuit#define(String, QuantumCircuit)} and compiled once: into
+ * one fused unitary when that is cheaper to apply than the body gates,
+ * otherwise into a program of body kernels. Every instance shares the compiled
+ * body, whatever wires it is placed on. Other circuits may give the same name
+ * to another body.
+ * 
+ * A gate can repeat its body. Small bodies then apply the power of their
+ * unitary, found by repeated squaring, and larger ones replay the compiled
+ * program, so k repetitions never cost k gates worth of planning.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public class CompositeGate implements QuantumGateWithParameter {
+	/** The largest body whose unitary is considered for fusing. */
+	public static final int MAX_FUSED_WIRES = 8;
+	/** Serializable ID. */
+	private static final long serialVersionUID = -2071658316297004413L;
+
+	/**
+	 * Defines a composite gate.
+	 * 
+	 * @param name The gate type of the new gate.
+	 * @param body The subcircuit. Its wires are the local wires of the gate, and
+	 *             its initial values are ignored.
+	 * @return The definition, to place with
+	 *         {@link #CompositeGate(Definition, int, int, List)}.
+	 */
+	static Definition define(final String name, final QuantumCircuit body) {
+		if (SingleQuantumGate.getGateTypes().contains(name) || ControlledQuantumGate.getGateTypes().contains(name)
+				|| SingleQuantumGateWithParameter.getGateTypes().contains(name)
+				|| ControlledQuantumGateWithParameter.getGateTypes().contains(name)
+				|| QftGate.getGateTypes().contains(name)) {
+			throw new IllegalArgumentException(name + " is a built in gate type.");
+		}
+		if (body.getWires().isEmpty()) {
+			throw new IllegalArgumentException("A composite gate needs at least one wire.");
+		}
+		return new Definition(name, body.getWires().size(), body.getGates());
+	}
+
+	/** The body of this gate. */
+	private final Definition definition;
+	/** The horizontal position of this gate on the circuit. Zero based. */
+	private final int gatePosition;
+	/** The number of times the body is applied. */
+	private final int repetitions;
+	/** The wire each local wire of the body is placed on. */
+	private final List<Integer> wires;
+	/** The lowest wire of this gate. Cached for collision checks. */
+	private final int minWire;
+	/** The highest wire of this gate. Cached for collision checks. */
+	private final int maxWire;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param definition   The body of the gate.
+	 * @param gatePosition The horizontal position of the gate in the circuit. Zero
+	 *                     based.
+	 * @param wires        The wire each local wire of the body is placed on.
+	 */
+	public CompositeGate(final Definition definition, final int gatePosition, final List<Integer> wires) {
+		this(definition, 1, gatePosition, wires);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param definition   The body of the gate.
+	 * @param repetitions  The number of times the body is applied. At least one.
+	 * @param gatePosition The horizontal position of the gate in the circuit. Zero
+	 *                     based.
+	 * @param wires        The wire each local wire of the body is placed on.
+	 */
+	public CompositeGate(final Definition definition, final int repetitions, final int gatePosition,
+			final List<Integer> wires) {
+		if (wires.size() != definition.numberOfWires || wires.stream().distinct().count() != wires.size()) {
+			throw new IllegalArgumentException(
+					definition.name + " needs " + definition.numberOfWires + " distinct wires.");
+		}
+		if (repetitions < 1) {
+			throw new IllegalArgumentException("A composite gate is applied at least once.");
+		}
+		this.definition = definition;
+		this.repetitions = repetitions;
+		this.gatePosition = gatePosition;
+		this.wires = wires;
+		minWire = wires.stream().mapToInt(Integer::intValue).min().orElse(0);
+		maxWire = wires.stream().mapToInt(Integer::intValue).max().orElse(0);
+	}
+
+	/**
+	 * Clone to return a copy. Make sure to override gateType, gatePosition, and
+	 * wires.
+	 */
+	@Override
+	public CompositeGate clone() {
+		return new CompositeGate(definition, repetitions, gatePosition, wires);
+	}
+
+	/**
+	 * @param gatePosition The horizontal position of the copy.
+	 * @return a copy of this gate at another horizontal position.
+	 */
+	@Override
+	public CompositeGate withGatePosition(final int gatePosition) {
+		return new CompositeGate(definition, repetitions, gatePosition, wires);
+	}
+
+	/**
+	 * @return The compiled body placed on the wires of this gate, repeated.
+	 */
+	@Override
+	public GateKernel buildKernel() {
+		Complex[][] power = definition.getPower(repetitions);
+		if (power != null) {
+			return new GateKernel(wires, power);
+		}
+		return new CompositeKernel(wires.stream().mapToInt(Integer::intValue).toArray(), definition.program,
+				repetitions);
+	}
+
+	/**
+	 * Get the dense unitary over the gate wires. The matrix is shared with every
+	 * other gate of the same type and wires, so it must not be modified.
+	 */
+	@Override
+	public Complex[][] getGateMatrix() {
+		return GateMatrixRegistry.getInstance().getMatrix(this,
+				() -> GateMatrixRegistry.getInstance().getKernel(this).toMatrix());
+	}
+
+	/**
+	 * @return The gate type.
+	 */
+	@Override
+	public String getGateType() {
+		return definition.name;
+	}
+
+	/**
+	 * @return The body of this gate.
+	 */
+	public Definition getDefinition() {
+		return definition;
+	}
+
+	/**
+	 * @return The number of times the body is applied.
+	 */
+	public int getRepetitions() {
+		return repetitions;
+	}
+
+	/**
+	 * @return The number of times the body is applied, as the gate parameter.
+	 */
+	@Override
+	public double getValue() {
+		return repetitions;
+	}
+
+	/**
+	 * @return a string representation of this gate.
+	 */
+	@Override
+	public String toString() {
+		if (repetitions > 1) {
+			return definition.name + "^" + repetitions;
+		}
+		return definition.name;
+	}
+
+	/**
+	 * @return the horizontal gate position in the circuit.
+	 */
+	@Override
+	public int getGatePosition() {
+		return gatePosition;
+	}
+
+	/**
+	 * Compares two gates.
+	 */
+	@Override
+	public int compareTo(final QuantumGate arg0) {
+		return this.getMinWire() - arg0.getMinWire();
+	}
+
+	/**
+	 * @return the lowest wire associated with this gate.
+	 */
+	@Override
+	public int getMinWire() {
+		return minWire;
+	}
+
+	/**
+	 * @return the highest wire associated with this gate.
+	 */
+	@Override
+	public int getMaxWire() {
+		return maxWire;
+	}
+
+	/**
+	 * @return the wires associated with this gate.
+	 */
+	@Override
+	public List<Integer> getWires() {
+		return wires;
+	}
+
+	/**
+	 * The body of a composite gate and its compiled form.
+	 */
+	public static final class Definition implements Serializable {
+		/** Serializable ID. */
+		private static final long serialVersionUID = 5302712468034512190L;
+
+		/**
+		 * @param matrix A square matrix.
+		 * @return The number of non zero entries.
+		 */
+		private static long nonZeroCount(final Complex[][] matrix) {
+			long returnValue = 0;
+			for (Complex[] row : matrix) {
+				for (Complex value : row) {
+					if (value.getReal() != 0 || value.getImaginary() != 0) {
+						++returnValue;
+					}
+				}
+			}
+			return returnValue;
+		}
+
+		/**
+		 * Raises a matrix to a power by repeated squaring, in log2(power) pairs of
+		 * multiplications.
+		 * 
+		 * @param matrix The square matrix.
+		 * @param power  The power. At least one.
+		 * @return The matrix to the power.
+		 */
+		private static Complex[][] power(final Complex[][] matrix, final int power) {
+			int size = matrix.length;
+			double[] base = new double[2 * size * size];
+			for (int row = 0; row < size; ++row) {
+				for (int col = 0; col < size; ++col) {
+					base[2 * (row * size + col)] = matrix[row][col].getReal();
+					base[2 * (row * size + col) + 1] = matrix[row][col].getImaginary();
+				}
+			}
+			double[] result = null;
+			for (int remaining = power; remaining > 0; remaining >>= 1) {
+				if ((remaining & 1) != 0) {
+					result = result == null ? base : multiply(result, base, size);
+				}
+				if (remaining > 1) {
+					base = multiply(base, base, size);
+				}
+			}
+			Complex[][] returnValue = new Complex[size][size];
+			for (int row = 0; row < size; ++row) {
+				for (int col = 0; col < size; ++col) {
+					returnValue[row][col] = Complex.valueOf(result[2 * (row * size + col)],
+							result[2 * (row * size + col) + 1]);
+				}
+			}
+			return returnValue;
+		}
+
+		/**
+		 * Multiplies two interleaved square matrices, skipping zero entries of the
+		 * left one.
+		 * 
+		 * @param left  The left matrix, row major.
+		 * @param right The right matrix, row major.
+		 * @param size  The number of rows.
+		 * @return The product.
+		 */
+		private static double[] multiply(final double[] left, final double[] right, final int size) {
+			double[] returnValue = new double[left.length];
+			for (int row = 0; row < size; ++row) {
+				for (int inner = 0; inner < size; ++inner) {
+					double real = left[2 * (row * size + inner)];
+					double imaginary = left[2 * (row * size + inner) + 1];
+					if (real == 0 && imaginary == 0) {
+						continue;
+					}
+					for (int col = 0; col < size; ++col) {
+						double otherReal = right[2 * (inner * size + col)];
+						double otherImaginary = right[2 * (inner * size + col) + 1];
+						returnValue[2 * (row * size + col)] += real * otherReal - imaginary * otherImaginary;
+						returnValue[2 * (row * size + col) + 1] += real * otherImaginary + imaginary * otherReal;
+					}
+				}
+			}
+			return returnValue;
+		}
+
+		/** The body as text, to compare definitions. Null until first described. */
+		private transient String description;
+		/** True when applying the unitary is cheaper than replaying the program. */
+		private transient boolean fused;
+		/** The gates of the body in order, on the local wires. */
+		private final List<QuantumGate> gates;
+		/** The gate type. */
+		private final String name;
+		/** The number of local wires. */
+		private final int numberOfWires;
+		/** The powers of the unitary found so far, or null where the program is cheaper. */
+		private transient Map<Integer, Complex[][]> powers;
+		/** The kernels of the body in order. Null until first compiled. */
+		private transient List<GateKernel> program;
+		/** The number of multiplications per group of one pass of the program. */
+		private transient long programCost;
+		/** The unitary of the body, or null for bodies over {@link #MAX_FUSED_WIRES}. */
+		private transient Complex[][] unitary;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name          The gate type.
+		 * @param numberOfWires The number of local wires.
+		 * @param gates         The gates of the body.
+		 */
+		private Definition(final String name, final int numberOfWires, final Collection<QuantumGate> gates) {
+			this.name = name;
+			this.numberOfWires = numberOfWires;
+			this.gates = new ArrayList<>(gates);
+			this.gates.sort(Comparator.comparingInt(QuantumGate::getGatePosition));
+		}
+
+		/**
+		 * Compiles the body once. The fused unitary is kept when applying it costs no
+		 * more multiplications per group than the body kernels do.
+		 */
+		private synchronized void compile() {
+			if (program != null) {
+				return;
+			}
+			List<GateKernel> kernels = new ArrayList<>();
+			for (QuantumGate gate : gates) {
+				kernels.add(GateMatrixRegistry.getInstance().getKernel(gate));
+			}
+			CompositeKernel body = new CompositeKernel(localWires(), kernels, 1);
+			programCost = body.getNonZeroCount();
+			if (numberOfWires <= MAX_FUSED_WIRES) {
+				unitary = body.toMatrix();
+				fused = nonZeroCount(unitary) <= programCost;
+			}
+			powers = new HashMap<>();
+			program = Collections.unmodifiableList(kernels);
+		}
+
+		/**
+		 * Gets a power of the unitary. It is found by repeated squaring and only kept
+		 * when applying it is no more expensive than applying the body that many
+		 * times.
+		 * 
+		 * @param repetitions The power.
+		 * @return The power of the unitary, or null to replay the program instead.
+		 */
+		private synchronized Complex[][] getPower(final int repetitions) {
+			compile();
+			if (unitary == null) {
+				return null;
+			}
+			if (repetitions == 1) {
+				return fused ? unitary : null;
+			}
+			if (!powers.containsKey(repetitions)) {
+				Complex[][] power = power(unitary, repetitions);
+				long onePass = fused ? nonZeroCount(unitary) : programCost;
+				powers.put(repetitions, nonZeroCount(power) <= onePass * repetitions ? power : null);
+			}
+			return powers.get(repetitions);
+		}
+
+		/**
+		 * @return The local wires in order.
+		 */
+		private int[] localWires() {
+			int[] returnValue = new int[numberOfWires];
+			for (int wire = 0; wire < numberOfWires; ++wire) {
+				returnValue[wire] = wire;
+			}
+			return returnValue;
+		}
+
+		/**
+		 * @return The body as text, nested bodies included, to compare definitions.
+		 */
+		synchronized String describe() {
+			if (description == null) {
+				StringBuilder returnValue = new StringBuilder().append(numberOfWires);
+				for (QuantumGate gate : gates) {
+					returnValue.append(';').append(gate.getGateType()).append('@').append(gate.getGatePosition())
+							.append(gate.getWires());
+					if (gate instanceof QuantumGateWithParameter) {
+						returnValue.append('=').append(((QuantumGateWithParameter) gate).getValue());
+					}
+					if (gate instanceof CompositeGate) {
+						returnValue.append('{').append(((CompositeGate) gate).definition.describe()).append('}');
+					}
+				}
+				description = returnValue.toString();
+			}
+			return description;
+		}
+
+		/**
+		 * @return The gates of the body in order, on the local wires.
+		 */
+		public List<QuantumGate> getGates() {
+			return Collections.unmodifiableList(gates);
+		}
+
+		/**
+		 * @return The gate type.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return The number of wires the gate is placed on.
+		 */
+		public int getNumberOfWires() {
+			return numberOfWires;
+		}
+
+		/**
+		 * @param other Another definition.
+		 * @return True if both have the same name and the same body.
+		 */
+		public boolean isSameAs(final Definition other) {
+			return name.equals(other.name) && describe().equals(other.describe());
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Applies a composite gate as the compiled kernels of its body, one after the
+ * other, as many times as the gate repeats. The body kernels act on the local
+ * wires of the definition, and are pointed at the wires of the instance through
+ * a layout built once per call, so one compiled body serves every instance and
+ * every repetition of the gate.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class CompositeKernel extends GateKernel {
+	/** The kernels of the body in order, acting on the local wires. */
+	private final List<GateKernel> program;
+	/** The number of times the body is applied. */
+	private final int repetitions;
+	/** The wires each local wire is placed on, in local order. */
+	private final int[] wires;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param wires       The wire each local wire of the body is placed on.
+	 * @param program     The kernels of the body in order, acting on the local
+	 *                    wires.
+	 * @param repetitions The number of times the body is applied.
+	 */
+	public CompositeKernel(final int[] wires, final List<GateKernel> program, final int repetitions) {
+		super(wires);
+		this.wires = wires.clone();
+		this.program = program;
+		this.repetitions = repetitions;
+	}
+
+	/**
+	 * Applies every kernel of the body in turn. Their bits are all bits of this
+	 * kernel, so a block holding whole groups of this kernel holds whole groups of
+	 * each of them.
+	 */
+	@Override
+	public void apply(final ComplexArray state, final WireLayout layout, final int from, final int to) {
+		WireLayout local = toLocalLayout(layout);
+		for (int repetition = 0; repetition < repetitions; ++repetition) {
+			for (GateKernel kernel : program) {
+				kernel.apply(state, local, from, to);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of non zero entries applied per group by every repetition
+	 *         of the body.
+	 */
+	@Override
+	public int getNonZeroCount() {
+		long returnValue = 0;
+		for (GateKernel kernel : program) {
+			returnValue += (long) kernel.getNonZeroCount() << (wires.length - kernel.getWires().length);
+		}
+		return (int) Math.min(Integer.MAX_VALUE, returnValue * repetitions);
+	}
+
+	/**
+	 * @return The number of kernels in the body.
+	 */
+	public int getProgramLength() {
+		return program.size();
+	}
+
+	/**
+	 * @return The number of times the body is applied.
+	 */
+	public int getRepetitions() {
+		return repetitions;
+	}
+
+	/**
+	 * Puts the local wires of the body on the bits of the instance wires, and the
+	 * remaining local wires on the remaining bits.
+	 * 
+	 * @param layout The layout of the state.
+	 * @return The layout the body kernels are applied with.
+	 */
+	private WireLayout toLocalLayout(final WireLayout layout) {
+		int[] bits = new int[layout.getNumberOfWires()];
+		boolean[] used = new boolean[bits.length];
+		for (int n = 0; n < wires.length; ++n) {
+			bits[n] = layout.getBit(wires[n]);
+			used[bits[n]] = true;
+		}
+		for (int n = wires.length, bit = 0; n < bits.length; ++n, ++bit) {
+			while (used[bit]) {
+				++bit;
+			}
+			bits[n] = bit;
+		}
+		return new WireLayout(bits);
+	}
+
+	/**
+	 * @return The dense unitary of the body, built by running it on every basis
+	 *         state. Only sensible for a few wires.
+	 */
+	@Override
+	public Complex[][] toMatrix() {
+		int size = 1 << wires.length;
+		WireLayout local = WireLayout.identity(wires.length);
+		Complex[][] returnValue = new Complex[size][size];
+		for (Complex[] row : returnValue) {
+			Arrays.fill(row, Complex.ZERO);
+		}
+		for (int col = 0; col < size; ++col) {
+			ComplexArray state = new ComplexArray(size);
+			state.set(col, 1, 0);
+			for (int repetition = 0; repetition < repetitions; ++repetition) {
+				for (GateKernel kernel : program) {
+					kernel.apply(state, local);
+				}
+			}
+			for (int row = 0; row < size; ++row) {
+				if (state.getReal(row) != 0 || state.getImaginary(row) != 0) {
+					returnValue[row][col] = Complex.valueOf(state.getReal(row), state.getImaginary(row));
+				}
+			}
+		}
+		return returnValue;
+	}
+}
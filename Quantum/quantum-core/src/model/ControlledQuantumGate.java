@@ -26,6 +26,10 @@ public class ControlledQuantumGate implements QuantumGate {
 	 * controls.
 	 */
 	private final List<Integer> wires;
+	/** The lowest wire of this gate. Cached for collision checks. */
+	private final int minWire;
+	/** The highest wire of this gate. Cached for collision checks. */
+	private final int maxWire;
 
 	/**
 	 * Constructor.
@@ -40,6 +44,8 @@ public class ControlledQuantumGate implements QuantumGate {
 			gateType = type;
 			this.gatePosition = gatePosition;
 			this.wires = wires;
+			minWire = wires.stream().mapToInt(Integer::intValue).min().orElse(0);
+			maxWire = wires.stream().mapToInt(Integer::intValue).max().orElse(0);
 		} else {
 			throw new IllegalArgumentException("That gate type is not supported.");
 		}
@@ -55,11 +61,76 @@ public class ControlledQuantumGate implements QuantumGate {
 	}
 
 	/**
-	 * Get the gate matrix for each gate. Must be done for each gate you accept as
-	 * well as each wire configuration you wish to support for each gate.
+	 * @param gatePosition The horizontal position of the copy.
+	 * @return a copy of this gate at another horizontal position.
+	 */
+	@Override
+	public ControlledQuantumGate withGatePosition(final int gatePosition) {
+		return new ControlledQuantumGate(gateType, gatePosition, wires);
+	}
+
+	/**
+	 * Get the gate matrix for each gate. The matrix is shared with every other gate
+	 * of the same type, wires and parameter, so it must not be modified.
 	 */
 	@Override
 	public Complex[][] getGateMatrix() {
+		return GateMatrixRegistry.getInstance().getMatrix(this, this::buildGateMatrix);
+	}
+
+	/**
+	 * @return The kernel over the controls and the target, built without the dense
+	 *         matrix over every wire in between.
+	 */
+	@Override
+	public GateKernel buildKernel() {
+		int target = wires.get(wires.size() - 1);
+		List<Integer> controls = wires.subList(0, wires.size() - 1);
+		int lowestControl = controls.stream().min(Comparator.naturalOrder()).get();
+		int highestControl = controls.stream().max(Comparator.naturalOrder()).get();
+		boolean supported;
+		switch (gateType) {
+		case "CNOT":
+			supported = lowestControl != target;
+			break;
+		case "C0NOT":
+		case "CH":
+		case "C0H":
+			supported = lowestControl < target;
+			break;
+		case "CCNOT":
+		case "CC00NOT":
+		case "CCH":
+		case "CC00H":
+			supported = highestControl - lowestControl == 1 && target > highestControl;
+			break;
+		case "CCCNOT":
+		case "CCC000NOT":
+			supported = highestControl - lowestControl == 2 && target > highestControl;
+			break;
+		default:
+			supported = false;
+		}
+		if (!supported) {
+			throw new UnsupportedOperationException("Gate not implemented yet!");
+		}
+		Complex[][] targetMatrix;
+		if (gateType.endsWith("H")) {
+			Complex half = new Complex(1 / Math.sqrt(2));
+			targetMatrix = new Complex[][] { { half, half }, { half, new Complex(-1 / Math.sqrt(2)) } };
+		} else {
+			targetMatrix = new Complex[][] { { Complex.ZERO, Complex.ONE }, { Complex.ONE, Complex.ZERO } };
+		}
+		return GateKernel.controlled(controls, gateType.contains("0"), target, targetMatrix);
+	}
+
+	/**
+	 * Build the gate matrix for each gate. Must be done for each gate you accept as
+	 * well as each wire configuration you wish to support for each gate.
+	 * 
+	 * @return A new matrix for this gate.
+	 */
+	private Complex[][] buildGateMatrix() {
 		switch (gateType) {
 		case "CNOT":
 			if (wires.get(0) < wires.get(1)) { // control above the target
@@ -389,8 +460,23 @@ public class ControlledQuantumGate implements QuantumGate {
 	 */
 	@Override
 	public int compareTo(final QuantumGate arg0) {
-		return this.getWires().stream().min(Comparator.naturalOrder()).orElse(0)
-				- arg0.getWires().stream().min(Comparator.naturalOrder()).orElse(0);
+		return this.getMinWire() - arg0.getMinWire();
+	}
+
+	/**
+	 * @return the lowest wire associated with this gate.
+	 */
+	@Override
+	public int getMinWire() {
+		return minWire;
+	}
+
+	/**
+	 * @return the highest wire associated with this gate.
+	 */
+	@Override
+	public int getMaxWire() {
+		return maxWire;
 	}
 
 	/**
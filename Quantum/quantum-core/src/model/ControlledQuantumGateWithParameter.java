@@ -2,7 +2,6 @@ package model;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -25,6 +24,10 @@ public class ControlledQuantumGateWithParameter implements QuantumGateWithParame
 	 * controls.
 	 */
 	private final List<Integer> wires;
+	/** The lowest wire of this gate. Cached for collision checks. */
+	private final int minWire;
+	/** The highest wire of this gate. Cached for collision checks. */
+	private final int maxWire;
 	/**
 	 * The value associated with this quantum gate.
 	 */
@@ -46,6 +49,8 @@ public class ControlledQuantumGateWithParameter implements QuantumGateWithParame
 			this.value = value;
 			this.gatePosition = gatePosition;
 			this.wires = wires;
+			minWire = wires.stream().mapToInt(Integer::intValue).min().orElse(0);
+			maxWire = wires.stream().mapToInt(Integer::intValue).max().orElse(0);
 		} else {
 			throw new IllegalArgumentException("That gate type is not supported.");
 		}
@@ -61,11 +66,63 @@ public class ControlledQuantumGateWithParameter implements QuantumGateWithParame
 	}
 
 	/**
-	 * Get the gate matrix for each gate. Must be done for each gate you accept as
-	 * well as each wire configuration you wish to support for each gate.
+	 * @param gatePosition The horizontal position of the copy.
+	 * @return a copy of this gate at another horizontal position.
+	 */
+	@Override
+	public ControlledQuantumGateWithParameter withGatePosition(final int gatePosition) {
+		return new ControlledQuantumGateWithParameter(gateType, value, gatePosition, wires);
+	}
+
+	/**
+	 * Get the gate matrix for each gate. The matrix is shared with every other gate
+	 * of the same type, wires and parameter, so it must not be modified.
 	 */
 	@Override
 	public Complex[][] getGateMatrix() {
+		return GateMatrixRegistry.getInstance().getMatrix(this, this::buildGateMatrix);
+	}
+
+	/**
+	 * @return The kernel over the control and the target, built without the dense
+	 *         matrix over every wire in between.
+	 */
+	@Override
+	public GateKernel buildKernel() {
+		if (wires.get(0) >= wires.get(1)) {
+			throw new UnsupportedOperationException("Gate not implemented yet!");
+		}
+		Complex cos = new Complex(Math.cos(value / 2));
+		Complex[][] targetMatrix;
+		switch (gateType) {
+		case "CRx":
+		case "C0Rx":
+			Complex sin = new Complex(0, -Math.sin(value / 2));
+			targetMatrix = new Complex[][] { { cos, sin }, { sin, cos } };
+			break;
+		case "CRy":
+		case "C0Ry":
+			targetMatrix = new Complex[][] { { cos, new Complex(-Math.sin(value / 2)) },
+					{ new Complex(Math.sin(value / 2)), cos } };
+			break;
+		case "CRz":
+		case "C0Rz":
+			targetMatrix = new Complex[][] { { new Complex(Math.cos(value / 2), -Math.sin(value / 2)), Complex.ZERO },
+					{ Complex.ZERO, new Complex(Math.cos(value / 2), Math.sin(value / 2)) } };
+			break;
+		default:
+			throw new UnsupportedOperationException("Gate not implemented yet!");
+		}
+		return GateKernel.controlled(wires.subList(0, 1), gateType.startsWith("C0"), wires.get(1), targetMatrix);
+	}
+
+	/**
+	 * Build the gate matrix for each gate. Must be done for each gate you accept as
+	 * well as each wire configuration you wish to support for each gate.
+	 * 
+	 * @return A new matrix for this gate.
+	 */
+	private Complex[][] buildGateMatrix() {
 		switch (gateType) {
 		case "CRx":
 			if (wires.get(0) < wires.get(1)) {
@@ -202,11 +259,6 @@ public class ControlledQuantumGateWithParameter implements QuantumGateWithParame
 						}
 					}
 				}
-				for (Complex[] c : returnGate) {
-					System.out.println(Arrays.toString(c));
-				}
-				System.out.println();
-				System.out.println();
 				return returnGate;
 			}
 			throw new UnsupportedOperationException("Gate not implemented yet!");
@@ -276,8 +328,23 @@ public class ControlledQuantumGateWithParameter implements QuantumGateWithParame
 	 */
 	@Override
 	public int compareTo(final QuantumGate arg0) {
-		return this.getWires().stream().min(Comparator.naturalOrder()).orElse(0)
-				- arg0.getWires().stream().min(Comparator.naturalOrder()).orElse(0);
+		return this.getMinWire() - arg0.getMinWire();
+	}
+
+	/**
+	 * @return the lowest wire associated with this gate.
+	 */
+	@Override
+	public int getMinWire() {
+		return minWire;
+	}
+
+	/**
+	 * @return the highest wire associated with this gate.
+	 */
+	@Override
+	public int getMaxWire() {
+		return maxWire;
 	}
 
 	/**
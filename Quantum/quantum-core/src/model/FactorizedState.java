@@ -0,0 +1,196 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A circuit state kept as a product of independent subsystems. Every wire starts
+ * in a subsystem of its own, and subsystems are only tensored together when a
+ * gate spans more than one of them. Until the wires become entangled, a gate
+ * costs the size of its subsystem instead of 2^wires.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class FactorizedState {
+	/** The subsystem each wire belongs to. */
+	private final Subsystem[] subsystemOf;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param initialValues The initial value of each wire.
+	 */
+	public FactorizedState(final List<Qubit> initialValues) {
+		subsystemOf = new Subsystem[initialValues.size()];
+		for (int wire = 0; wire < initialValues.size(); ++wire) {
+			ComplexArray state = new ComplexArray(2);
+			Qubit qubit = initialValues.get(wire);
+			state.set(0, qubit.getX().getReal(), qubit.getX().getImaginary());
+			state.set(1, qubit.getY().getReal(), qubit.getY().getImaginary());
+			List<Integer> wires = new ArrayList<>();
+			wires.add(wire);
+			subsystemOf[wire] = new Subsystem(wires, state, subsystemOf.length);
+		}
+	}
+
+	/**
+	 * Applies a gate, first merging the subsystems it spans.
+	 * 
+	 * @param gate The gate to apply.
+	 */
+	public void apply(final QuantumGate gate) {
+		GateKernel kernel = GateMatrixRegistry.getInstance().getKernel(gate);
+		Subsystem merged = null;
+		for (int wire : kernel.getWires()) {
+			if (merged == null) {
+				merged = subsystemOf[wire];
+			} else if (subsystemOf[wire] != merged) {
+				merged = merged.tensor(subsystemOf[wire]);
+				for (int member : merged.wires) {
+					subsystemOf[member] = merged;
+				}
+			}
+		}
+		if (merged != null) {
+			kernel.apply(merged.state, merged.layout, 0, merged.state.length());
+		}
+	}
+
+	/**
+	 * @return The number of wires in the largest subsystem.
+	 */
+	public int getLargestSubsystemSize() {
+		int returnValue = 0;
+		for (Subsystem subsystem : subsystemOf) {
+			returnValue = Math.max(returnValue, subsystem.wires.size());
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @param gate A gate that could be applied next.
+	 * @return The number of wires in the subsystem the gate would leave behind.
+	 */
+	public int getMergedSize(final QuantumGate gate) {
+		List<Subsystem> spanned = new ArrayList<>();
+		int returnValue = 0;
+		for (int wire : GateMatrixRegistry.getInstance().getKernel(gate).getWires()) {
+			if (!spanned.contains(subsystemOf[wire])) {
+				spanned.add(subsystemOf[wire]);
+				returnValue += subsystemOf[wire].wires.size();
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @param wire The wire to measure.
+	 * @return The probability of the wire measuring one, computed from its
+	 *         subsystem only.
+	 */
+	public double getProbability(final int wire) {
+		Subsystem subsystem = subsystemOf[wire];
+		int bit = subsystem.layout.getBit(wire);
+		double returnValue = 0.0;
+		for (int index = 0; index < subsystem.state.length(); ++index) {
+			if ((index & (1 << bit)) != 0) {
+				returnValue += subsystem.state.getReal(index) * subsystem.state.getReal(index)
+						+ subsystem.state.getImaginary(index) * subsystem.state.getImaginary(index);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @return The number of independent subsystems.
+	 */
+	public int getSubsystemCount() {
+		return (int) Arrays.stream(subsystemOf).distinct().count();
+	}
+
+	/**
+	 * Tensors every subsystem into one state vector.
+	 * 
+	 * @param layout The layout of the returned state.
+	 * @return The full state vector indexed by the layout.
+	 */
+	public ComplexArray toState(final WireLayout layout) {
+		Subsystem whole = null;
+		for (Subsystem subsystem : subsystemOf) {
+			if (whole == null) {
+				whole = subsystem;
+			} else if (!whole.wires.contains(subsystem.wires.get(0))) {
+				whole = whole.tensor(subsystem);
+			}
+		}
+		if (whole == null) {
+			ComplexArray returnValue = new ComplexArray(1);
+			returnValue.set(0, 1, 0);
+			return returnValue;
+		}
+		ComplexArray returnValue = layout.fromDefaultOrder(whole.layout.toDefaultOrder(whole.state));
+		return returnValue == whole.state ? returnValue.copy() : returnValue;
+	}
+
+	/**
+	 * A group of wires sharing one state vector. The first wire of the group is
+	 * the most significant bit of the vector.
+	 */
+	private static final class Subsystem {
+		/** Maps the wires of the group onto the low bits of the state index. */
+		private final WireLayout layout;
+		/** The state vector of the group. */
+		private final ComplexArray state;
+		/** The wires of the group. */
+		private final List<Integer> wires;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param wires         The wires of the group, most significant first.
+		 * @param state         The state vector of the group.
+		 * @param numberOfWires The number of wires in the whole circuit.
+		 */
+		private Subsystem(final List<Integer> wires, final ComplexArray state, final int numberOfWires) {
+			this.wires = wires;
+			this.state = state;
+			int[] bits = new int[numberOfWires];
+			boolean[] inGroup = new boolean[numberOfWires];
+			for (int n = 0; n < wires.size(); ++n) {
+				bits[wires.get(n)] = wires.size() - 1 - n;
+				inGroup[wires.get(n)] = true;
+			}
+			// the other wires take the bits above the group, where the state never
+			// reaches.
+			int nextBit = wires.size();
+			for (int wire = 0; wire < numberOfWires; ++wire) {
+				if (!inGroup[wire]) {
+					bits[wire] = nextBit++;
+				}
+			}
+			layout = new WireLayout(bits);
+		}
+
+		/**
+		 * @param other Another group.
+		 * @return The group holding the tensor product of this group and the other.
+		 */
+		private Subsystem tensor(final Subsystem other) {
+			List<Integer> mergedWires = new ArrayList<>(wires);
+			mergedWires.addAll(other.wires);
+			ComplexArray merged = new ComplexArray(state.length() * other.state.length());
+			for (int high = 0; high < state.length(); ++high) {
+				for (int low = 0; low < other.state.length(); ++low) {
+					double real = state.getReal(high) * other.state.getReal(low)
+							- state.getImaginary(high) * other.state.getImaginary(low);
+					double imaginary = state.getReal(high) * other.state.getImaginary(low)
+							+ state.getImaginary(high) * other.state.getReal(low);
+					merged.set(high * other.state.length() + low, real, imaginary);
+				}
+			}
+			return new Subsystem(mergedWires, merged, layout.getNumberOfWires());
+		}
+	}
+}
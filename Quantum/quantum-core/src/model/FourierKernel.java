@@ -0,0 +1,202 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Applies a quantum Fourier transform, or its inverse, as a radix-2 fast
+ * Fourier transform over the amplitudes of each group. A QFT on k wires costs
+ * k 2^k operations per group this way, instead of the k^2 / 2 gate sweeps of
+ * the Hadamard and controlled phase ladder, or the 4^k of its dense matrix.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class FourierKernel extends GateKernel {
+	/** The transform length from which butterflies run in parallel. */
+	private static final int PARALLEL_SIZE = 1 << 16;
+
+	/** True for the inverse transform. */
+	private final boolean inverse;
+	/** The wires covered by the transform, most significant first. */
+	private final int[] wires;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param wires   The wires covered by the transform. The first wire is the most
+	 *                significant bit of the transformed index.
+	 * @param inverse True for the inverse transform.
+	 */
+	public FourierKernel(final int[] wires, final boolean inverse) {
+		super(wires);
+		this.wires = wires.clone();
+		this.inverse = inverse;
+	}
+
+	/**
+	 * Applies the transform in place to one block of a state vector. Every group
+	 * of amplitudes sharing the other wires is gathered, transformed and scattered
+	 * back. When the transform covers the whole state in natural order it runs on
+	 * the state directly.
+	 */
+	@Override
+	public void apply(final ComplexArray state, final WireLayout layout, final int from, final int to) {
+		double[] data = state.data();
+		int size = 1 << wires.length;
+		int[] offsets = new int[size];
+		int[] sortedBits = new int[wires.length];
+		boolean natural = from == 0 && to == size;
+		for (int n = 0; n < wires.length; ++n) {
+			int bit = layout.getBit(wires[n]);
+			sortedBits[n] = bit;
+			natural &= bit == wires.length - 1 - n;
+			for (int local = 0; local < size; ++local) {
+				if ((local & (1 << (wires.length - 1 - n))) != 0) {
+					offsets[local] |= 1 << bit;
+				}
+			}
+		}
+		if (natural) {
+			transform(data);
+			return;
+		}
+		Arrays.sort(sortedBits);
+		int firstGroup = from >> wires.length;
+		int lastGroup = to >> wires.length;
+		int groups = lastGroup - firstGroup;
+		// small transforms on a large state run one chunk of groups per thread.
+		int chunks = size < PARALLEL_SIZE && groups * size >= PARALLEL_SIZE
+				? Math.min(groups, 4 * Runtime.getRuntime().availableProcessors())
+				: 1;
+		IntStream chunkStream = IntStream.range(0, chunks);
+		if (chunks > 1) {
+			chunkStream = chunkStream.parallel();
+		}
+		chunkStream.forEach(chunk -> {
+			double[] buffer = new double[2 * size];
+			int chunkEnd = firstGroup + (int) ((long) groups * (chunk + 1) / chunks);
+			for (int group = firstGroup + (int) ((long) groups * chunk / chunks); group < chunkEnd; ++group) {
+				int base = spread(group, sortedBits);
+				for (int local = 0; local < size; ++local) {
+					buffer[2 * local] = data[2 * (base + offsets[local])];
+					buffer[2 * local + 1] = data[2 * (base + offsets[local]) + 1];
+				}
+				transform(buffer);
+				for (int local = 0; local < size; ++local) {
+					data[2 * (base + offsets[local])] = buffer[2 * local];
+					data[2 * (base + offsets[local]) + 1] = buffer[2 * local + 1];
+				}
+			}
+		});
+	}
+
+	/**
+	 * Transforms interleaved amplitudes in place: a bit reversal followed by
+	 * log2(length) stages of butterflies, then the 1/sqrt(length) normalisation.
+	 * The QFT maps x onto the sum of e^(2 pi i x y / length) y, and the inverse
+	 * uses the opposite sign.
+	 * 
+	 * @param buffer The interleaved amplitudes in local index order.
+	 */
+	private void transform(final double[] buffer) {
+		int size = buffer.length / 2;
+		int bits = Integer.numberOfTrailingZeros(size);
+		boolean parallel = size >= PARALLEL_SIZE;
+		IntStream reversal = IntStream.range(0, size);
+		if (parallel) {
+			reversal = reversal.parallel();
+		}
+		reversal.forEach(index -> {
+			int reversed = Integer.reverse(index) >>> (Integer.SIZE - bits);
+			if (bits > 0 && index < reversed) {
+				swap(buffer, index, reversed);
+			}
+		});
+		// twiddle factors of the last stage. Earlier stages use every 2^n-th one.
+		double sign = inverse ? -1 : 1;
+		double[] twiddles = new double[size];
+		for (int n = 0; n < size / 2; ++n) {
+			double angle = sign * 2 * Math.PI * n / size;
+			twiddles[2 * n] = Math.cos(angle);
+			twiddles[2 * n + 1] = Math.sin(angle);
+		}
+		for (int half = 1; half < size; half <<= 1) {
+			final int length = half << 1;
+			final int stride = size / length;
+			IntStream butterflies = IntStream.range(0, size / 2);
+			if (parallel) {
+				butterflies = butterflies.parallel();
+			}
+			final int stageHalf = half;
+			butterflies.forEach(butterfly -> {
+				int offset = butterfly & (stageHalf - 1);
+				int top = (butterfly - offset) * 2 + offset;
+				int bottom = top + stageHalf;
+				double twiddleReal = twiddles[2 * offset * stride];
+				double twiddleImaginary = twiddles[2 * offset * stride + 1];
+				double real = buffer[2 * bottom] * twiddleReal - buffer[2 * bottom + 1] * twiddleImaginary;
+				double imaginary = buffer[2 * bottom] * twiddleImaginary + buffer[2 * bottom + 1] * twiddleReal;
+				buffer[2 * bottom] = buffer[2 * top] - real;
+				buffer[2 * bottom + 1] = buffer[2 * top + 1] - imaginary;
+				buffer[2 * top] += real;
+				buffer[2 * top + 1] += imaginary;
+			});
+		}
+		double scale = 1 / Math.sqrt(size);
+		IntStream scaling = IntStream.range(0, buffer.length);
+		if (parallel) {
+			scaling = scaling.parallel();
+		}
+		scaling.forEach(n -> buffer[n] *= scale);
+	}
+
+	/**
+	 * Swaps two interleaved amplitudes.
+	 * 
+	 * @param buffer The interleaved amplitudes.
+	 * @param first  The first amplitude.
+	 * @param second The second amplitude.
+	 */
+	private static void swap(final double[] buffer, final int first, final int second) {
+		double real = buffer[2 * first];
+		double imaginary = buffer[2 * first + 1];
+		buffer[2 * first] = buffer[2 * second];
+		buffer[2 * first + 1] = buffer[2 * second + 1];
+		buffer[2 * second] = real;
+		buffer[2 * second + 1] = imaginary;
+	}
+
+	/**
+	 * @return The number of non zero entries of the dense transform matrix.
+	 */
+	@Override
+	public int getNonZeroCount() {
+		return (int) Math.min(Integer.MAX_VALUE, 1L << (2 * wires.length));
+	}
+
+	/**
+	 * @return True for the inverse transform.
+	 */
+	public boolean isInverse() {
+		return inverse;
+	}
+
+	/**
+	 * @return The dense transform matrix. Only sensible for a few wires.
+	 */
+	@Override
+	public Complex[][] toMatrix() {
+		int size = 1 << wires.length;
+		double sign = inverse ? -1 : 1;
+		double scale = 1 / Math.sqrt(size);
+		Complex[][] returnValue = new Complex[size][size];
+		for (int row = 0; row < size; ++row) {
+			for (int col = 0; col < size; ++col) {
+				double angle = sign * 2 * Math.PI * (((long) row * col) % size) / size;
+				returnValue[row][col] = Complex.valueOf(scale * Math.cos(angle), scale * Math.sin(angle));
+			}
+		}
+		return returnValue;
+	}
+}
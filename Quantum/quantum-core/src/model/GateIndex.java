@@ -0,0 +1,143 @@
+package model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Spatial index of the gates in a circuit by position and wire. Lookups of the
+ * gate on a given cell and of all the gates in a column are constant time
+ * instead of a scan over every gate. Each position also keeps the wire spans of
+ * its gates ordered by lowest wire, so collisions are found in logarithmic
+ * time.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+final class GateIndex implements Serializable {
+	/** Serializable ID. */
+	private static final long serialVersionUID = -1830719526787764207L;
+	/** The gates on each position, indexed by wire. Wires not on a gate are null. */
+	private final List<QuantumGate[]> cells = new ArrayList<>();
+	/** The gates on each position. */
+	private final List<List<QuantumGate>> columns = new ArrayList<>();
+	/** The highest position holding a gate, or -1 when there are none. */
+	private int maxPosition = -1;
+	/**
+	 * The gates on each position keyed by their lowest wire. Spans on one position
+	 * never overlap, so they are ordered by their highest wire too.
+	 */
+	private final List<TreeMap<Integer, QuantumGate>> spans = new ArrayList<>();
+
+	/**
+	 * Adds a gate to the index. The gate must not collide with a gate already in
+	 * the index.
+	 * 
+	 * @param gate The gate to add.
+	 */
+	void add(final QuantumGate gate) {
+		int position = gate.getGatePosition();
+		while (cells.size() <= position) {
+			cells.add(new QuantumGate[0]);
+			columns.add(new ArrayList<>());
+			spans.add(new TreeMap<>());
+		}
+		int maxWire = gate.getWires().stream().mapToInt(Integer::intValue).max().orElse(0);
+		if (cells.get(position).length <= maxWire) {
+			QuantumGate[] grown = new QuantumGate[maxWire + 1];
+			System.arraycopy(cells.get(position), 0, grown, 0, cells.get(position).length);
+			cells.set(position, grown);
+		}
+		for (int wire : gate.getWires()) {
+			cells.get(position)[wire] = gate;
+		}
+		columns.get(position).add(gate);
+		spans.get(position).put(gate.getMinWire(), gate);
+		maxPosition = Math.max(maxPosition, position);
+	}
+
+	/**
+	 * Removes every gate from the index.
+	 */
+	void clear() {
+		cells.clear();
+		columns.clear();
+		spans.clear();
+		maxPosition = -1;
+	}
+
+	/**
+	 * @param wire     The wire index to get.
+	 * @param position The position index to get.
+	 * @return The gate on the wire at the position, or null if there is none.
+	 */
+	QuantumGate get(final int wire, final int position) {
+		if (position < 0 || position >= cells.size() || wire < 0 || wire >= cells.get(position).length) {
+			return null;
+		}
+		return cells.get(position)[wire];
+	}
+
+	/**
+	 * Finds the gates whose wire span overlaps the span of a gate on the same
+	 * position.
+	 * 
+	 * @param gate The gate to check.
+	 * @return The gates in the index that collide with the gate.
+	 */
+	List<QuantumGate> getColliding(final QuantumGate gate) {
+		int position = gate.getGatePosition();
+		if (position < 0 || position >= spans.size()) {
+			return Collections.emptyList();
+		}
+		List<QuantumGate> returnValue = new ArrayList<>();
+		Map.Entry<Integer, QuantumGate> below = spans.get(position).lowerEntry(gate.getMinWire());
+		if (below != null && below.getValue().getMaxWire() >= gate.getMinWire()) {
+			returnValue.add(below.getValue());
+		}
+		returnValue.addAll(spans.get(position).subMap(gate.getMinWire(), true, gate.getMaxWire(), true).values());
+		return returnValue;
+	}
+
+	/**
+	 * @param position The position index to get.
+	 * @return The gates at the position. Read only.
+	 */
+	List<QuantumGate> getColumn(final int position) {
+		if (position < 0 || position >= columns.size()) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(columns.get(position));
+	}
+
+	/**
+	 * @return The highest position holding a gate, or -1 when there are none.
+	 */
+	int getMaxPosition() {
+		return maxPosition;
+	}
+
+	/**
+	 * Removes a gate from the index.
+	 * 
+	 * @param gate The gate to remove.
+	 */
+	void remove(final QuantumGate gate) {
+		int position = gate.getGatePosition();
+		if (position >= columns.size() || !columns.get(position).remove(gate)) {
+			return;
+		}
+		spans.get(position).remove(gate.getMinWire(), gate);
+		for (int wire : gate.getWires()) {
+			if (cells.get(position)[wire] == gate) {
+				cells.get(position)[wire] = null;
+			}
+		}
+		while (maxPosition >= 0 && columns.get(maxPosition).isEmpty()) {
+			--maxPosition;
+		}
+	}
+}
@@ -0,0 +1,502 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Compiled form of a gate matrix that can be applied directly to a state
+ * vector. Only the non-zero matrix entries are kept, and the gate is applied
+ * group by group over the wires it spans instead of being tensored up to the
+ * size of the whole circuit. Instances are immutable and shared through the
+ * {@link GateMatrixRegistry}.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public class GateKernel {
+	/**
+	 * Merges consecutive diagonal kernels into one kernel over all of their wires,
+	 * so the whole run takes a single pass over the state.
+	 * 
+	 * @param kernels Diagonal kernels in the order they run.
+	 * @return One diagonal kernel with the product of their phases.
+	 */
+	public static GateKernel mergeDiagonal(final List<GateKernel> kernels) {
+		TreeSet<Integer> union = new TreeSet<>();
+		for (GateKernel kernel : kernels) {
+			if (kernel.kind != GateKind.DIAGONAL) {
+				throw new IllegalArgumentException("Only diagonal kernels can be merged.");
+			}
+			for (int wire : kernel.wires) {
+				union.add(wire);
+			}
+		}
+		int[] mergedWires = union.stream().mapToInt(Integer::intValue).toArray();
+		double[] phases = new double[2 << mergedWires.length];
+		for (int local = 0; local < 1 << mergedWires.length; ++local) {
+			phases[2 * local] = 1;
+		}
+		for (GateKernel kernel : kernels) {
+			// where each wire of the kernel sits in the merged local index.
+			int[] shifts = new int[kernel.wires.length];
+			for (int n = 0; n < kernel.wires.length; ++n) {
+				shifts[n] = mergedWires.length - 1 - Arrays.binarySearch(mergedWires, kernel.wires[n]);
+			}
+			for (int local = 0; local < 1 << mergedWires.length; ++local) {
+				int row = 0;
+				for (int n = 0; n < kernel.wires.length; ++n) {
+					row = (row << 1) | ((local >> shifts[n]) & 1);
+				}
+				double real = 0;
+				double imaginary = 0;
+				if (kernel.rowStart[row] < kernel.rowStart[row + 1]) {
+					real = kernel.values[2 * kernel.rowStart[row]];
+					imaginary = kernel.values[2 * kernel.rowStart[row] + 1];
+				}
+				double phaseReal = phases[2 * local];
+				phases[2 * local] = phaseReal * real - phases[2 * local + 1] * imaginary;
+				phases[2 * local + 1] = phaseReal * imaginary + phases[2 * local + 1] * real;
+			}
+		}
+		return new GateKernel(mergedWires, phases);
+	}
+
+	/**
+	 * Builds the kernel of a controlled gate from its controls and the matrix it
+	 * applies to the target, so the matrix over every wire between them is never
+	 * built.
+	 * 
+	 * @param controls     The control wires.
+	 * @param onZero       Whether the controls fire on zero instead of one.
+	 * @param target       The target wire.
+	 * @param targetMatrix The 2x2 matrix applied to the target when every control
+	 *                     fires.
+	 * @return The kernel over the controls and the target.
+	 */
+	static GateKernel controlled(final List<Integer> controls, final boolean onZero, final int target,
+			final Complex[][] targetMatrix) {
+		List<Integer> gateWires = new ArrayList<>(new TreeSet<>(controls));
+		gateWires.add(target);
+		gateWires.sort(null);
+		int controlMask = 0;
+		for (int control : controls) {
+			controlMask |= 1 << (gateWires.size() - 1 - gateWires.indexOf(control));
+		}
+		int fires = onZero ? 0 : controlMask;
+		int targetBit = 1 << (gateWires.size() - 1 - gateWires.indexOf(target));
+		int size = 1 << gateWires.size();
+		Complex[][] matrix = new Complex[size][size];
+		for (int row = 0; row < size; ++row) {
+			Arrays.fill(matrix[row], Complex.ZERO);
+			if ((row & controlMask) != fires) {
+				matrix[row][row] = Complex.ONE;
+			} else {
+				int targetRow = (row & targetBit) == 0 ? 0 : 1;
+				matrix[row][row & ~targetBit] = targetMatrix[targetRow][0];
+				matrix[row][row | targetBit] = targetMatrix[targetRow][1];
+			}
+		}
+		return new GateKernel(gateWires, matrix);
+	}
+
+	/**
+	 * The local rows this kernel changes: for a diagonal kernel the rows whose
+	 * phase is not one, for a permutation the rows that receive another row.
+	 */
+	private final int[] activeRows;
+	/**
+	 * Column of each stored entry. Entries for row r are found between
+	 * rowStart[r] and rowStart[r + 1].
+	 */
+	private final int[] columns;
+	/**
+	 * Bit n is set when the matrix never mixes the two values of local index bit
+	 * n, meaning the gate acts diagonally (like a control or a phase) on that
+	 * wire.
+	 */
+	private final int diagonalBits;
+	/** How this kernel is applied. */
+	private final GateKind kind;
+	/** Offsets of each row into the columns and values arrays. */
+	private final int[] rowStart;
+	/** Interleaved real and imaginary parts of the stored entries. */
+	private final double[] values;
+	/**
+	 * The wires this kernel acts on. The first wire is the most significant bit
+	 * of the local matrix index.
+	 */
+	private final int[] wires;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param wires  The wires covered by the matrix, most significant first.
+	 * @param matrix The dense matrix of the gate. Must be 2^wires square.
+	 */
+	public GateKernel(final List<Integer> wires, final Complex[][] matrix) {
+		if (matrix.length != 1 << wires.size()) {
+			throw new IllegalArgumentException("The matrix does not match the number of wires.");
+		}
+		this.wires = wires.stream().mapToInt(Integer::intValue).toArray();
+		rowStart = new int[matrix.length + 1];
+		int entries = 0;
+		for (Complex[] row : matrix) {
+			for (Complex value : row) {
+				if (value.getReal() != 0 || value.getImaginary() != 0) {
+					++entries;
+				}
+			}
+		}
+		columns = new int[entries];
+		values = new double[2 * entries];
+		int entry = 0;
+		for (int row = 0; row < matrix.length; ++row) {
+			rowStart[row] = entry;
+			for (int col = 0; col < matrix.length; ++col) {
+				if (matrix[row][col].getReal() != 0 || matrix[row][col].getImaginary() != 0) {
+					columns[entry] = col;
+					values[2 * entry] = matrix[row][col].getReal();
+					values[2 * entry + 1] = matrix[row][col].getImaginary();
+					++entry;
+				}
+			}
+		}
+		rowStart[matrix.length] = entry;
+		diagonalBits = findDiagonalBits();
+		kind = findKind();
+		activeRows = findActiveRows();
+	}
+
+	/**
+	 * Constructor for kernels that apply themselves without a stored matrix, such
+	 * as {@link FourierKernel}. They must override
+	 * {@link #apply(ComplexArray, WireLayout, int, int)} and {@link #toMatrix()}.
+	 * 
+	 * @param wires The wires the kernel acts on, most significant first.
+	 */
+	protected GateKernel(final int[] wires) {
+		this.wires = wires.clone();
+		rowStart = new int[1];
+		columns = new int[0];
+		values = new double[0];
+		diagonalBits = 0;
+		kind = GateKind.GENERAL;
+		activeRows = new int[0];
+	}
+
+	/**
+	 * Constructor for a diagonal kernel.
+	 * 
+	 * @param wires  The wires covered by the kernel, most significant first.
+	 * @param phases The interleaved real and imaginary parts of the diagonal.
+	 */
+	private GateKernel(final int[] wires, final double[] phases) {
+		this.wires = wires;
+		int size = 1 << wires.length;
+		rowStart = new int[size + 1];
+		columns = new int[size];
+		for (int row = 0; row < size; ++row) {
+			rowStart[row] = row;
+			columns[row] = row;
+		}
+		rowStart[size] = size;
+		values = phases;
+		diagonalBits = findDiagonalBits();
+		kind = findKind();
+		activeRows = findActiveRows();
+	}
+
+	/**
+	 * Applies this kernel in place to a state vector.
+	 * 
+	 * @param state         The state vector to update.
+	 * @param numberOfWires The number of wires in the circuit the state belongs
+	 *                      to. Wire zero is the most significant bit of the state
+	 *                      index.
+	 */
+	public void apply(final ComplexArray state, final int numberOfWires) {
+		apply(state, WireLayout.identity(numberOfWires));
+	}
+
+	/**
+	 * Applies this kernel in place to a state vector stored in any wire layout.
+	 * 
+	 * @param state  The state vector to update.
+	 * @param layout The layout the state vector is indexed by.
+	 */
+	public void apply(final ComplexArray state, final WireLayout layout) {
+		apply(state, layout, 0, state.length());
+	}
+
+	/**
+	 * Applies this kernel in place to one block of a state vector. Every bit the
+	 * kernel acts on must be below the block size, so the block holds whole
+	 * groups and the rest of the state is left alone.
+	 * 
+	 * @param state  The state vector to update.
+	 * @param layout The layout the state vector is indexed by.
+	 * @param from   The first index of the block. A multiple of the block size.
+	 * @param to     One past the last index of the block. The block size must be
+	 *               a power of two.
+	 */
+	public void apply(final ComplexArray state, final WireLayout layout, final int from, final int to) {
+		double[] data = state.data();
+		int size = rowStart.length - 1;
+		int[] offsets = new int[size];
+		int[] sortedBits = new int[wires.length];
+		for (int n = 0; n < wires.length; ++n) {
+			int bit = layout.getBit(wires[n]);
+			sortedBits[n] = bit;
+			for (int local = 0; local < size; ++local) {
+				if ((local & (1 << (wires.length - 1 - n))) != 0) {
+					offsets[local] |= 1 << bit;
+				}
+			}
+		}
+		Arrays.sort(sortedBits);
+		int firstGroup = from >> wires.length;
+		int lastGroup = to >> wires.length;
+		switch (kind) {
+		case DIAGONAL:
+			applyDiagonal(data, offsets, sortedBits, firstGroup, lastGroup);
+			break;
+		case PERMUTATION:
+			applyPermutation(data, offsets, sortedBits, firstGroup, lastGroup);
+			break;
+		default:
+			applyGeneral(data, offsets, sortedBits, firstGroup, lastGroup);
+			break;
+		}
+	}
+
+	/**
+	 * Spreads a group number around the bits a kernel acts on.
+	 * 
+	 * @param group      The group number.
+	 * @param sortedBits The bits the kernel acts on, lowest first.
+	 * @return The state index of the first amplitude of the group.
+	 */
+	static int spread(final int group, final int[] sortedBits) {
+		int base = group;
+		for (int bit : sortedBits) {
+			base = ((base >> bit) << (bit + 1)) | (base & ((1 << bit) - 1));
+		}
+		return base;
+	}
+
+	/**
+	 * Multiplies the amplitudes of each group by the diagonal. Rows whose phase
+	 * is one, such as the rows where a control is off, are not touched.
+	 * 
+	 * @param data       The interleaved state vector.
+	 * @param offsets    The state index offset of each local row.
+	 * @param sortedBits The bits the kernel acts on, lowest first.
+	 * @param firstGroup The first group to update.
+	 * @param lastGroup  One past the last group to update.
+	 */
+	private void applyDiagonal(final double[] data, final int[] offsets, final int[] sortedBits,
+			final int firstGroup, final int lastGroup) {
+		for (int group = firstGroup; group < lastGroup; ++group) {
+			int base = spread(group, sortedBits);
+			for (int row : activeRows) {
+				int index = 2 * (base + offsets[row]);
+				double real = data[index];
+				double imaginary = data[index + 1];
+				data[index] = values[2 * row] * real - values[2 * row + 1] * imaginary;
+				data[index + 1] = values[2 * row] * imaginary + values[2 * row + 1] * real;
+			}
+		}
+	}
+
+	/**
+	 * Multiplies each group by the sparse matrix.
+	 * 
+	 * @param data       The interleaved state vector.
+	 * @param offsets    The state index offset of each local row.
+	 * @param sortedBits The bits the kernel acts on, lowest first.
+	 * @param firstGroup The first group to update.
+	 * @param lastGroup  One past the last group to update.
+	 */
+	private void applyGeneral(final double[] data, final int[] offsets, final int[] sortedBits,
+			final int firstGroup, final int lastGroup) {
+		int size = offsets.length;
+		double[] gathered = new double[2 * size];
+		for (int group = firstGroup; group < lastGroup; ++group) {
+			int base = spread(group, sortedBits);
+			for (int local = 0; local < size; ++local) {
+				gathered[2 * local] = data[2 * (base + offsets[local])];
+				gathered[2 * local + 1] = data[2 * (base + offsets[local]) + 1];
+			}
+			for (int row = 0; row < size; ++row) {
+				int index = 2 * (base + offsets[row]);
+				data[index] = 0;
+				data[index + 1] = 0;
+				for (int entry = rowStart[row]; entry < rowStart[row + 1]; ++entry) {
+					ComplexArray.multiplyAccumulate(data, index, values[2 * entry], values[2 * entry + 1],
+							gathered[2 * columns[entry]], gathered[2 * columns[entry] + 1]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Moves the amplitudes of each group without any arithmetic. Rows that keep
+	 * their amplitude are not touched.
+	 * 
+	 * @param data       The interleaved state vector.
+	 * @param offsets    The state index offset of each local row.
+	 * @param sortedBits The bits the kernel acts on, lowest first.
+	 * @param firstGroup The first group to update.
+	 * @param lastGroup  One past the last group to update.
+	 */
+	private void applyPermutation(final double[] data, final int[] offsets, final int[] sortedBits,
+			final int firstGroup, final int lastGroup) {
+		double[] gathered = new double[2 * activeRows.length];
+		for (int group = firstGroup; group < lastGroup; ++group) {
+			int base = spread(group, sortedBits);
+			for (int n = 0; n < activeRows.length; ++n) {
+				int index = 2 * (base + offsets[columns[activeRows[n]]]);
+				gathered[2 * n] = data[index];
+				gathered[2 * n + 1] = data[index + 1];
+			}
+			for (int n = 0; n < activeRows.length; ++n) {
+				int index = 2 * (base + offsets[activeRows[n]]);
+				data[index] = gathered[2 * n];
+				data[index + 1] = gathered[2 * n + 1];
+			}
+		}
+	}
+
+	/**
+	 * @return The local index bits the matrix never mixes.
+	 */
+	private int findDiagonalBits() {
+		int size = rowStart.length - 1;
+		int mixedBits = 0;
+		for (int row = 0; row < size; ++row) {
+			for (int stored = rowStart[row]; stored < rowStart[row + 1]; ++stored) {
+				mixedBits |= row ^ columns[stored];
+			}
+		}
+		return ~mixedBits & (size - 1);
+	}
+
+	/**
+	 * @return The kind of matrix stored. Needs the diagonal bits.
+	 */
+	private GateKind findKind() {
+		int size = rowStart.length - 1;
+		if (isDiagonal() && columns.length == size) {
+			return GateKind.DIAGONAL;
+		}
+		boolean[] used = new boolean[size];
+		for (int row = 0; row < size; ++row) {
+			if (rowStart[row + 1] - rowStart[row] != 1 || used[columns[rowStart[row]]]
+					|| values[2 * rowStart[row]] != 1 || values[2 * rowStart[row] + 1] != 0) {
+				return GateKind.GENERAL;
+			}
+			used[columns[rowStart[row]]] = true;
+		}
+		return GateKind.PERMUTATION;
+	}
+
+	/**
+	 * @return The rows this kernel changes, see {@link #activeRows}. Needs the
+	 *         kind.
+	 */
+	private int[] findActiveRows() {
+		int size = rowStart.length - 1;
+		List<Integer> returnValue = new ArrayList<>();
+		for (int row = 0; row < size; ++row) {
+			if (kind == GateKind.DIAGONAL && (values[2 * row] != 1 || values[2 * row + 1] != 0)
+					|| kind == GateKind.PERMUTATION && columns[rowStart[row]] != row) {
+				returnValue.add(row);
+			}
+		}
+		return returnValue.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * @param layout The layout of the state vector.
+	 * @return The highest bit of the state index this kernel acts on.
+	 */
+	public int getMaxBit(final WireLayout layout) {
+		int returnValue = 0;
+		for (int wire : wires) {
+			returnValue = Math.max(returnValue, layout.getBit(wire));
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @return How this kernel is applied.
+	 */
+	public GateKind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return The number of non-zero entries of the matrix.
+	 */
+	public int getNonZeroCount() {
+		return columns.length;
+	}
+
+	/**
+	 * @return True if the matrix is diagonal.
+	 */
+	public boolean isDiagonal() {
+		return diagonalBits == (1 << wires.length) - 1;
+	}
+
+	/**
+	 * @param wire The wire to check.
+	 * @return True if the gate acts diagonally on the wire, as it does on its
+	 *         control wires and on wires outside of its span.
+	 */
+	public boolean isDiagonalOn(final int wire) {
+		for (int n = 0; n < wires.length; ++n) {
+			if (wires[n] == wire) {
+				return (diagonalBits & (1 << (wires.length - 1 - n))) != 0;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param row A local row of a permutation kernel.
+	 * @return The local column the row takes its amplitude from.
+	 */
+	public int getPermutedColumn(final int row) {
+		if (kind != GateKind.PERMUTATION) {
+			throw new IllegalStateException("The kernel is not a permutation.");
+		}
+		return columns[rowStart[row]];
+	}
+
+	/**
+	 * @return The dense matrix over the wires of this kernel.
+	 */
+	public Complex[][] toMatrix() {
+		int size = rowStart.length - 1;
+		Complex[][] returnValue = new Complex[size][size];
+		for (Complex[] row : returnValue) {
+			Arrays.fill(row, Complex.ZERO);
+		}
+		for (int row = 0; row < size; ++row) {
+			for (int entry = rowStart[row]; entry < rowStart[row + 1]; ++entry) {
+				returnValue[row][columns[entry]] = Complex.valueOf(values[2 * entry], values[2 * entry + 1]);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @return The wires covered by this kernel, most significant first.
+	 */
+	public int[] getWires() {
+		return wires.clone();
+	}
+}
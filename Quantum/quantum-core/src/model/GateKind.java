@@ -0,0 +1,25 @@
+package model;
+
+/**
+ * The shape of a gate matrix, which decides how the gate is applied to a state.
+ *
+ * @author cdberkstresser
+ *
+ */
+public enum GateKind {
+	/**
+	 * Only multiplies amplitudes by a phase, like Z, S, T, Rz and CRz. Applied as
+	 * one multiplication per amplitude that is not left alone.
+	 */
+	DIAGONAL,
+	/**
+	 * Any other matrix. Applied as a sparse matrix multiplication per group of
+	 * amplitudes.
+	 */
+	GENERAL,
+	/**
+	 * Only moves amplitudes around, like X, CNOT, C0NOT, CCNOT and CCCNOT. Applied
+	 * as amplitude swaps with no arithmetic.
+	 */
+	PERMUTATION
+}
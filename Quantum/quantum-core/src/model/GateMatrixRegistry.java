@@ -0,0 +1,324 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Flyweight registry of gate matrices and kernels. Gates with the same type,
+ * wire layout and parameter share one matrix and one kernel instead of
+ * rebuilding them on every call. The registry holds a bounded number of
+ * entries and evicts the least recently used one when full.
+ * 
+ * The cached matrices are shared between gates, so callers must not modify
+ * them.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class GateMatrixRegistry {
+	/** The number of gate layouts kept by the shared registry. */
+	public static final int DEFAULT_CAPACITY = 1024;
+	/** The shared registry used by the gate classes. */
+	private static final GateMatrixRegistry INSTANCE = new GateMatrixRegistry(DEFAULT_CAPACITY);
+
+	/**
+	 * @return The shared registry used by the gate classes.
+	 */
+	public static GateMatrixRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/** The cached entries in least recently used order. */
+	private final Map<Key, CachedGate> cache;
+	/** The number of evicted entries. */
+	private long evictions;
+	/** The number of lookups answered from the cache. */
+	private long hits;
+	/** The number of lookups that had to build a new matrix. */
+	private long misses;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity The maximum number of gate layouts to keep.
+	 */
+	public GateMatrixRegistry(final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The registry must hold at least one entry.");
+		}
+		final float loadFactor = 0.75f;
+		cache = new LinkedHashMap<>(16, loadFactor, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, CachedGate> eldest) {
+				if (size() > capacity) {
+					++evictions;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Empties the registry and resets the metrics.
+	 */
+	public synchronized void clear() {
+		cache.clear();
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	/**
+	 * @return The number of entries evicted since the registry was created or
+	 *         cleared.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return The number of lookups answered from the cache.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return The fraction of lookups answered from the cache.
+	 */
+	public synchronized double getHitRate() {
+		if (hits + misses == 0) {
+			return 0.0;
+		}
+		return (double) hits / (hits + misses);
+	}
+
+	/**
+	 * Gets the kernel of a gate, compiling it from the gate matrix on first use.
+	 * 
+	 * @param gate The gate whose kernel to get.
+	 * @return The shared kernel for the gate layout.
+	 */
+	public GateKernel getKernel(final QuantumGate gate) {
+		CachedGate entry = lookup(gate, () -> {
+			GateKernel own = gate.buildKernel();
+			return own != null ? new CachedGate(null, own) : new CachedGate(gate.getGateMatrix(), null);
+		});
+		synchronized (this) {
+			if (entry.kernel == null) {
+				entry.kernel = compile(gate, entry.matrix);
+			}
+			return entry.kernel;
+		}
+	}
+
+	/**
+	 * Compiles the kernel of a gate. A controlled gate whose wires are not
+	 * neighbours still has a matrix spanning every wire in between, even though it
+	 * is the identity on those. When that is the case the kernel only keeps the
+	 * gate's own wires, so it costs 2^wires instead of 2^span per group.
+	 * 
+	 * @param gate   The gate to compile.
+	 * @param matrix The dense matrix of the gate over its whole span.
+	 * @return The compiled kernel.
+	 */
+	private static GateKernel compile(final QuantumGate gate, final Complex[][] matrix) {
+		int minWire = gate.getMinWire();
+		int spanSize = gate.getMaxWire() - minWire + 1;
+		List<Integer> span = new ArrayList<>();
+		for (int wire = minWire; wire <= gate.getMaxWire(); ++wire) {
+			span.add(wire);
+		}
+		List<Integer> active = new ArrayList<>(new TreeSet<>(gate.getWires()));
+		if (active.size() == spanSize || matrix.length != 1 << spanSize) {
+			return new GateKernel(span, matrix);
+		}
+		// where each bit of the reduced index lives in the span index.
+		int[] spanBits = new int[active.size()];
+		int activeMask = 0;
+		for (int n = 0; n < active.size(); ++n) {
+			spanBits[active.size() - 1 - n] = spanSize - 1 - (active.get(n) - minWire);
+			activeMask |= 1 << spanBits[active.size() - 1 - n];
+		}
+		int size = 1 << active.size();
+		int[] toSpan = new int[size];
+		for (int reduced = 0; reduced < size; ++reduced) {
+			for (int bit = 0; bit < spanBits.length; ++bit) {
+				if ((reduced & (1 << bit)) != 0) {
+					toSpan[reduced] |= 1 << spanBits[bit];
+				}
+			}
+		}
+		Complex[][] reducedMatrix = new Complex[size][size];
+		for (int row = 0; row < size; ++row) {
+			for (int col = 0; col < size; ++col) {
+				reducedMatrix[row][col] = matrix[toSpan[row]][toSpan[col]];
+			}
+		}
+		// only use the reduced matrix if the gate really is the identity in between.
+		int[] toReduced = new int[matrix.length];
+		for (int reduced = 0; reduced < size; ++reduced) {
+			for (int middle = 0; middle < matrix.length; ++middle) {
+				if ((middle & activeMask) == 0) {
+					toReduced[toSpan[reduced] | middle] = reduced;
+				}
+			}
+		}
+		for (int row = 0; row < matrix.length; ++row) {
+			for (int col = 0; col < matrix.length; ++col) {
+				Complex expected = (row & ~activeMask) == (col & ~activeMask)
+						? reducedMatrix[toReduced[row]][toReduced[col]]
+						: Complex.ZERO;
+				if (matrix[row][col].getReal() != expected.getReal()
+						|| matrix[row][col].getImaginary() != expected.getImaginary()) {
+					return new GateKernel(span, matrix);
+				}
+			}
+		}
+		return new GateKernel(active, reducedMatrix);
+	}
+
+	/**
+	 * Gets the matrix of a gate, building it on first use.
+	 * 
+	 * @param gate    The gate whose matrix to get.
+	 * @param builder Builds the matrix when it is not cached yet. Exceptions thrown
+	 *                by it are passed on and nothing is cached.
+	 * @return The shared matrix for the gate layout. Must not be modified.
+	 */
+	public Complex[][] getMatrix(final QuantumGate gate, final Supplier<Complex[][]> builder) {
+		CachedGate entry = lookup(gate, () -> new CachedGate(builder.get(), null));
+		synchronized (this) {
+			if (entry.matrix != null) {
+				return entry.matrix;
+			}
+		}
+		// cached by getKernel for a gate with its own kernel.
+		Complex[][] matrix = builder.get();
+		synchronized (this) {
+			if (entry.matrix == null) {
+				entry.matrix = matrix;
+			}
+			return entry.matrix;
+		}
+	}
+
+	/**
+	 * @return The number of lookups that had to build a new matrix.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return The number of gate layouts currently cached.
+	 */
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Finds the entry for a gate, building the matrix when needed.
+	 * 
+	 * @param gate    The gate to look up.
+	 * @param builder Builds the entry when it is not cached yet.
+	 * @return The cache entry.
+	 */
+	private CachedGate lookup(final QuantumGate gate, final Supplier<CachedGate> builder) {
+		Key key = new Key(gate);
+		synchronized (this) {
+			CachedGate entry = cache.get(key);
+			if (entry != null) {
+				++hits;
+				return entry;
+			}
+			++misses;
+		}
+		// build outside of the lock since large controlled gates take a while.
+		CachedGate entry = builder.get();
+		synchronized (this) {
+			CachedGate existing = cache.putIfAbsent(key, entry);
+			return existing == null ? entry : existing;
+		}
+	}
+
+	/**
+	 * A cached matrix and its kernel, compiled lazily.
+	 */
+	private static final class CachedGate {
+		/** The compiled kernel. Null until first requested. */
+		private GateKernel kernel;
+		/** The dense matrix. Null until requested for a gate with its own kernel. */
+		private Complex[][] matrix;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param matrix The dense matrix, or null.
+		 * @param kernel The kernel, or null to compile it from the matrix.
+		 */
+		private CachedGate(final Complex[][] matrix, final GateKernel kernel) {
+			this.matrix = matrix;
+			this.kernel = kernel;
+		}
+	}
+
+	/**
+	 * Identifies a gate layout by gate type, wires and parameter, and by body for
+	 * composite gates.
+	 */
+	private static final class Key {
+		/** The body of a composite gate, or null for other gates. */
+		private final String body;
+		/** The gate type. */
+		private final String gateType;
+		/** The parameter of the gate, or zero for gates without one. */
+		private final double value;
+		/** The wires of the gate in gate order. */
+		private final List<Integer> wires;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param gate The gate to identify.
+		 */
+		private Key(final QuantumGate gate) {
+			gateType = gate.getGateType();
+			// composite gate types are only names, which circuits may give other bodies.
+			body = gate instanceof CompositeGate ? ((CompositeGate) gate).getDefinition().describe() : null;
+			wires = new ArrayList<>(gate.getWires());
+			if (gate instanceof QuantumGateWithParameter) {
+				value = ((QuantumGateWithParameter) gate).getValue();
+			} else {
+				value = 0.0;
+			}
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return gateType.equals(other.gateType)
+					&& Double.doubleToLongBits(value) == Double.doubleToLongBits(other.value)
+					&& wires.equals(other.wires) && Objects.equals(body, other.body);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(gateType, body, value, wires);
+		}
+	}
+}
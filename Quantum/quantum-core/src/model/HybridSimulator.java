@@ -0,0 +1,403 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Simulator for circuits too wide for one state vector. The wires are cut into
+ * an upper and a lower half, each with a state vector of its own. A gate
+ * crossing the cut is written as a sum of products of an upper and a lower
+ * operator, read off the blocks of its matrix, so a controlled gate becomes
+ * "control off times identity plus control on times target". Choosing one term
+ * of every crossing gate gives a path along which both halves evolve
+ * independently, and an amplitude is the sum over all paths of the product of
+ * the two half amplitudes.
+ * 
+ * Memory is two half state vectors per path running at once instead of 2^wires,
+ * and time grows with the number of paths, the product of the term counts of
+ * the crossing gates. Paths run in parallel.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class HybridSimulator {
+	/**
+	 * Finds the cut with the fewest paths, preferring cuts near the middle. Both
+	 * halves keep at least a quarter of the wires. A circuit of one wire is not
+	 * cut.
+	 * 
+	 * @param circuit The circuit to cut.
+	 * @return The number of wires in the upper half.
+	 */
+	public static int findCut(final QuantumCircuit circuit) {
+		int numberOfWires = circuit.getWires().size();
+		// the kernel and matrix of every gate that could cross a cut, read once for
+		// all cuts.
+		List<QuantumGate> multiWire = new ArrayList<>();
+		List<GateKernel> kernels = new ArrayList<>();
+		List<Complex[][]> matrices = new ArrayList<>();
+		for (QuantumGate gate : circuit.getGates()) {
+			if (gate.getMinWire() < gate.getMaxWire()) {
+				GateKernel kernel = GateMatrixRegistry.getInstance().getKernel(gate);
+				multiWire.add(gate);
+				kernels.add(kernel);
+				matrices.add(kernel.toMatrix());
+			}
+		}
+		int bestCut = numberOfWires / 2;
+		double bestPaths = Double.MAX_VALUE;
+		for (int cut = Math.max(1, numberOfWires / 4); cut <= numberOfWires - Math.max(1, numberOfWires / 4); ++cut) {
+			double paths = 1;
+			for (int n = 0; n < multiWire.size(); ++n) {
+				QuantumGate gate = multiWire.get(n);
+				if (gate.getMinWire() < cut && gate.getMaxWire() >= cut) {
+					paths *= new CrossingGate(gate, kernels.get(n).getWires(), matrices.get(n), cut).terms.size();
+				}
+			}
+			if (paths < bestPaths || paths == bestPaths
+					&& Math.abs(cut - numberOfWires / 2) < Math.abs(bestCut - numberOfWires / 2)) {
+				bestPaths = paths;
+				bestCut = cut;
+			}
+		}
+		return bestCut;
+	}
+
+	/** The gates crossing the cut, in circuit order. */
+	private final List<CrossingGate> crossingGates = new ArrayList<>();
+	/** The number of wires in the upper half. */
+	private final int cut;
+	/** The gates in circuit order. */
+	private final List<QuantumGate> gates;
+	/**
+	 * The kernel of each gate in circuit order, or null for the gates crossing the
+	 * cut.
+	 */
+	private final List<GateKernel> kernels = new ArrayList<>();
+	/** Puts the lower half wires on the low bits of the lower state. */
+	private final WireLayout lowerLayout;
+	/** The initial values of the wires. */
+	private final List<Qubit> initialValues;
+	/** The number of wires in the circuit. */
+	private final int numberOfWires;
+	/**
+	 * The number of gates before the first gate crossing the cut. Every path runs
+	 * them alike, so they are only run once per half.
+	 */
+	private final int prefixLength;
+	/** Puts the upper half wires on the low bits of the upper state. */
+	private final WireLayout upperLayout;
+
+	/**
+	 * Constructor using the cut from {@link #findCut(QuantumCircuit)}.
+	 * 
+	 * @param circuit The circuit to simulate.
+	 */
+	public HybridSimulator(final QuantumCircuit circuit) {
+		this(circuit, findCut(circuit));
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param circuit The circuit to simulate.
+	 * @param cut     The number of wires in the upper half. The upper half holds
+	 *                wires 0 to cut - 1. A half may be empty, which simulates
+	 *                the circuit as one state vector.
+	 */
+	public HybridSimulator(final QuantumCircuit circuit, final int cut) {
+		numberOfWires = circuit.getWires().size();
+		if (cut < 0 || cut > numberOfWires) {
+			throw new IllegalArgumentException("The cut must lie between 0 and " + numberOfWires + " wires.");
+		}
+		if (cut > Integer.SIZE - 2 || numberOfWires - cut > Integer.SIZE - 2) {
+			throw new IllegalArgumentException("A half of " + Math.max(cut, numberOfWires - cut)
+					+ " wires does not fit in a state vector.");
+		}
+		this.cut = cut;
+		initialValues = circuit.getInitialValues();
+		gates = new ArrayList<>(circuit.getGates());
+		gates.sort(Comparator.comparingInt(QuantumGate::getGatePosition).thenComparingInt(QuantumGate::getMinWire));
+		// resolved once, so paths neither wait on the shared registry nor read the
+		// matrices of crossing gates again.
+		for (QuantumGate gate : gates) {
+			GateKernel kernel = GateMatrixRegistry.getInstance().getKernel(gate);
+			if (gate.getMinWire() < cut && gate.getMaxWire() >= cut) {
+				crossingGates.add(new CrossingGate(gate, kernel.getWires(), kernel.toMatrix(), cut));
+				kernels.add(null);
+			} else {
+				kernels.add(kernel);
+			}
+		}
+		prefixLength = kernels.contains(null) ? kernels.indexOf(null) : kernels.size();
+		// the wires of the other half sit above the state, where it never reaches.
+		int[] upperBits = new int[numberOfWires];
+		for (int wire = 0; wire < numberOfWires; ++wire) {
+			upperBits[wire] = wire < cut ? cut - 1 - wire : wire;
+		}
+		upperLayout = new WireLayout(upperBits);
+		lowerLayout = WireLayout.identity(numberOfWires);
+	}
+
+	/**
+	 * @param index A basis state with wire zero as the most significant bit.
+	 * @return The amplitude of the basis state after all gates have ran.
+	 */
+	public Complex amplitude(final long index) {
+		return amplitudes(new long[] { index })[0];
+	}
+
+	/**
+	 * Computes several amplitudes in one go, sharing the half states of every
+	 * path between them.
+	 * 
+	 * @param indexes Basis states with wire zero as the most significant bit.
+	 * @return The amplitude of each basis state after all gates have ran.
+	 */
+	public Complex[] amplitudes(final long[] indexes) {
+		long lowerMask = (1L << (numberOfWires - cut)) - 1;
+		ComplexArray upperPrefix = simulatePrefix(true);
+		ComplexArray lowerPrefix = simulatePrefix(false);
+		double[] sums = LongStream.range(0, getPathCount()).parallel().mapToObj(path -> {
+			ComplexArray upper = simulateHalf(upperPrefix.copy(), path, true);
+			ComplexArray lower = simulateHalf(lowerPrefix.copy(), path, false);
+			double[] returnValue = new double[2 * indexes.length];
+			for (int n = 0; n < indexes.length; ++n) {
+				int upperIndex = (int) (indexes[n] >>> (numberOfWires - cut));
+				int lowerIndex = (int) (indexes[n] & lowerMask);
+				ComplexArray.multiplyAccumulate(returnValue, 2 * n, upper.getReal(upperIndex),
+						upper.getImaginary(upperIndex), lower.getReal(lowerIndex), lower.getImaginary(lowerIndex));
+			}
+			return returnValue;
+		}).reduce(new double[2 * indexes.length], (sum1, sum2) -> {
+			double[] returnValue = sum1.clone();
+			for (int n = 0; n < returnValue.length; ++n) {
+				returnValue[n] += sum2[n];
+			}
+			return returnValue;
+		});
+		Complex[] returnValue = new Complex[indexes.length];
+		for (int n = 0; n < indexes.length; ++n) {
+			returnValue[n] = Complex.valueOf(sums[2 * n], sums[2 * n + 1]);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @return The gates crossing the cut.
+	 */
+	public List<QuantumGate> getCrossingGates() {
+		List<QuantumGate> returnValue = new ArrayList<>();
+		for (CrossingGate crossing : crossingGates) {
+			returnValue.add(crossing.gate);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @return The number of wires in the upper half.
+	 */
+	public int getCut() {
+		return cut;
+	}
+
+	/**
+	 * @return The number of paths, the product of the number of terms of every
+	 *         crossing gate.
+	 */
+	public long getPathCount() {
+		long returnValue = 1;
+		for (CrossingGate crossing : crossingGates) {
+			returnValue = Math.multiplyExact(returnValue, crossing.terms.size());
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Runs one half of the circuit up to the first gate crossing the cut.
+	 * 
+	 * @param upper True for the upper half, false for the lower half.
+	 * @return The state of the half, shared by every path.
+	 */
+	private ComplexArray simulatePrefix(final boolean upper) {
+		int first = upper ? 0 : cut;
+		int last = upper ? cut : numberOfWires;
+		WireLayout layout = upper ? upperLayout : lowerLayout;
+		ComplexArray state = new ComplexArray(1 << (last - first));
+		for (int index = 0; index < state.length(); ++index) {
+			double real = 1;
+			double imaginary = 0;
+			for (int wire = first; wire < last; ++wire) {
+				Complex value = (index & (1 << layout.getBit(wire))) != 0 ? initialValues.get(wire).getY()
+						: initialValues.get(wire).getX();
+				double product = real * value.getReal() - imaginary * value.getImaginary();
+				imaginary = real * value.getImaginary() + imaginary * value.getReal();
+				real = product;
+			}
+			state.set(index, real, imaginary);
+		}
+		for (int n = 0; n < prefixLength; ++n) {
+			if ((gates.get(n).getMaxWire() < cut) == upper) {
+				kernels.get(n).apply(state, layout, 0, state.length());
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Runs one half of the circuit along one path, from the first gate crossing
+	 * the cut on.
+	 * 
+	 * @param state The state of the half after {@link #simulatePrefix(boolean)},
+	 *              updated in place.
+	 * @param path  The path, read as one term choice per crossing gate.
+	 * @param upper True for the upper half, false for the lower half.
+	 * @return The state of the half after all gates have ran.
+	 */
+	private ComplexArray simulateHalf(final ComplexArray state, final long path, final boolean upper) {
+		WireLayout layout = upper ? upperLayout : lowerLayout;
+		long remaining = path;
+		int crossing = 0;
+		for (int n = prefixLength; n < gates.size(); ++n) {
+			QuantumGate gate = gates.get(n);
+			if (kernels.get(n) == null) {
+				CrossingGate crossingGate = crossingGates.get(crossing++);
+				Term term = crossingGate.terms.get((int) (remaining % crossingGate.terms.size()));
+				remaining /= crossingGate.terms.size();
+				(upper ? term.upper : term.lower).apply(state, layout, 0, state.length());
+			} else if ((gate.getMaxWire() < cut) == upper) {
+				kernels.get(n).apply(state, layout, 0, state.length());
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * A gate crossing the cut, written as a sum of products of operators on
+	 * either side.
+	 */
+	private static final class CrossingGate {
+		/** The gate. */
+		private final QuantumGate gate;
+		/** The terms of the sum. */
+		private final List<Term> terms = new ArrayList<>();
+
+		/**
+		 * Splits the matrix of a gate into blocks indexed by the upper wires. Each
+		 * block is an operator on the lower wires, and blocks holding the same
+		 * operator share one term.
+		 * 
+		 * @param gate        The gate.
+		 * @param kernelWires The wires of the gate kernel, most significant first.
+		 * @param matrix      The matrix of the gate kernel.
+		 * @param cut         The number of wires in the upper half.
+		 */
+		private CrossingGate(final QuantumGate gate, final int[] kernelWires, final Complex[][] matrix,
+				final int cut) {
+			this.gate = gate;
+			List<Integer> upperWires = new ArrayList<>();
+			List<Integer> lowerWires = new ArrayList<>();
+			for (int wire : kernelWires) {
+				(wire < cut ? upperWires : lowerWires).add(wire);
+			}
+			int[] upperOf = new int[1 << kernelWires.length];
+			int[] lowerOf = new int[1 << kernelWires.length];
+			for (int local = 0; local < upperOf.length; ++local) {
+				for (int n = 0; n < kernelWires.length; ++n) {
+					int bit = (local >> (kernelWires.length - 1 - n)) & 1;
+					if (kernelWires[n] < cut) {
+						upperOf[local] = (upperOf[local] << 1) | bit;
+					} else {
+						lowerOf[local] = (lowerOf[local] << 1) | bit;
+					}
+				}
+			}
+			int upperSize = 1 << upperWires.size();
+			int lowerSize = 1 << lowerWires.size();
+			// the lower operator of every block, as interleaved doubles.
+			double[][][] blocks = new double[upperSize][upperSize][];
+			for (int row = 0; row < matrix.length; ++row) {
+				for (int col = 0; col < matrix.length; ++col) {
+					if (matrix[row][col].getReal() == 0 && matrix[row][col].getImaginary() == 0) {
+						continue;
+					}
+					double[] block = blocks[upperOf[row]][upperOf[col]];
+					if (block == null) {
+						block = new double[2 * lowerSize * lowerSize];
+						blocks[upperOf[row]][upperOf[col]] = block;
+					}
+					int entry = 2 * (lowerOf[row] * lowerSize + lowerOf[col]);
+					block[entry] = matrix[row][col].getReal();
+					block[entry + 1] = matrix[row][col].getImaginary();
+				}
+			}
+			List<double[]> lowerOperators = new ArrayList<>();
+			List<Complex[][]> upperOperators = new ArrayList<>();
+			for (int upperRow = 0; upperRow < upperSize; ++upperRow) {
+				for (int upperCol = 0; upperCol < upperSize; ++upperCol) {
+					double[] block = blocks[upperRow][upperCol];
+					if (block == null) {
+						continue;
+					}
+					int term = 0;
+					while (term < lowerOperators.size() && !Arrays.equals(lowerOperators.get(term), block)) {
+						++term;
+					}
+					if (term == lowerOperators.size()) {
+						lowerOperators.add(block);
+						upperOperators.add(zeroMatrix(upperSize));
+					}
+					upperOperators.get(term)[upperRow][upperCol] = Complex.ONE;
+				}
+			}
+			for (int term = 0; term < lowerOperators.size(); ++term) {
+				Complex[][] lower = zeroMatrix(lowerSize);
+				for (int row = 0; row < lowerSize; ++row) {
+					for (int col = 0; col < lowerSize; ++col) {
+						int entry = 2 * (row * lowerSize + col);
+						lower[row][col] = Complex.valueOf(lowerOperators.get(term)[entry],
+								lowerOperators.get(term)[entry + 1]);
+					}
+				}
+				terms.add(new Term(new GateKernel(upperWires, upperOperators.get(term)),
+						new GateKernel(lowerWires, lower)));
+			}
+		}
+
+		/**
+		 * @param size The size of the matrix.
+		 * @return A square matrix of zeros.
+		 */
+		private static Complex[][] zeroMatrix(final int size) {
+			Complex[][] returnValue = new Complex[size][size];
+			for (Complex[] row : returnValue) {
+				Arrays.fill(row, Complex.ZERO);
+			}
+			return returnValue;
+		}
+	}
+
+	/**
+	 * One product of an upper and a lower operator.
+	 */
+	private static final class Term {
+		/** The operator on the lower wires. */
+		private final GateKernel lower;
+		/** The operator on the upper wires. */
+		private final GateKernel upper;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param upper The operator on the upper wires.
+		 * @param lower The operator on the lower wires.
+		 */
+		private Term(final GateKernel upper, final GateKernel lower) {
+			this.upper = upper;
+			this.lower = lower;
+		}
+	}
+}
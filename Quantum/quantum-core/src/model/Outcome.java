@@ -0,0 +1,63 @@
+package model;
+
+/**
+ * A basis state of a circuit together with the probability of measuring it.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class Outcome {
+	/** The basis state, with wire zero as the most significant bit. */
+	private final long index;
+	/** The number of wires in the circuit. */
+	private final int numberOfWires;
+	/** The probability of measuring the basis state. */
+	private final double probability;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param index         The basis state, with wire zero as the most significant
+	 *                      bit.
+	 * @param numberOfWires The number of wires in the circuit.
+	 * @param probability   The probability of measuring the basis state.
+	 */
+	public Outcome(final long index, final int numberOfWires, final double probability) {
+		this.index = index;
+		this.numberOfWires = numberOfWires;
+		this.probability = probability;
+	}
+
+	/**
+	 * @return The value of each wire, wire zero first.
+	 */
+	public String getBitString() {
+		StringBuilder returnValue = new StringBuilder(numberOfWires);
+		for (int wire = 0; wire < numberOfWires; ++wire) {
+			returnValue.append((index >>> (numberOfWires - 1 - wire)) & 1);
+		}
+		return returnValue.toString();
+	}
+
+	/**
+	 * @return The basis state, with wire zero as the most significant bit.
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return The probability of measuring the basis state.
+	 */
+	public double getProbability() {
+		return probability;
+	}
+
+	/**
+	 * @return The bit string and the probability.
+	 */
+	@Override
+	public String toString() {
+		return "|" + getBitString() + "> " + probability;
+	}
+}
@@ -0,0 +1,136 @@
+package model;
+
+/**
+ * Keeps the k most probable basis states seen so far in a min heap of
+ * primitives, so a scan of 2^n amplitudes costs O(2^n log k) with no boxing and
+ * no sort. Ties keep the lower basis state.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+final class OutcomeHeap {
+	/**
+	 * Orders entries from least to most worth keeping.
+	 * 
+	 * @param probability1 The probability of the first entry.
+	 * @param index1       The basis state of the first entry.
+	 * @param probability2 The probability of the second entry.
+	 * @param index2       The basis state of the second entry.
+	 * @return True if the first entry is worth less than the second.
+	 */
+	private static boolean less(final double probability1, final long index1, final double probability2,
+			final long index2) {
+		return probability1 < probability2 || probability1 == probability2 && index1 > index2;
+	}
+
+	/** The number of entries in the heap. */
+	private int count;
+	/** The basis state of each entry. */
+	private final long[] indexes;
+	/** The probability of each entry. The least probable entry is first. */
+	private final double[] probabilities;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity The number of entries to keep.
+	 */
+	OutcomeHeap(final int capacity) {
+		indexes = new long[capacity];
+		probabilities = new double[capacity];
+	}
+
+	/**
+	 * Adds the entries of another heap.
+	 * 
+	 * @param other The other heap.
+	 * @return This heap.
+	 */
+	OutcomeHeap merge(final OutcomeHeap other) {
+		for (int n = 0; n < other.count; ++n) {
+			offer(other.indexes[n], other.probabilities[n]);
+		}
+		return this;
+	}
+
+	/**
+	 * @param probability A probability.
+	 * @return True if an entry with the probability might be kept. Cheap enough to
+	 *         call before working out the basis state of an amplitude.
+	 */
+	boolean accepts(final double probability) {
+		return count < indexes.length || probability >= probabilities[0];
+	}
+
+	/**
+	 * Offers an entry, which replaces the least probable one when the heap is
+	 * full.
+	 * 
+	 * @param index       The basis state.
+	 * @param probability The probability of the basis state.
+	 */
+	void offer(final long index, final double probability) {
+		if (count < indexes.length) {
+			int child = count++;
+			// sift up.
+			while (child > 0 && less(probability, index, probabilities[(child - 1) / 2], indexes[(child - 1) / 2])) {
+				indexes[child] = indexes[(child - 1) / 2];
+				probabilities[child] = probabilities[(child - 1) / 2];
+				child = (child - 1) / 2;
+			}
+			indexes[child] = index;
+			probabilities[child] = probability;
+		} else if (count > 0 && less(probabilities[0], indexes[0], probability, index)) {
+			int parent = 0;
+			// sift down.
+			while (2 * parent + 1 < count) {
+				int child = 2 * parent + 1;
+				if (child + 1 < count
+						&& less(probabilities[child + 1], indexes[child + 1], probabilities[child], indexes[child])) {
+					++child;
+				}
+				if (!less(probabilities[child], indexes[child], probability, index)) {
+					break;
+				}
+				indexes[parent] = indexes[child];
+				probabilities[parent] = probabilities[child];
+				parent = child;
+			}
+			indexes[parent] = index;
+			probabilities[parent] = probability;
+		}
+	}
+
+	/**
+	 * Empties the heap into outcomes, most probable first.
+	 * 
+	 * @param numberOfWires The number of wires in the circuit.
+	 * @return The outcomes.
+	 */
+	Outcome[] drain(final int numberOfWires) {
+		Outcome[] returnValue = new Outcome[count];
+		for (int n = returnValue.length - 1; n >= 0; --n) {
+			returnValue[n] = new Outcome(indexes[0], numberOfWires, probabilities[0]);
+			--count;
+			long lastIndex = indexes[count];
+			double lastProbability = probabilities[count];
+			int parent = 0;
+			while (2 * parent + 1 < count) {
+				int child = 2 * parent + 1;
+				if (child + 1 < count
+						&& less(probabilities[child + 1], indexes[child + 1], probabilities[child], indexes[child])) {
+					++child;
+				}
+				if (!less(probabilities[child], indexes[child], lastProbability, lastIndex)) {
+					break;
+				}
+				indexes[parent] = indexes[child];
+				probabilities[parent] = probabilities[child];
+				parent = child;
+			}
+			indexes[parent] = lastIndex;
+			probabilities[parent] = lastProbability;
+		}
+		return returnValue;
+	}
+}
@@ -0,0 +1,155 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Quantum Fourier transform macro gate. Stands for the whole Hadamard and
+ * controlled phase ladder over its wires, and is applied as one fast Fourier
+ * transform by {@link FourierKernel}.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public class QftGate implements QuantumGate {
+	/** Serializable ID. */
+	private static final long serialVersionUID = 3316052174961880721L;
+	/** List of gates supported by this class. */
+	private static final List<String> gateTypes = new ArrayList<>(Arrays.asList("QFT", "IQFT"));
+	/** The gate type as a string. Should be filtered through the list above. */
+	private final String gateType;
+	/** The horizontal position of this gate on the circuit. Zero based. */
+	private final int gatePosition;
+	/**
+	 * The wires involved in this gate. The first is the most significant bit of
+	 * the transformed index.
+	 */
+	private final List<Integer> wires;
+	/** The lowest wire of this gate. Cached for collision checks. */
+	private final int minWire;
+	/** The highest wire of this gate. Cached for collision checks. */
+	private final int maxWire;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param type         The type of circuit.
+	 * @param gatePosition The horizontal position of the gate in the circuit. Zero
+	 *                     based.
+	 * @param wires        The wires involved in this gate. Must be distinct.
+	 */
+	public QftGate(final String type, final int gatePosition, final List<Integer> wires) {
+		if (!gateTypes.contains(type)) {
+			throw new IllegalArgumentException("That gate type is not supported.");
+		}
+		if (wires.isEmpty() || wires.stream().distinct().count() != wires.size()) {
+			throw new IllegalArgumentException("A Fourier transform needs distinct wires.");
+		}
+		gateType = type;
+		this.gatePosition = gatePosition;
+		this.wires = wires;
+		minWire = wires.stream().mapToInt(Integer::intValue).min().orElse(0);
+		maxWire = wires.stream().mapToInt(Integer::intValue).max().orElse(0);
+	}
+
+	/**
+	 * Clone to return a copy. Make sure to override gateType, gatePosition, and
+	 * wires.
+	 */
+	@Override
+	public QftGate clone() {
+		return new QftGate(gateType, gatePosition, wires);
+	}
+
+	/**
+	 * @param gatePosition The horizontal position of the copy.
+	 * @return a copy of this gate at another horizontal position.
+	 */
+	@Override
+	public QftGate withGatePosition(final int gatePosition) {
+		return new QftGate(gateType, gatePosition, wires);
+	}
+
+	/**
+	 * @return The Fourier kernel, so the dense matrix is never needed to simulate
+	 *         this gate.
+	 */
+	@Override
+	public GateKernel buildKernel() {
+		return new FourierKernel(wires.stream().mapToInt(Integer::intValue).toArray(), gateType.equals("IQFT"));
+	}
+
+	/**
+	 * Get the dense transform matrix over the gate wires. The matrix is shared with
+	 * every other gate of the same type and wires, so it must not be modified.
+	 */
+	@Override
+	public Complex[][] getGateMatrix() {
+		return GateMatrixRegistry.getInstance().getMatrix(this,
+				() -> GateMatrixRegistry.getInstance().getKernel(this).toMatrix());
+	}
+
+	/**
+	 * @return The gate type.
+	 */
+	@Override
+	public String getGateType() {
+		return gateType;
+	}
+
+	/**
+	 * @return a string representation of this gate.
+	 */
+	@Override
+	public String toString() {
+		return gateType;
+	}
+
+	/**
+	 * @return the horizontal gate position in the circuit.
+	 */
+	@Override
+	public int getGatePosition() {
+		return gatePosition;
+	}
+
+	/**
+	 * Compares two gates.
+	 */
+	@Override
+	public int compareTo(final QuantumGate arg0) {
+		return this.getMinWire() - arg0.getMinWire();
+	}
+
+	/**
+	 * @return the lowest wire associated with this gate.
+	 */
+	@Override
+	public int getMinWire() {
+		return minWire;
+	}
+
+	/**
+	 * @return the highest wire associated with this gate.
+	 */
+	@Override
+	public int getMaxWire() {
+		return maxWire;
+	}
+
+	/**
+	 * @return the wires associated with this gate.
+	 */
+	@Override
+	public List<Integer> getWires() {
+		return wires;
+	}
+
+	/**
+	 * @return A list of gate types supported by this class.
+	 */
+	public static List<String> getGateTypes() {
+		return gateTypes;
+	}
+}
@@ -0,0 +1,1305 @@
+package model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The main Quantum Circuit class for processing quantum circuits.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class QuantumCircuit implements Serializable {
+	/** Generated Serializable ID. */
+	private static final long serialVersionUID = 8646269267743668885L;
+
+	/**
+	 * The default number of wires from which the simulation relabels the wires for
+	 * memory locality, see {@link WireLayout#fromGates}. Smaller states fit in
+	 * cache anyway.
+	 */
+	public static final int RELABEL_THRESHOLD = 12;
+	/** The smallest number of amplitudes worth scanning on a thread of its own. */
+	private static final int TOP_K_CHUNK = 1 << 14;
+
+	/**
+	 * Multiply two complex gates.
+	 * 
+	 * @param matrix1 The first matrix to multiply.
+	 * @param matrix2 The second matrix to multiply.
+	 * @return The matrix product of the two.
+	 */
+	public static Complex[][] multiply(final Complex[][] matrix1, final Complex[][] matrix2) {
+		ComplexArray[] rows2 = new ComplexArray[matrix2.length];
+		for (int row = 0; row < matrix2.length; ++row) {
+			rows2[row] = ComplexArray.fromRow(matrix2[row]);
+		}
+		Complex[][] result = new Complex[matrix1.length][];
+		ComplexArray answerRow = new ComplexArray(matrix2[0].length);
+		for (int row = 0; row < matrix1.length; ++row) {
+			answerRow.scale(0, 0);
+			// accumulate row by row so zero entries of the left matrix cost nothing.
+			for (int rowColumnwalker = 0; rowColumnwalker < matrix1[0].length; ++rowColumnwalker) {
+				Complex factor = matrix1[row][rowColumnwalker];
+				answerRow.axpy(factor.getReal(), factor.getImaginary(), rows2[rowColumnwalker]);
+			}
+			result[row] = answerRow.toRow();
+		}
+		return result;
+	}
+
+	/**
+	 * @param state1 The first state on which to conduct the tensor product.
+	 * @param state2 The second state on which to conduct the tensor product.
+	 * @return The tensor product of the states.
+	 */
+	public static Complex[][] tensor(final Complex[][] state1, final Complex[][] state2) {
+		Complex[][] result = new Complex[state1.length * state2.length][state1[0].length * state2[0].length];
+		for (int rowMe = 0; rowMe < state1.length; ++rowMe) {
+			for (int columnMe = 0; columnMe < state1[0].length; ++columnMe) {
+				double real = state1[rowMe][columnMe].getReal();
+				double imaginary = state1[rowMe][columnMe].getImaginary();
+				for (int row2 = 0; row2 < state2.length; ++row2) {
+					for (int column2 = 0; column2 < state2[0].length; ++column2) {
+						int destinationRow = row2 + state2.length * rowMe;
+						int destinationColumn = column2 + state2.length * columnMe;
+						Complex other = state2[row2][column2];
+						result[destinationRow][destinationColumn] = Complex.valueOf(
+								real * other.getReal() - imaginary * other.getImaginary(),
+								imaginary * other.getReal() + real * other.getImaginary());
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The composite gates known to this circuit by name, each after the ones its
+	 * body uses.
+	 */
+	private final Map<String, CompositeGate.Definition> definitions = new LinkedHashMap<>();
+
+	/** The quantum gates associated with this circuit, in insertion order. */
+	private final Set<QuantumGate> gates = new LinkedHashSet<>();
+
+	/** Index of the gates by position and wire. Kept in step with the gate list. */
+	private final GateIndex gateIndex = new GateIndex();
+
+	/**
+	 * Cache of states for speed, least recently used first.
+	 */
+	private final Map<Integer, ComplexArray> stateTransposeCache = new LinkedHashMap<>(16, 0.75f, true);
+
+	/** The list of quantum wires associated with this circuit. */
+	private final List<QuantumWire> wires = new ArrayList<>();
+
+	/** The layout of the cached states. Chosen again whenever the cache is rebuilt. */
+	private WireLayout layout = WireLayout.identity(0);
+
+	/**
+	 * The schedule of each position in {@link #layout}, built once and dropped when
+	 * the position is edited or the layout is chosen again.
+	 */
+	private final Map<Integer, BlockedScheduler> columnSchedules = new HashMap<>();
+
+	/** Circuits with at least this many wires have their wires relabeled. */
+	private int relabelThreshold = RELABEL_THRESHOLD;
+
+	/** The largest number of states kept in the cache, the initial state included. */
+	private int maxCachedStates = Integer.MAX_VALUE;
+
+	/** The number of gates that are not NOT type gates, see {@link ReversibleSimulator}. */
+	private int irreversibleGates;
+
+	/**
+	 * The basis state before each position, for circuits simulated classically.
+	 * Dropped from the first edited position on.
+	 */
+	private final List<Long> reversibleStates = new ArrayList<>();
+
+	/** The initial basis state of {@link #reversibleStates}. */
+	private long reversibleStart = -1;
+
+	/**
+	 * The factorized state wide circuits try before the full state vector, see
+	 * {@link #getQubitProbabilities(int)}, or null. It continues from one position
+	 * to the next, so a sweep over the positions runs each gate once.
+	 */
+	private FactorizedState factorizedState;
+
+	/** The index position {@link #factorizedState} is at. */
+	private int factorizedPosition;
+
+	/** The initial values {@link #factorizedState} started from. */
+	private List<Qubit> factorizedStart;
+
+	/**
+	 * The first index position the factorized state grew too large for, so later
+	 * positions go straight to the state vector. {@link Integer#MAX_VALUE} until
+	 * it does.
+	 */
+	private int factorizedLimit = Integer.MAX_VALUE;
+
+	/**
+	 * Constructor. The circuit starts with no wires and no gates, see
+	 * {@link #setNumberOfQubits(int)}.
+	 */
+	public QuantumCircuit() {
+	}
+
+	/**
+	 * Adds a wire to the circuit.
+	 */
+	public void addWire() {
+		addWire(new QuantumWire());
+		stateTransposeCache.clear();
+	}
+
+	/**
+	 * Adds a wire to the circuit.
+	 * 
+	 * @param wire The wire to add.
+	 */
+	public void addWire(final QuantumWire wire) {
+		wires.add(wire);
+		stateTransposeCache.clear();
+		reversibleStates.clear();
+	}
+
+	/**
+	 * Copies the circuit without its cached states, so the copy can be simulated
+	 * on another thread while this circuit is edited.
+	 * 
+	 * @return A new circuit with the same wires and gates.
+	 */
+	public QuantumCircuit copy() {
+		QuantumCircuit returnValue = withGates(new ArrayList<>(gates));
+		returnValue.relabelThreshold = relabelThreshold;
+		returnValue.maxCachedStates = maxCachedStates;
+		return returnValue;
+	}
+
+	/**
+	 * Defines a composite gate for this circuit. Defining a name again is allowed
+	 * only with the same body, so a saved circuit never holds two bodies of one
+	 * name. Other circuits may define the name with another body.
+	 * 
+	 * @param name The gate type of the new gate.
+	 * @param body The subcircuit. Its wires are the local wires of the gate, and
+	 *             its initial values are ignored.
+	 * @return The definition, to place with
+	 *         {@link CompositeGate#CompositeGate(CompositeGate.Definition, int, int, List)}.
+	 */
+	public CompositeGate.Definition define(final String name, final QuantumCircuit body) {
+		return addDefinition(CompositeGate.define(name, body));
+	}
+
+	/**
+	 * Adds a definition and the definitions its body uses.
+	 * 
+	 * @param definition The definition to add.
+	 * @return The definition of that name known to this circuit.
+	 */
+	private CompositeGate.Definition addDefinition(final CompositeGate.Definition definition) {
+		CompositeGate.Definition existing = definitions.get(definition.getName());
+		if (existing != null) {
+			if (!existing.isSameAs(definition)) {
+				throw new IllegalArgumentException(definition.getName() + " is already defined with another body.");
+			}
+			return existing;
+		}
+		for (QuantumGate g : definition.getGates()) {
+			if (g instanceof CompositeGate) {
+				addDefinition(((CompositeGate) g).getDefinition());
+			}
+		}
+		definitions.put(definition.getName(), definition);
+		return definition;
+	}
+
+	/**
+	 * @param name A gate type.
+	 * @return The composite gate of that name defined for this circuit, or null.
+	 */
+	public CompositeGate.Definition getDefinition(final String name) {
+		return definitions.get(name);
+	}
+
+	/**
+	 * Algorithm to decide if two gates collide.
+	 * 
+	 * @param gate1 The first gate to check if it collides with gate2.
+	 * @param gate2 The second gate to check if it collides with gate1.
+	 * @return True if the gates collide or take competing positions.
+	 */
+	public boolean gatesCollide(final QuantumGate gate1, final QuantumGate gate2) {
+		if (gate1.getGatePosition() == gate2.getGatePosition()) {
+			return gate1.getMaxWire() >= gate2.getMinWire() && gate2.getMaxWire() >= gate1.getMinWire();
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the circuit as an xml file and puts it on the output stream.
+	 * 
+	 * @param output The output stream in which to load the xml file.
+	 * @throws ParserConfigurationException
+	 * @throws TransformerException
+	 */
+	public void getAsXML(final OutputStream output) throws ParserConfigurationException, TransformerException {
+		DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+		DocumentBuilder dBuilder;
+
+		// build the document
+		dBuilder = dbFactory.newDocumentBuilder();
+		Document doc = dBuilder.newDocument();
+		Element rootElement = doc.createElementNS("https://cberkstresser.name/QuantumWeb", "Circuit");
+		doc.appendChild(rootElement);
+
+		Element meta = doc.createElement("Meta");
+		meta.setAttribute("date", ZonedDateTime.now().toString());
+		rootElement.appendChild(meta);
+
+		Element initialState = doc.createElement("InitialState");
+		for (int n = 0; n < getWires().size(); ++n) {
+			Element qubit = doc.createElement("Qubit");
+			qubit.setAttribute("wire", String.valueOf(n));
+			qubit.setAttribute("xR", String.valueOf(getWires().get(n).getInitialValue().getX().getReal()));
+			qubit.setAttribute("xI", String.valueOf(getWires().get(n).getInitialValue().getX().getImaginary()));
+			qubit.setAttribute("yR", String.valueOf(getWires().get(n).getInitialValue().getY().getReal()));
+			qubit.setAttribute("yI", String.valueOf(getWires().get(n).getInitialValue().getY().getImaginary()));
+			initialState.appendChild(qubit);
+		}
+		rootElement.appendChild(initialState);
+
+		// composite gates are defined before they are used, nested ones first.
+		List<CompositeGate.Definition> compositeTypes = new ArrayList<>();
+		for (QuantumGate g : getGates()) {
+			addCompositeTypes(g, compositeTypes);
+		}
+		if (!compositeTypes.isEmpty()) {
+			Element definitionList = doc.createElement("Definitions");
+			for (CompositeGate.Definition compositeType : compositeTypes) {
+				Element definition = doc.createElement("Definition");
+				definition.setAttribute("name", compositeType.getName());
+				definition.setAttribute("wires", String.valueOf(compositeType.getNumberOfWires()));
+				for (QuantumGate g : compositeType.getGates()) {
+					definition.appendChild(toXML(doc, g));
+				}
+				definitionList.appendChild(definition);
+			}
+			rootElement.appendChild(definitionList);
+		}
+
+		Element gates = doc.createElement("Gates");
+		for (QuantumGate g : getGates()) {
+			gates.appendChild(toXML(doc, g));
+		}
+		rootElement.appendChild(gates);
+
+		// set up a transformer for dumping it to an output stream.
+		TransformerFactory transformerFactory = TransformerFactory.newInstance();
+		Transformer transformer = transformerFactory.newTransformer();
+		transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+		DOMSource source = new DOMSource(doc);
+
+		StreamResult result = new StreamResult(output);
+		transformer.transform(source, result);
+	}
+
+	/**
+	 * Adds the composite gate types a gate depends on, each after the types its own
+	 * body depends on.
+	 * 
+	 * @param gate  The gate to check.
+	 * @param types The composite gate types found so far. Updated in place.
+	 */
+	private static void addCompositeTypes(final QuantumGate gate, final List<CompositeGate.Definition> types) {
+		if (gate instanceof CompositeGate && !types.contains(((CompositeGate) gate).getDefinition())) {
+			CompositeGate.Definition definition = ((CompositeGate) gate).getDefinition();
+			for (QuantumGate g : definition.getGates()) {
+				addCompositeTypes(g, types);
+			}
+			types.add(definition);
+		}
+	}
+
+	/**
+	 * Writes one gate element.
+	 * 
+	 * @param doc The document the element belongs to.
+	 * @param g   The gate to write.
+	 * @return The gate element.
+	 */
+	private static Element toXML(final Document doc, final QuantumGate g) {
+		Element gate = doc.createElement("Gate");
+		gate.setAttribute("position", String.valueOf(g.getGatePosition()));
+		gate.setAttribute("gateType", g.getGateType());
+		if (g instanceof QuantumGateWithParameter) {
+			gate.setAttribute("parameterValue", String.valueOf(((QuantumGateWithParameter) g).getValue()));
+		} else {
+			gate.setAttribute("parameterValue", "0.0");
+		}
+
+		for (int w : g.getWires()) {
+			Element wire = doc.createElement("Wire");
+			wire.setTextContent(String.valueOf(w));
+			gate.appendChild(wire);
+		}
+		return gate;
+	}
+
+	/**
+	 * @param wire     The wire index to get.
+	 * @param position The position index to get.
+	 * @return a gate from the circuit by wire and position.
+	 */
+	public QuantumGate getGate(final int wire, final int position) {
+		return gateIndex.get(wire, position);
+	}
+
+	/**
+	 * @return A read only view of all gates from the circuit, in insertion order.
+	 *         Use setGate to change it. The view follows later edits, so copy it
+	 *         to keep the gates of one moment.
+	 */
+	public Collection<QuantumGate> getGates() {
+		return Collections.unmodifiableCollection(gates);
+	}
+
+	/**
+	 * @return The initial values of each wire in the circuit.
+	 */
+	public List<Qubit> getInitialValues() {
+		return wires.stream().map(QuantumWire::getStart).collect(Collectors.toList());
+	}
+
+	/**
+	 * @return The last position of the longest wire in the circuit.
+	 */
+	public int getMaxWireGatePosition() {
+		return gateIndex.getMaxPosition();
+	}
+
+	/**
+	 * @param afterIndex The index position of the state to get. Calculates the
+	 *                   state after all gates at that index position have ran.
+	 * @return A list of complex numbers associated with the probability of a qubit
+	 *         measuring one.
+	 */
+	public List<Complex> getQubitProbabilities(final int afterIndex) {
+		List<Complex> returnValue = new ArrayList<>();
+		long basisState = getReversibleOutput(afterIndex);
+		if (basisState != -1) {
+			for (int wire = 0; wire < wires.size(); ++wire) {
+				returnValue.add(new Complex((basisState >>> (wires.size() - 1 - wire)) & 1));
+			}
+			return returnValue;
+		}
+		if (wires.size() >= relabelThreshold && !stateTransposeCache.containsKey(afterIndex)) {
+			// wide circuits are often barely entangled, so try without the full state.
+			FactorizedState factorized = getFactorizedState(afterIndex);
+			if (factorized != null) {
+				for (int wire = 0; wire < wires.size(); ++wire) {
+					returnValue.add(new Complex(factorized.getProbability(wire)));
+				}
+				return returnValue;
+			}
+		}
+		return getQubitProbabilities(getLayoutState(afterIndex), layout);
+	}
+
+	/**
+	 * @param state       A state vector.
+	 * @param stateLayout The layout the state is indexed by.
+	 * @return The probability of each qubit measuring one.
+	 */
+	private List<Complex> getQubitProbabilities(final ComplexArray state, final WireLayout stateLayout) {
+		List<Complex> returnValue = new ArrayList<>();
+		for (int wire = 0; wire < wires.size(); ++wire) {
+			final int bit = stateLayout.getBit(wire);
+			double runningProbability = 0.0;
+			for (int row = 0; row < state.length(); ++row) {
+				if ((row & (1 << bit)) != 0) {
+					runningProbability += state.getReal(row) * state.getReal(row)
+							+ state.getImaginary(row) * state.getImaginary(row);
+				}
+			}
+			returnValue.add(new Complex(runningProbability));
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the probability of each qubit measuring one after all gates. Unlike
+	 * {@link #getQubitProbabilities(int)}, the states in between are not cached,
+	 * so only one state vector is kept, see {@link #getFinalState()}.
+	 * 
+	 * @return A list of complex numbers associated with the probability of a qubit
+	 *         measuring one.
+	 */
+	public List<Complex> getFinalQubitProbabilities() {
+		int position = getMaxWireGatePosition() + 1;
+		if (stateTransposeCache.containsKey(position) || isReversible()) {
+			return getQubitProbabilities(position);
+		}
+		List<QuantumGate> ordered = getOrderedGates(position);
+		FactorizedState factorized = new FactorizedState(getInitialValues());
+		int applied = applyFactorized(factorized, ordered);
+		if (applied == ordered.size()) {
+			List<Complex> returnValue = new ArrayList<>();
+			for (int wire = 0; wire < wires.size(); ++wire) {
+				returnValue.add(new Complex(factorized.getProbability(wire)));
+			}
+			return returnValue;
+		}
+		WireLayout finalLayout = chooseLayout();
+		ComplexArray state = factorized.toState(finalLayout);
+		new BlockedScheduler(ordered.subList(applied, ordered.size()), finalLayout).run(state);
+		return getQubitProbabilities(state, finalLayout);
+	}
+
+	/**
+	 * @param afterIndex The index position of the state to get. Calculates the
+	 *                   state after all gates at that index position have ran.
+	 * @return The state of the circuit at any index position.
+	 */
+	public Complex[][] getState(final int afterIndex) {
+		return getStateArray(afterIndex).toColumn();
+	}
+
+	/**
+	 * Gets the state in primitive form.
+	 * 
+	 * @param afterIndex The index position of the state to get.
+	 * @return The state of the circuit at the index position with wire zero as the
+	 *         most significant bit. May be shared with the cache, so it must not
+	 *         be modified.
+	 */
+	ComplexArray getStateArray(final int afterIndex) {
+		if (!stateTransposeCache.containsKey(afterIndex)) {
+			long basisState = getReversibleOutput(afterIndex);
+			if (basisState != -1) {
+				return basisStateArray(basisState);
+			}
+		}
+		ComplexArray state = getLayoutState(afterIndex);
+		return layout.toDefaultOrder(state);
+	}
+
+	/**
+	 * Gets the state in the layout of the cache. Each position is computed from the
+	 * closest cached position before it by applying the gate kernels of the
+	 * positions in between. The layout is chosen when the cache is empty.
+	 * 
+	 * @param afterIndex The index position of the state to get.
+	 * @return The state of the circuit at the index position, indexed by
+	 *         {@link #layout}. Shared with the cache, so it must not be modified.
+	 */
+	private ComplexArray getLayoutState(final int afterIndex) {
+		if (wires.stream().anyMatch(QuantumWire::isDirty)) {
+			stateTransposeCache.clear();
+			wires.forEach(QuantumWire::resetDirty);
+		}
+		int index = afterIndex;
+		while (index > 0 && !stateTransposeCache.containsKey(index)) {
+			--index;
+		}
+		ComplexArray state = stateTransposeCache.get(index);
+		if (state == null) { // afterIndex0 refers to the gates themselves
+			layout = chooseLayout();
+			columnSchedules.clear();
+			state = layout.fromDefaultOrder(getInitialState());
+			stateTransposeCache.put(0, state);
+		}
+		while (index < afterIndex) { // afterIndex1 refers to gates on gate position zero, etc.
+			state = state.copy();
+			columnSchedules.computeIfAbsent(index, position -> new BlockedScheduler(gateIndex.getColumn(position), layout))
+					.run(state);
+			++index;
+			stateTransposeCache.put(index, state);
+			trimCache();
+		}
+		return state;
+	}
+
+	/**
+	 * Gets a view of the state at a position that reads single amplitudes by basis
+	 * state, without building a {@link Complex} column or reordering the state.
+	 * 
+	 * @param position The index position of the state, as in
+	 *                 {@link #getState(int)}.
+	 * @return The view, which stays valid after the circuit changes.
+	 */
+	public StateView getStateView(final int position) {
+		if (!stateTransposeCache.containsKey(position)) {
+			long basisState = getReversibleOutput(position);
+			if (basisState != -1) {
+				return new StateView(basisState, wires.size());
+			}
+		}
+		return new StateView(getLayoutState(position), layout);
+	}
+
+	/**
+	 * Simulates the whole circuit without caching the states in between, so only
+	 * one state vector is kept instead of one per position. Runs of gates on low
+	 * order bits are applied block by block, see {@link BlockedScheduler}.
+	 * 
+	 * @return The state after all gates have ran.
+	 */
+	public Complex[][] getFinalState() {
+		return getFinalStateArray().toColumn();
+	}
+
+	/**
+	 * Gets the final state in primitive form, see {@link #getFinalState()}.
+	 * 
+	 * @return The state after all gates have ran with wire zero as the most
+	 *         significant bit.
+	 */
+	ComplexArray getFinalStateArray() {
+		long basisState = getReversibleOutput(getMaxWireGatePosition() + 1);
+		if (basisState != -1) {
+			return basisStateArray(basisState);
+		}
+		WireLayout finalLayout = chooseLayout();
+		List<QuantumGate> ordered = getOrderedGates(getMaxWireGatePosition() + 1);
+		FactorizedState factorized = new FactorizedState(getInitialValues());
+		int applied = applyFactorized(factorized, ordered);
+		ComplexArray state = factorized.toState(finalLayout);
+		new BlockedScheduler(ordered.subList(applied, ordered.size()), finalLayout).run(state);
+		return finalLayout.toDefaultOrder(state);
+	}
+
+	/**
+	 * Advances the shared factorized state to an index position, starting over
+	 * when the position lies behind it or the initial values changed.
+	 * 
+	 * @param afterIndex The index position of the state to get.
+	 * @return The factorized state at the position, or null if a subsystem grows
+	 *         past half of the wires on the way.
+	 */
+	private FactorizedState getFactorizedState(final int afterIndex) {
+		List<Qubit> start = getInitialValues();
+		if (!start.equals(factorizedStart)) {
+			factorizedStart = start;
+			factorizedState = null;
+			factorizedLimit = Integer.MAX_VALUE;
+		}
+		if (afterIndex >= factorizedLimit) {
+			return null;
+		}
+		if (factorizedState == null || factorizedPosition > afterIndex) {
+			factorizedState = new FactorizedState(start);
+			factorizedPosition = 0;
+		}
+		while (factorizedPosition < afterIndex) {
+			List<QuantumGate> column = gateIndex.getColumn(factorizedPosition);
+			if (applyFactorized(factorizedState, column) < column.size()) {
+				// the column is only partly applied, so the state cannot go on.
+				factorizedLimit = factorizedPosition + 1;
+				factorizedState = null;
+				return null;
+			}
+			++factorizedPosition;
+		}
+		return factorizedState;
+	}
+
+	/**
+	 * Applies gates to a factorized state for as long as no subsystem grows past
+	 * half of the wires. Beyond that the full state vector is cheaper.
+	 * 
+	 * @param factorized The state to update.
+	 * @param ordered    The gates in circuit order.
+	 * @return The number of gates applied.
+	 */
+	private int applyFactorized(final FactorizedState factorized, final List<QuantumGate> ordered) {
+		int applied = 0;
+		while (applied < ordered.size() && factorized.getMergedSize(ordered.get(applied)) <= wires.size() / 2) {
+			factorized.apply(ordered.get(applied));
+			++applied;
+		}
+		return applied;
+	}
+
+	/**
+	 * @param index A basis state index.
+	 * @return The state vector of the basis state.
+	 */
+	private ComplexArray basisStateArray(final long index) {
+		checkStateVectorSize();
+		ComplexArray returnValue = new ComplexArray(1 << wires.size());
+		returnValue.set((int) index, 1, 0);
+		return returnValue;
+	}
+
+	/**
+	 * @return The basis state the wires start in, or -1 if some wire starts in a
+	 *         superposition.
+	 */
+	private long getInitialBasisState() {
+		long returnValue = 0;
+		for (QuantumWire wire : wires) {
+			Complex x = wire.getInitialValue().getX();
+			Complex y = wire.getInitialValue().getY();
+			if (x.getReal() == 1 && x.getImaginary() == 0 && y.getReal() == 0 && y.getImaginary() == 0) {
+				returnValue <<= 1;
+			} else if (x.getReal() == 0 && x.getImaginary() == 0 && y.getReal() == 1 && y.getImaginary() == 0) {
+				returnValue = (returnValue << 1) | 1;
+			} else {
+				return -1;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Runs the circuit classically when it starts in a basis state and only holds
+	 * NOT type gates, see {@link ReversibleSimulator}.
+	 * 
+	 * @param afterIndex The index position of the state to get.
+	 * @return The basis state at the index position, or -1 if the circuit cannot
+	 *         be run classically.
+	 */
+	private long getReversibleOutput(final int afterIndex) {
+		if (!isReversible()) {
+			return -1;
+		}
+		long start = getInitialBasisState();
+		if (start != reversibleStart || reversibleStates.isEmpty()) {
+			reversibleStates.clear();
+			reversibleStates.add(start);
+			reversibleStart = start;
+		}
+		// each position continues from the one before it, so a sweep runs each gate once.
+		for (int position = reversibleStates.size(); position <= afterIndex; ++position) {
+			long previous = reversibleStates.get(position - 1);
+			reversibleStates
+					.add(new ReversibleSimulator(gateIndex.getColumn(position - 1), wires.size()).evaluate(previous));
+		}
+		return reversibleStates.get(afterIndex);
+	}
+
+	/**
+	 * @return A classical simulator of the whole circuit, see
+	 *         {@link #isReversible()}.
+	 */
+	public ReversibleSimulator getReversibleSimulator() {
+		return new ReversibleSimulator(getOrderedGates(getMaxWireGatePosition() + 1), wires.size());
+	}
+
+	/**
+	 * @return True if the circuit starts in a basis state and only holds NOT type
+	 *         gates, so it maps basis states onto basis states and is simulated
+	 *         classically.
+	 */
+	public boolean isReversible() {
+		return irreversibleGates == 0 && wires.size() < Long.SIZE - 1 && getInitialBasisState() != -1;
+	}
+
+	/**
+	 * @param beforePosition The first position to leave out.
+	 * @return The gates before the position in circuit order.
+	 */
+	private List<QuantumGate> getOrderedGates(final int beforePosition) {
+		List<QuantumGate> returnValue = new ArrayList<>();
+		for (int position = 0; position < beforePosition; ++position) {
+			returnValue.addAll(gateIndex.getColumn(position));
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @return The layout to simulate the circuit in, relabeled when the circuit is
+	 *         large enough.
+	 */
+	private WireLayout chooseLayout() {
+		if (wires.size() >= relabelThreshold) {
+			return WireLayout.fromGates(wires.size(), gates);
+		}
+		return WireLayout.identity(wires.size());
+	}
+
+	/**
+	 * Checks that the state vector of the circuit can be indexed, before it is
+	 * allocated.
+	 */
+	private void checkStateVectorSize() {
+		if (wires.size() > 30) {
+			throw new IllegalStateException("The state vector of " + wires.size() + " wires does not fit in an array.");
+		}
+	}
+
+	/**
+	 * @return The tensor product of the initial values of all wires.
+	 */
+	private ComplexArray getInitialState() {
+		checkStateVectorSize();
+		ComplexArray state = new ComplexArray(1);
+		state.set(0, 1, 0);
+		for (QuantumWire wire : wires) {
+			Complex x = wire.getInitialValue().getX();
+			Complex y = wire.getInitialValue().getY();
+			ComplexArray next = new ComplexArray(2 * state.length());
+			for (int n = 0; n < state.length(); ++n) {
+				double real = state.getReal(n);
+				double imaginary = state.getImaginary(n);
+				next.set(2 * n, real * x.getReal() - imaginary * x.getImaginary(),
+						imaginary * x.getReal() + real * x.getImaginary());
+				next.set(2 * n + 1, real * y.getReal() - imaginary * y.getImaginary(),
+						imaginary * y.getReal() + real * y.getImaginary());
+			}
+			state = next;
+		}
+		return state;
+	}
+
+	/**
+	 * @return The list of wires involved in this circuit.
+	 */
+	public List<QuantumWire> getWires() {
+		return wires;
+	}
+
+	/**
+	 * Loads the circuit from an xml file in an input stream.
+	 * 
+	 * @param xml The xml input stream to load.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public void loadFromXML(final InputStream xml) throws ParserConfigurationException, SAXException, IOException {
+		loadFromXML(parseXML(xml));
+	}
+
+	/**
+	 * Parses a circuit document without loading it. Circuits come from untrusted
+	 * sources such as {@code service.SimulationServer}, so document types are
+	 * refused and no external entity or DTD is ever read.
+	 * 
+	 * @param xml The xml input stream to parse.
+	 * @return The parsed document.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public static Document parseXML(final InputStream xml)
+			throws ParserConfigurationException, SAXException, IOException {
+		DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+		dbFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+		dbFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+		dbFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+		dbFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+		dbFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+		dbFactory.setXIncludeAware(false);
+		dbFactory.setExpandEntityReferences(false);
+		DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+		// throws fatal errors without also printing them.
+		dBuilder.setErrorHandler(new DefaultHandler());
+		return dBuilder.parse(xml);
+	}
+
+	/**
+	 * @param doc A parsed circuit document, see {@link #parseXML(InputStream)}.
+	 * @return The number of wires the circuit would have once loaded.
+	 */
+	public static int getWireCount(final Document doc) {
+		return doc.getElementsByTagName("Qubit").getLength();
+	}
+
+	/**
+	 * Loads the circuit from a parsed document, see {@link #parseXML(InputStream)}.
+	 * 
+	 * @param doc The parsed document.
+	 */
+	public void loadFromXML(final Document doc) {
+		gates.clear();
+		gateIndex.clear();
+		wires.clear();
+		definitions.clear();
+		columnSchedules.clear();
+		irreversibleGates = 0;
+		reversibleStates.clear();
+		factorizedState = null;
+		factorizedLimit = Integer.MAX_VALUE;
+
+		NodeList qubits = doc.getElementsByTagName("Qubit");
+		for (int n = 0; n < qubits.getLength(); ++n) {
+			Element qubit = (Element) qubits.item(n);
+			if (Integer.parseInt(qubit.getAttributes().getNamedItem("wire").getTextContent()) == n) {
+				double xR = Double.parseDouble(qubit.getAttributes().getNamedItem("xR").getTextContent());
+				double xI = Double.parseDouble(qubit.getAttributes().getNamedItem("xI").getTextContent());
+				double yR = Double.parseDouble(qubit.getAttributes().getNamedItem("yR").getTextContent());
+				double yI = Double.parseDouble(qubit.getAttributes().getNamedItem("yI").getTextContent());
+				addWire(new QuantumWire(new Complex(xR, xI), new Complex(yR, yI)));
+			} else {
+				throw new IllegalArgumentException("The file format is corrupted!");
+			}
+		}
+		NodeList definitionList = doc.getElementsByTagName("Definition");
+		for (int n = 0; n < definitionList.getLength(); ++n) {
+			Element definition = (Element) definitionList.item(n);
+			QuantumCircuit body = new QuantumCircuit();
+			body.setNumberOfQubits(Integer.parseInt(definition.getAttribute("wires")));
+			for (Element gate : getChildElements(definition, "Gate")) {
+				QuantumGate g = fromXML(gate);
+				if (g != null) {
+					// bodies may hold empty columns too, so their gates are not appended.
+					body.addGate(g);
+				}
+			}
+			define(definition.getAttribute("name"), body);
+		}
+		// only the direct children of Gates, since definitions hold gates as well.
+		NodeList gateLists = doc.getElementsByTagName("Gates");
+		for (int n = 0; n < gateLists.getLength(); ++n) {
+			for (Element gate : getChildElements((Element) gateLists.item(n), "Gate")) {
+				QuantumGate g = fromXML(gate);
+				if (g != null) {
+					// saved circuits may hold empty columns, so gates are not appended.
+					GateMatrixRegistry.getInstance().getKernel(g);
+					addGate(g);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Reads one gate element.
+	 * 
+	 * @param gate The gate element.
+	 * @return The gate, or null if the gate type is not known.
+	 */
+	private QuantumGate fromXML(final Element gate) {
+		String gateType = gate.getAttributes().getNamedItem("gateType").getTextContent();
+		double parameterValue = Double
+				.parseDouble(gate.getAttributes().getNamedItem("parameterValue").getTextContent());
+		int position = Integer.parseInt(gate.getAttributes().getNamedItem("position").getTextContent());
+		List<Integer> wires = new ArrayList<>();
+		NodeList wireList = gate.getElementsByTagName("Wire");
+		for (int w = 0; w < wireList.getLength(); ++w) {
+			wires.add(Integer.parseInt(wireList.item(w).getTextContent()));
+		}
+		return createGate(gateType, parameterValue, position, wires);
+	}
+
+	/**
+	 * Creates a gate of any supported type.
+	 * 
+	 * @param gateType       The gate type.
+	 * @param parameterValue The parameter of the gate, ignored by gates without
+	 *                       one. The number of repetitions of a composite gate.
+	 * @param position       The horizontal position of the gate.
+	 * @param wires          The wires of the gate.
+	 * @return The gate, or null if the gate type is not known to this circuit.
+	 */
+	private QuantumGate createGate(final String gateType, final double parameterValue, final int position,
+			final List<Integer> wires) {
+		if (SingleQuantumGate.getGateTypes().contains(gateType)) {
+			return new SingleQuantumGate(gateType, position, wires);
+		} else if (ControlledQuantumGate.getGateTypes().contains(gateType)) {
+			return new ControlledQuantumGate(gateType, position, wires);
+		} else if (SingleQuantumGateWithParameter.getGateTypes().contains(gateType)) {
+			return new SingleQuantumGateWithParameter(gateType, parameterValue, position, wires);
+		} else if (ControlledQuantumGateWithParameter.getGateTypes().contains(gateType)) {
+			return new ControlledQuantumGateWithParameter(gateType, parameterValue, position, wires);
+		} else if (QftGate.getGateTypes().contains(gateType)) {
+			return new QftGate(gateType, position, wires);
+		} else if (definitions.containsKey(gateType)) {
+			// composite gates saved before they could repeat have a parameter of zero.
+			return new CompositeGate(definitions.get(gateType), Math.max(1, (int) parameterValue), position, wires);
+		}
+		return null;
+	}
+
+	/**
+	 * @param parent  An element.
+	 * @param tagName The tag name to look for.
+	 * @return The direct children of the element with the tag name.
+	 */
+	private static List<Element> getChildElements(final Element parent, final String tagName) {
+		List<Element> returnValue = new ArrayList<>();
+		for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child instanceof Element && ((Element) child).getTagName().equals(tagName)) {
+				returnValue.add((Element) child);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Moves every gate to the earliest column its dependencies allow, see
+	 * {@link CircuitDag}. The final state is unchanged but usually takes fewer
+	 * columns to reach.
+	 * 
+	 * @return A new circuit with the same wires and the relayered gates.
+	 */
+	public QuantumCircuit relayered() {
+		return withGates(new CircuitDag(gates).getRelayeredGates());
+	}
+
+	/**
+	 * Removes the last wire from the circuit.
+	 */
+	public void removeLastWire() {
+		if (wires.size() > 0) {
+			wires.remove(wires.size() - 1);
+		}
+		removeGatesIf(x -> x.getWires().contains(wires.size()));
+		stateTransposeCache.clear();
+		reversibleStates.clear();
+	}
+
+	/**
+	 * Streams the amplitudes at a position straight from the cached state, without
+	 * building a {@link Complex} column or a second copy of the state. The stream
+	 * splits into chunks for parallel use.
+	 * 
+	 * @param position  The index position of the state, as in
+	 *                  {@link #getState(int)}.
+	 * @param threshold The smallest probability of a streamed amplitude. Zero
+	 *                  streams every amplitude.
+	 * @return The amplitudes, in the order of the state layout. Use
+	 *         {@link Amplitude#getIndex()} for the basis state.
+	 */
+	public Stream<Amplitude> amplitudes(final int position, final double threshold) {
+		return StreamSupport.stream(amplitudeSpliterator(position, threshold), false);
+	}
+
+	/**
+	 * @param position  The index position of the state, as in
+	 *                  {@link #getState(int)}.
+	 * @param threshold The smallest probability of a traversed amplitude.
+	 * @return A splittable traversal of the amplitudes, see
+	 *         {@link #amplitudes(int, double)}.
+	 */
+	public AmplitudeSpliterator amplitudeSpliterator(final int position, final double threshold) {
+		if (!stateTransposeCache.containsKey(position)) {
+			long basisState = getReversibleOutput(position);
+			if (basisState != -1) {
+				return new AmplitudeSpliterator(basisState, threshold);
+			}
+		}
+		return new AmplitudeSpliterator(getLayoutState(position), layout, threshold);
+	}
+
+	/**
+	 * Finds the most probable basis states at a position without sorting the
+	 * whole state. Chunks of the state are scanned in parallel into bounded min
+	 * heaps, which are then merged.
+	 * 
+	 * @param k        The number of basis states to return.
+	 * @param position The index position of the state, as in
+	 *                 {@link #getState(int)}.
+	 * @return A new list of up to k outcomes, most probable first. Ties keep the
+	 *         lower basis state.
+	 */
+	public List<Outcome> topK(final int k, final int position) {
+		if (k < 1) {
+			return new ArrayList<>();
+		}
+		if (!stateTransposeCache.containsKey(position)) {
+			long basisState = getReversibleOutput(position);
+			if (basisState != -1) {
+				List<Outcome> returnValue = new ArrayList<>();
+				returnValue.add(new Outcome(basisState, wires.size(), 1.0));
+				return returnValue;
+			}
+		}
+		ComplexArray state = getLayoutState(position);
+		WireLayout stateLayout = layout;
+		int chunks = (int) Math.max(1,
+				Math.min(state.length() / TOP_K_CHUNK, 4L * Runtime.getRuntime().availableProcessors()));
+		IntStream chunkStream = IntStream.range(0, chunks);
+		if (chunks > 1) {
+			chunkStream = chunkStream.parallel();
+		}
+		OutcomeHeap heap = chunkStream.mapToObj(chunk -> {
+			OutcomeHeap chunkHeap = new OutcomeHeap(Math.min(k, state.length()));
+			int end = (int) ((long) state.length() * (chunk + 1) / chunks);
+			for (int index = (int) ((long) state.length() * chunk / chunks); index < end; ++index) {
+				double probability = state.getReal(index) * state.getReal(index)
+						+ state.getImaginary(index) * state.getImaginary(index);
+				if (chunkHeap.accepts(probability)) {
+					chunkHeap.offer(stateLayout.toDefaultIndex(index), probability);
+				}
+			}
+			return chunkHeap;
+		}).reduce(OutcomeHeap::merge).get();
+		return new ArrayList<>(Arrays.asList(heap.drain(wires.size())));
+	}
+
+	/**
+	 * Replaces the gates of a segment of columns by one composite gate that
+	 * repeats them. The segment is defined as a composite gate over the wires it
+	 * spans, so the repetitions are simulated from its compiled body instead of
+	 * being laid out gate by gate. Later gates move left to close the gap.
+	 * 
+	 * @param name          The gate type to define for the segment.
+	 * @param firstPosition The first column of the segment.
+	 * @param lastPosition  The last column of the segment, included.
+	 * @param repetitions   The number of times the segment is applied.
+	 * @return The gate that replaced the segment.
+	 */
+	public CompositeGate repeatSegment(final String name, final int firstPosition, final int lastPosition,
+			final int repetitions) {
+		List<QuantumGate> segment = gates.stream()
+				.filter(g -> g.getGatePosition() >= firstPosition && g.getGatePosition() <= lastPosition)
+				.sorted(Comparator.comparingInt(QuantumGate::getGatePosition)).collect(Collectors.toList());
+		if (segment.isEmpty()) {
+			throw new IllegalArgumentException("There are no gates to repeat in that segment.");
+		}
+		int minWire = segment.stream().mapToInt(QuantumGate::getMinWire).min().getAsInt();
+		int maxWire = segment.stream().mapToInt(QuantumGate::getMaxWire).max().getAsInt();
+		// shifting every wire by the same amount keeps each gate layout valid, and
+		// empty columns are dropped.
+		List<Integer> columns = segment.stream().map(QuantumGate::getGatePosition).distinct()
+				.collect(Collectors.toList());
+		QuantumCircuit body = new QuantumCircuit();
+		body.setNumberOfQubits(maxWire - minWire + 1);
+		for (QuantumGate g : segment) {
+			body.setGate(createGate(g.getGateType(),
+					g instanceof QuantumGateWithParameter ? ((QuantumGateWithParameter) g).getValue() : 0.0,
+					columns.indexOf(g.getGatePosition()),
+					g.getWires().stream().map(w -> w - minWire).collect(Collectors.toList())));
+		}
+		CompositeGate.Definition definition = define(name, body);
+		List<Integer> compositeWires = new ArrayList<>();
+		for (int wire = minWire; wire <= maxWire; ++wire) {
+			compositeWires.add(wire);
+		}
+		CompositeGate returnValue = new CompositeGate(definition, repetitions, firstPosition, compositeWires);
+		List<QuantumGate> later = gates.stream().filter(g -> g.getGatePosition() > lastPosition)
+				.sorted(Comparator.comparingInt(QuantumGate::getGatePosition)).collect(Collectors.toList());
+		removeGatesIf(g -> g.getGatePosition() >= firstPosition);
+		// added past any gap before or after the segment, which setGate would refuse.
+		addGate(returnValue);
+		for (QuantumGate g : later) {
+			addGate(g.withGatePosition(g.getGatePosition() - (lastPosition - firstPosition)));
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Removes the gates matching a condition from both the gate list and the index.
+	 * 
+	 * @param condition The condition of the gates to remove.
+	 */
+	private void removeGatesIf(final Predicate<QuantumGate> condition) {
+		for (QuantumGate gate : gates.stream().filter(condition).collect(Collectors.toList())) {
+			removeGate(gate);
+		}
+	}
+
+	/**
+	 * Adds a gate to the gate list and the index. The schedule of its position and
+	 * the classical and factorized states from its position on are dropped.
+	 * 
+	 * @param gate The gate to add.
+	 */
+	private void insertGate(final QuantumGate gate) {
+		gates.add(gate);
+		gateIndex.add(gate);
+		if (!ReversibleSimulator.isReversible(gate)) {
+			++irreversibleGates;
+		}
+		columnSchedules.remove(gate.getGatePosition());
+		dropDerivedStates(gate.getGatePosition());
+	}
+
+	/**
+	 * Removes a gate from the gate list and the index. The schedule of its position
+	 * and the classical and factorized states from its position on are dropped.
+	 * 
+	 * @param gate The gate to remove.
+	 */
+	private void removeGate(final QuantumGate gate) {
+		gates.remove(gate);
+		gateIndex.remove(gate);
+		if (!ReversibleSimulator.isReversible(gate)) {
+			--irreversibleGates;
+		}
+		columnSchedules.remove(gate.getGatePosition());
+		dropDerivedStates(gate.getGatePosition());
+	}
+
+	/**
+	 * Drops the classical and factorized states that depend on a position.
+	 * 
+	 * @param position The edited position.
+	 */
+	private void dropDerivedStates(final int position) {
+		if (reversibleStates.size() > position + 1) {
+			reversibleStates.subList(position + 1, reversibleStates.size()).clear();
+		}
+		if (factorizedPosition > position) {
+			factorizedState = null;
+		}
+		if (factorizedLimit > position) {
+			factorizedLimit = Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Adds a gate wherever it is, unlike {@link #setGate(QuantumGate)}, which only
+	 * appends up to one column past the last gate. Used to rebuild gates that
+	 * already formed a circuit, where columns left empty by removed gates must not
+	 * drop the gates after them. Conflicting gates at that position are removed.
+	 * 
+	 * @param gate The gate to add. Its kernel must be known to compile.
+	 */
+	private void addGate(final QuantumGate gate) {
+		if (gate instanceof CompositeGate) {
+			addDefinition(((CompositeGate) gate).getDefinition());
+		}
+		for (QuantumGate colliding : gateIndex.getColliding(gate)) {
+			removeGate(colliding);
+		}
+		if (!gate.getGateType().equals("I")) {
+			insertGate(gate);
+		}
+	}
+
+	/**
+	 * Sets a gate to the circuit. Will remove any conflicting gates at that
+	 * position.
+	 * 
+	 * @param gate The new gate to set.
+	 */
+	public void setGate(final QuantumGate gate) {
+		if (gate instanceof CompositeGate) {
+			addDefinition(((CompositeGate) gate).getDefinition());
+		}
+		int maxStateCached = stateTransposeCache.keySet().stream().max(Comparator.naturalOrder()).orElse(0);
+		for (int state = gate.getGatePosition(); state <= maxStateCached; ++state) {
+			stateTransposeCache.remove(state);
+		}
+
+		for (QuantumGate colliding : gateIndex.getColliding(gate)) {
+			removeGate(colliding);
+		}
+
+		GateMatrixRegistry.getInstance().getKernel(gate);
+		if (!gate.getGateType().equals("I") && gate.getGatePosition() < getMaxWireGatePosition() + 2) {
+			insertGate(gate);
+		}
+
+	}
+
+	/**
+	 * Drops the least recently used states other than the initial state until the
+	 * cache fits {@link #maxCachedStates}.
+	 */
+	private void trimCache() {
+		Iterator<Integer> positions = stateTransposeCache.keySet().iterator();
+		while (stateTransposeCache.size() > maxCachedStates && positions.hasNext()) {
+			if (positions.next() != 0) {
+				positions.remove();
+			}
+		}
+	}
+
+	/**
+	 * Builds a circuit with the same wires as this one and other gates.
+	 * 
+	 * @param newGates The gates of the new circuit.
+	 * @return The new circuit.
+	 */
+	QuantumCircuit withGates(final List<QuantumGate> newGates) {
+		QuantumCircuit returnValue = new QuantumCircuit();
+		for (QuantumWire wire : wires) {
+			returnValue.addWire(new QuantumWire(wire.getInitialValue().getX(), wire.getInitialValue().getY()));
+		}
+		returnValue.definitions.putAll(definitions);
+		for (QuantumGate gate : newGates) {
+			returnValue.addGate(gate);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Limits the number of states kept in the cache. The least recently used
+	 * states are dropped first, except the initial state, and are computed again
+	 * from the closest cached state before them when needed.
+	 * 
+	 * @param maxCachedStates The largest number of cached states, at least two.
+	 *                        {@link Integer#MAX_VALUE} keeps every state.
+	 */
+	public void setMaxCachedStates(final int maxCachedStates) {
+		if (maxCachedStates < 2) {
+			throw new IllegalArgumentException("At least two states must be cached.");
+		}
+		this.maxCachedStates = maxCachedStates;
+		trimCache();
+	}
+
+	/**
+	 * Sets the number of wires from which the simulation relabels the wires for
+	 * memory locality. The results do not depend on it.
+	 * 
+	 * @param relabelThreshold The smallest number of wires to relabel. Zero
+	 *                         always relabels, {@link Integer#MAX_VALUE} never
+	 *                         does.
+	 */
+	public void setRelabelThreshold(final int relabelThreshold) {
+		this.relabelThreshold = relabelThreshold;
+		stateTransposeCache.clear();
+	}
+
+	/**
+	 * Sets the number of qubits and preserves existing ones if possible.
+	 * 
+	 * @param numberOfQubits The number of qubits for the circuit to have.
+	 */
+	public void setNumberOfQubits(final int numberOfQubits) {
+		while (wires.size() < numberOfQubits) {
+			addWire(new QuantumWire());
+		}
+		while (wires.size() > numberOfQubits) {
+			removeLastWire();
+		}
+	}
+}
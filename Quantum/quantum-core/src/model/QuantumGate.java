@@ -16,17 +16,46 @@ public interface QuantumGate extends Comparable<QuantumGate>, Serializable {
 	 */
 	List<Integer> getWires();
 
+	/**
+	 * @return The lowest wire associated with this gate.
+	 */
+	int getMinWire();
+
+	/**
+	 * @return The highest wire associated with this gate.
+	 */
+	int getMaxWire();
+
 	/**
 	 * @return The gates position horizontally in the circuit.
 	 */
 	int getGatePosition();
 
+	/**
+	 * @param gatePosition The horizontal position of the copy.
+	 * @return A copy of this gate at another position.
+	 */
+	QuantumGate withGatePosition(int gatePosition);
+
 	/** @return The gate type. */
 	String getGateType();
 
 	/** @return The mathematical matrix associated with this gate. */
 	Complex[][] getGateMatrix();
 
+	/**
+	 * @return A kernel applying this gate without building its dense matrix, or
+	 *         null to compile the kernel from {@link #getGateMatrix()}.
+	 */
+	default GateKernel buildKernel() {
+		return null;
+	}
+
+	/** @return The shape of the gate matrix, which decides how it is applied. */
+	default GateKind getKind() {
+		return GateMatrixRegistry.getInstance().getKernel(this).getKind();
+	}
+
 	/** @return The identity matrix. */
 	static Complex[][] getIdentityMatrix() {
 		return new Complex[][] { { new Complex(1), new Complex(0) }, { new Complex(0), new Complex(1) } };
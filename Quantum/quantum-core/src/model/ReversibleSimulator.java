@@ -0,0 +1,264 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Classical simulator for circuits made only of NOT type gates, which map basis
+ * states onto basis states. Each wire is held as a 64 bit word, one bit per
+ * input, so a gate flips its target for 64 inputs at once with a few bitwise
+ * operations instead of touching a 2^wires state vector per input.
+ * 
+ * Inputs and outputs are basis state indexes with wire zero as the most
+ * significant bit, as in {@link QuantumCircuit#getState(int)}.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class ReversibleSimulator {
+	/** The number of inputs evaluated together. */
+	public static final int LANES = Long.SIZE;
+	/** The gate types that can be simulated classically. */
+	private static final List<String> REVERSIBLE_TYPES = new ArrayList<>(
+			Arrays.asList("X", "CNOT", "C0NOT", "CCNOT", "CC00NOT", "CCCNOT", "CCC000NOT"));
+
+	/**
+	 * Checks if a gate only flips one wire depending on the others.
+	 * 
+	 * @param gate The gate to check.
+	 * @return True if the gate can be simulated classically.
+	 */
+	public static boolean isReversible(final QuantumGate gate) {
+		return REVERSIBLE_TYPES.contains(gate.getGateType()) && toFlip(gate) != null;
+	}
+
+	/**
+	 * @param gates The gates to check.
+	 * @return True if every gate can be simulated classically.
+	 */
+	public static boolean isReversible(final Collection<QuantumGate> gates) {
+		return gates.stream().allMatch(ReversibleSimulator::isReversible);
+	}
+
+	/**
+	 * Reads a gate as a flip of one target wire. The condition comes from the gate
+	 * kernel, so it follows the gate matrix exactly.
+	 * 
+	 * @param gate The gate to read.
+	 * @return The flip, or null if the gate does more than flip one wire.
+	 */
+	private static Flip toFlip(final QuantumGate gate) {
+		GateKernel kernel = GateMatrixRegistry.getInstance().getKernel(gate);
+		if (kernel.getKind() != GateKind.PERMUTATION) {
+			return null;
+		}
+		int[] kernelWires = kernel.getWires();
+		int size = 1 << kernelWires.length;
+		int flippedBit = -1;
+		List<Integer> conditions = new ArrayList<>();
+		for (int local = 0; local < size; ++local) {
+			int moved = local ^ kernel.getPermutedColumn(local);
+			if (moved == 0) {
+				continue;
+			}
+			if (Integer.bitCount(moved) != 1 || flippedBit != -1 && moved != 1 << flippedBit) {
+				return null;
+			}
+			flippedBit = Integer.numberOfTrailingZeros(moved);
+			if ((local & moved) == 0) {
+				conditions.add(local);
+			}
+		}
+		if (flippedBit == -1) {
+			return new Flip(-1, new int[0], new int[0]);
+		}
+		int target = kernelWires[kernelWires.length - 1 - flippedBit];
+		int[] controls = new int[kernelWires.length - 1];
+		int[] controlBits = new int[kernelWires.length - 1];
+		for (int n = 0, control = 0; n < kernelWires.length; ++n) {
+			int bit = kernelWires.length - 1 - n;
+			if (bit != flippedBit) {
+				controls[control] = kernelWires[n];
+				controlBits[control] = bit;
+				++control;
+			}
+		}
+		// each condition is the pattern of control values that flips the target.
+		int[] patterns = new int[conditions.size()];
+		for (int n = 0; n < conditions.size(); ++n) {
+			for (int control = 0; control < controls.length; ++control) {
+				if ((conditions.get(n) & (1 << controlBits[control])) != 0) {
+					patterns[n] |= 1 << control;
+				}
+			}
+		}
+		return new Flip(target, controls, patterns);
+	}
+
+	/** The gates as flips, in circuit order. */
+	private final List<Flip> flips = new ArrayList<>();
+	/** The number of wires in the circuit. */
+	private final int numberOfWires;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param gates         The gates in circuit order. All must be reversible, see
+	 *                      {@link #isReversible(QuantumGate)}.
+	 * @param numberOfWires The number of wires in the circuit.
+	 */
+	public ReversibleSimulator(final List<QuantumGate> gates, final int numberOfWires) {
+		if (numberOfWires >= Long.SIZE) {
+			throw new IllegalArgumentException("Basis states of " + numberOfWires + " wires do not fit in a long.");
+		}
+		this.numberOfWires = numberOfWires;
+		for (QuantumGate gate : gates) {
+			Flip flip = REVERSIBLE_TYPES.contains(gate.getGateType()) ? toFlip(gate) : null;
+			if (flip == null) {
+				throw new IllegalArgumentException(gate.getGateType() + " is not a reversible classical gate.");
+			}
+			if (flip.target != -1) {
+				flips.add(flip);
+			}
+		}
+	}
+
+	/**
+	 * Evaluates one input.
+	 * 
+	 * @param input The input basis state.
+	 * @return The output basis state.
+	 */
+	public long evaluate(final long input) {
+		long[] lanes = new long[numberOfWires];
+		for (int wire = 0; wire < numberOfWires; ++wire) {
+			lanes[wire] = -((input >>> (numberOfWires - 1 - wire)) & 1);
+		}
+		run(lanes);
+		long returnValue = 0;
+		for (int wire = 0; wire < numberOfWires; ++wire) {
+			returnValue = (returnValue << 1) | (lanes[wire] & 1);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Evaluates many inputs, 64 at a time.
+	 * 
+	 * @param inputs The input basis states.
+	 * @return The output basis state for each input.
+	 */
+	public long[] evaluate(final long[] inputs) {
+		long[] returnValue = new long[inputs.length];
+		long[] lanes = new long[numberOfWires];
+		for (int start = 0; start < inputs.length; start += LANES) {
+			int count = Math.min(LANES, inputs.length - start);
+			Arrays.fill(lanes, 0);
+			for (int lane = 0; lane < count; ++lane) {
+				for (int wire = 0; wire < numberOfWires; ++wire) {
+					lanes[wire] |= ((inputs[start + lane] >>> (numberOfWires - 1 - wire)) & 1) << lane;
+				}
+			}
+			run(lanes);
+			for (int lane = 0; lane < count; ++lane) {
+				long output = 0;
+				for (int wire = 0; wire < numberOfWires; ++wire) {
+					output = (output << 1) | ((lanes[wire] >>> lane) & 1);
+				}
+				returnValue[start + lane] = output;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @return The number of wires in the circuit.
+	 */
+	public int getNumberOfWires() {
+		return numberOfWires;
+	}
+
+	/**
+	 * Runs the circuit on packed inputs. Bit i of every word belongs to input i.
+	 * 
+	 * @param lanes One word per wire. Updated in place.
+	 */
+	public void run(final long[] lanes) {
+		for (Flip flip : flips) {
+			long condition = 0;
+			for (int pattern : flip.patterns) {
+				long match = -1L;
+				for (int control = 0; control < flip.controls.length; ++control) {
+					long word = lanes[flip.controls[control]];
+					match &= (pattern & (1 << control)) != 0 ? word : ~word;
+				}
+				condition |= match;
+			}
+			lanes[flip.target] ^= condition;
+		}
+	}
+
+	/**
+	 * Evaluates every input of the circuit.
+	 * 
+	 * @return The output basis state for each input basis state, indexed by input.
+	 */
+	public long[] truthTable() {
+		if (numberOfWires > 30) {
+			throw new IllegalStateException("The truth table of " + numberOfWires + " wires does not fit in an array.");
+		}
+		// bit i of the input of lane i: the same masks every 64 inputs.
+		final long[] lowBitMasks = { 0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+				0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L };
+		long[] returnValue = new long[1 << numberOfWires];
+		long[] lanes = new long[numberOfWires];
+		for (int start = 0; start < returnValue.length; start += LANES) {
+			for (int wire = 0; wire < numberOfWires; ++wire) {
+				int bit = numberOfWires - 1 - wire;
+				if (bit < lowBitMasks.length) {
+					lanes[wire] = lowBitMasks[bit];
+				} else {
+					lanes[wire] = -((start >>> bit) & 1);
+				}
+			}
+			run(lanes);
+			int count = Math.min(LANES, returnValue.length - start);
+			for (int lane = 0; lane < count; ++lane) {
+				long output = 0;
+				for (int wire = 0; wire < numberOfWires; ++wire) {
+					output = (output << 1) | ((lanes[wire] >>> lane) & 1);
+				}
+				returnValue[start + lane] = output;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * A gate read as a flip of its target wire whenever its controls match one of
+	 * a set of patterns.
+	 */
+	private static final class Flip {
+		/** The control wires. */
+		private final int[] controls;
+		/** Bit n of a pattern is the value control n must have. */
+		private final int[] patterns;
+		/** The flipped wire, or -1 for a gate that changes nothing. */
+		private final int target;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param target   The flipped wire.
+		 * @param controls The control wires.
+		 * @param patterns The control values that flip the target.
+		 */
+		private Flip(final int target, final int[] controls, final int[] patterns) {
+			this.target = target;
+			this.controls = controls;
+			this.patterns = patterns;
+		}
+	}
+}
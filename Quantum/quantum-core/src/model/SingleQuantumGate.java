@@ -1,6 +1,5 @@
 package model;
 
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +38,10 @@ public class SingleQuantumGate implements QuantumGate {
 	 * controls.
 	 */
 	private final List<Integer> wires;
+	/** The lowest wire of this gate. Cached for collision checks. */
+	private final int minWire;
+	/** The highest wire of this gate. Cached for collision checks. */
+	private final int maxWire;
 
 	/**
 	 * Constructor.
@@ -52,6 +55,8 @@ public class SingleQuantumGate implements QuantumGate {
 		gateType = type;
 		this.gatePosition = gatePosition;
 		this.wires = wires;
+		minWire = wires.stream().mapToInt(Integer::intValue).min().orElse(0);
+		maxWire = wires.stream().mapToInt(Integer::intValue).max().orElse(0);
 	}
 
 	/**
@@ -63,6 +68,15 @@ public class SingleQuantumGate implements QuantumGate {
 		return new SingleQuantumGate(gateType, gatePosition, wires);
 	}
 
+	/**
+	 * @param gatePosition The horizontal position of the copy.
+	 * @return a copy of this gate at another horizontal position.
+	 */
+	@Override
+	public SingleQuantumGate withGatePosition(final int gatePosition) {
+		return new SingleQuantumGate(gateType, gatePosition, wires);
+	}
+
 	/**
 	 * Get the gate matrix for each gate. Must be done for each gate you accept as
 	 * well as each wire configuration you wish to support for each gate.
@@ -104,8 +118,23 @@ public class SingleQuantumGate implements QuantumGate {
 	 */
 	@Override
 	public int compareTo(final QuantumGate arg0) {
-		return this.getWires().stream().min(Comparator.naturalOrder()).orElse(0)
-				- arg0.getWires().stream().min(Comparator.naturalOrder()).orElse(0);
+		return this.getMinWire() - arg0.getMinWire();
+	}
+
+	/**
+	 * @return the lowest wire associated with this gate.
+	 */
+	@Override
+	public int getMinWire() {
+		return minWire;
+	}
+
+	/**
+	 * @return the highest wire associated with this gate.
+	 */
+	@Override
+	public int getMaxWire() {
+		return maxWire;
 	}
 
 	/**
@@ -2,7 +2,6 @@ package model;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -25,6 +24,10 @@ public class SingleQuantumGateWithParameter implements QuantumGateWithParameter
 	 * controls.
 	 */
 	private final List<Integer> wires;
+	/** The lowest wire of this gate. Cached for collision checks. */
+	private final int minWire;
+	/** The highest wire of this gate. Cached for collision checks. */
+	private final int maxWire;
 	/**
 	 * The value associated with this quantum gate.
 	 */
@@ -45,6 +48,8 @@ public class SingleQuantumGateWithParameter implements QuantumGateWithParameter
 		this.value = value;
 		this.gatePosition = gatePosition;
 		this.wires = wires;
+		minWire = wires.stream().mapToInt(Integer::intValue).min().orElse(0);
+		maxWire = wires.stream().mapToInt(Integer::intValue).max().orElse(0);
 	}
 
 	/**
@@ -57,11 +62,30 @@ public class SingleQuantumGateWithParameter implements QuantumGateWithParameter
 	}
 
 	/**
-	 * Get the gate matrix for each gate. Must be done for each gate you accept as
-	 * well as each wire configuration you wish to support for each gate.
+	 * @param gatePosition The horizontal position of the copy.
+	 * @return a copy of this gate at another horizontal position.
+	 */
+	@Override
+	public SingleQuantumGateWithParameter withGatePosition(final int gatePosition) {
+		return new SingleQuantumGateWithParameter(gateType, value, gatePosition, wires);
+	}
+
+	/**
+	 * Get the gate matrix for each gate. The matrix is shared with every other gate
+	 * of the same type, wires and parameter, so it must not be modified.
 	 */
 	@Override
 	public Complex[][] getGateMatrix() {
+		return GateMatrixRegistry.getInstance().getMatrix(this, this::buildGateMatrix);
+	}
+
+	/**
+	 * Build the gate matrix for each gate. Must be done for each gate you accept as
+	 * well as each wire configuration you wish to support for each gate.
+	 * 
+	 * @return A new matrix for this gate.
+	 */
+	private Complex[][] buildGateMatrix() {
 		switch (gateType) {
 		case "Rx":
 			return new Complex[][] { { new Complex(Math.cos(value / 2), 0), new Complex(0, -Math.sin(value / 2)) },
@@ -116,8 +140,23 @@ public class SingleQuantumGateWithParameter implements QuantumGateWithParameter
 	 */
 	@Override
 	public int compareTo(final QuantumGate arg0) {
-		return this.getWires().stream().min(Comparator.naturalOrder()).orElse(0)
-				- arg0.getWires().stream().min(Comparator.naturalOrder()).orElse(0);
+		return this.getMinWire() - arg0.getMinWire();
+	}
+
+	/**
+	 * @return the lowest wire associated with this gate.
+	 */
+	@Override
+	public int getMinWire() {
+		return minWire;
+	}
+
+	/**
+	 * @return the highest wire associated with this gate.
+	 */
+	@Override
+	public int getMaxWire() {
+		return maxWire;
 	}
 
 	/**
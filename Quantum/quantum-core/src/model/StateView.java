@@ -0,0 +1,102 @@
+package model;
+
+/**
+ * Reads single amplitudes of the state at one position by basis state, without
+ * reordering or copying the state vector. The view shares the cached state of
+ * the circuit, which is never modified once cached, so it can be read on any
+ * thread while the circuit goes on simulating.
+ *
+ * @author cdberkstresser
+ *
+ */
+public final class StateView {
+	/** The only basis state of a basis state vector, or -1. */
+	private final long basisState;
+	/** The layout the state is indexed by, or null for a single basis state. */
+	private final WireLayout layout;
+	/** The number of wires in the circuit. */
+	private final int numberOfWires;
+	/** The state vector, or null for a single basis state. Never modified. */
+	private final ComplexArray state;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param state  The state vector. Must not change while the view is used.
+	 * @param layout The layout the state is indexed by.
+	 */
+	StateView(final ComplexArray state, final WireLayout layout) {
+		this.state = state;
+		this.layout = layout;
+		this.numberOfWires = layout.getNumberOfWires();
+		this.basisState = -1;
+	}
+
+	/**
+	 * Constructor for a basis state, which is never built as a vector.
+	 *
+	 * @param basisState    The basis state, with wire zero as the most significant
+	 *                      bit.
+	 * @param numberOfWires The number of wires in the circuit.
+	 */
+	StateView(final long basisState, final int numberOfWires) {
+		this.state = null;
+		this.layout = null;
+		this.numberOfWires = numberOfWires;
+		this.basisState = basisState;
+	}
+
+	/**
+	 * @param index A basis state, with wire zero as the most significant bit.
+	 * @return The amplitude of the basis state.
+	 */
+	public Complex get(final long index) {
+		return Complex.valueOf(getReal(index), getImaginary(index));
+	}
+
+	/**
+	 * @param index A basis state, with wire zero as the most significant bit.
+	 * @return The imaginary part of the amplitude of the basis state.
+	 */
+	public double getImaginary(final long index) {
+		if (state == null) {
+			return 0;
+		}
+		return state.getImaginary(layout.fromDefaultIndex((int) index));
+	}
+
+	/**
+	 * @return The number of wires in the circuit.
+	 */
+	public int getNumberOfWires() {
+		return numberOfWires;
+	}
+
+	/**
+	 * @param index A basis state, with wire zero as the most significant bit.
+	 * @return The probability of measuring the basis state.
+	 */
+	public double getProbability(final long index) {
+		double real = getReal(index);
+		double imaginary = getImaginary(index);
+		return real * real + imaginary * imaginary;
+	}
+
+	/**
+	 * @param index A basis state, with wire zero as the most significant bit.
+	 * @return The real part of the amplitude of the basis state.
+	 */
+	public double getReal(final long index) {
+		if (state == null) {
+			return index == basisState ? 1 : 0;
+		}
+		return state.getReal(layout.fromDefaultIndex((int) index));
+	}
+
+	/**
+	 * @return The number of basis states.
+	 */
+	public long size() {
+		return 1L << numberOfWires;
+	}
+}
@@ -0,0 +1,329 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Computes single amplitudes by contracting the circuit as a tensor network
+ * instead of building the state vector. Every initial qubit, every gate and
+ * every measured output bit is a tensor, and the wire segments between them are
+ * the edges. The contraction order is chosen once, greedily contracting the
+ * pair of tensors whose result grows the memory the least, and reused for every
+ * bitstring.
+ * 
+ * Circuits with little entanglement contract to small tensors even when they
+ * are far too wide for a state vector.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class TensorNetwork {
+	/** Results with at least this many entries are contracted in parallel. */
+	private static final int PARALLEL_SIZE = 1 << 14;
+	/** The most edges an intermediate tensor may have. */
+	private static final int MAX_RANK = 28;
+
+	/**
+	 * @param edgesA The edges of one tensor.
+	 * @param edgesB The edges of another tensor.
+	 * @return The number of edges the tensors share.
+	 */
+	private static int countShared(final int[] edgesA, final int[] edgesB) {
+		int returnValue = 0;
+		for (int edge : edgesA) {
+			for (int other : edgesB) {
+				if (edge == other) {
+					++returnValue;
+				}
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @param edgesA The edges of one tensor.
+	 * @param edgesB The edges of another tensor.
+	 * @return The edges left after contracting the shared ones.
+	 */
+	private static int[] resultEdges(final int[] edgesA, final int[] edgesB) {
+		return IntStream.concat(Arrays.stream(edgesA).filter(edge -> Arrays.stream(edgesB).noneMatch(x -> x == edge)),
+				Arrays.stream(edgesB).filter(edge -> Arrays.stream(edgesA).noneMatch(x -> x == edge))).toArray();
+	}
+
+	/**
+	 * Maps each value of some edges onto the part of a tensor index they set.
+	 * 
+	 * @param from   The edges whose values are enumerated.
+	 * @param target The edges of the tensor.
+	 * @return For every value of the edges, the tensor index with only those
+	 *         edges set.
+	 */
+	private static int[] indexMap(final int[] from, final int[] target) {
+		int[] returnValue = new int[1 << from.length];
+		for (int n = 0; n < from.length; ++n) {
+			int position = -1;
+			for (int t = 0; t < target.length; ++t) {
+				if (target[t] == from[n]) {
+					position = t;
+				}
+			}
+			if (position == -1) {
+				continue;
+			}
+			int fromBit = 1 << (from.length - 1 - n);
+			int targetBit = 1 << (target.length - 1 - position);
+			for (int value = 0; value < returnValue.length; ++value) {
+				if ((value & fromBit) != 0) {
+					returnValue[value] |= targetBit;
+				}
+			}
+		}
+		return returnValue;
+	}
+
+	/** The data of the gate and initial tensors, which do not depend on the query. */
+	private final List<double[]> fixedData = new ArrayList<>();
+	/** The edges of every tensor, fixed, output and intermediate. */
+	private final List<int[]> edgesOf = new ArrayList<>();
+	/** The estimated complex multiply adds of one contraction. */
+	private final double flops;
+	/** The number of wires in the circuit. */
+	private final int numberOfWires;
+	/** The tensor ids of the output projections, one per wire. */
+	private final int[] outputTensors;
+	/** The estimated peak number of amplitudes held at once. */
+	private final long peakEntries;
+	/** The contraction steps, each two tensor ids and the id of their result. */
+	private final List<int[]> steps = new ArrayList<>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param circuit The circuit to contract.
+	 */
+	public TensorNetwork(final QuantumCircuit circuit) {
+		numberOfWires = circuit.getWires().size();
+		List<Qubit> initialValues = circuit.getInitialValues();
+		int[] openEdge = new int[numberOfWires];
+		int edgeCount = 0;
+		for (int wire = 0; wire < numberOfWires; ++wire) {
+			openEdge[wire] = edgeCount++;
+			Qubit qubit = initialValues.get(wire);
+			addTensor(new int[] { openEdge[wire] }, new double[] { qubit.getX().getReal(),
+					qubit.getX().getImaginary(), qubit.getY().getReal(), qubit.getY().getImaginary() });
+		}
+		List<QuantumGate> gates = new ArrayList<>(circuit.getGates());
+		gates.sort(Comparator.comparingInt(QuantumGate::getGatePosition).thenComparingInt(QuantumGate::getMinWire));
+		for (QuantumGate gate : gates) {
+			GateKernel kernel = GateMatrixRegistry.getInstance().getKernel(gate);
+			int[] kernelWires = kernel.getWires();
+			// output edges first, then input edges, so the data is the matrix row by row.
+			int[] edges = new int[2 * kernelWires.length];
+			for (int n = 0; n < kernelWires.length; ++n) {
+				edges[kernelWires.length + n] = openEdge[kernelWires[n]];
+				openEdge[kernelWires[n]] = edgeCount++;
+				edges[n] = openEdge[kernelWires[n]];
+			}
+			Complex[][] matrix = kernel.toMatrix();
+			double[] data = new double[2 * matrix.length * matrix.length];
+			for (int row = 0; row < matrix.length; ++row) {
+				for (int col = 0; col < matrix.length; ++col) {
+					data[2 * (row * matrix.length + col)] = matrix[row][col].getReal();
+					data[2 * (row * matrix.length + col) + 1] = matrix[row][col].getImaginary();
+				}
+			}
+			addTensor(edges, data);
+		}
+		outputTensors = new int[numberOfWires];
+		for (int wire = 0; wire < numberOfWires; ++wire) {
+			outputTensors[wire] = addTensor(new int[] { openEdge[wire] }, null);
+		}
+
+		// greedy order: contract the connected pair whose result adds the least.
+		// every edge joins exactly two tensors, tracked here as they are contracted.
+		int[][] owners = new int[edgeCount][2];
+		for (int[] pair : owners) {
+			Arrays.fill(pair, -1);
+		}
+		List<Integer> live = new ArrayList<>();
+		long liveEntries = 0;
+		for (int tensor = 0; tensor < edgesOf.size(); ++tensor) {
+			live.add(tensor);
+			liveEntries += 1L << edgesOf.get(tensor).length;
+			for (int edge : edgesOf.get(tensor)) {
+				owners[edge][owners[edge][0] == -1 ? 0 : 1] = tensor;
+			}
+		}
+		boolean[] openEdges = new boolean[edgeCount];
+		Arrays.fill(openEdges, true);
+		long peak = liveEntries;
+		double totalFlops = 0;
+		while (live.size() > 1) {
+			int tensorA = -1;
+			int tensorB = -1;
+			long bestCost = Long.MAX_VALUE;
+			for (int edge = 0; edge < edgeCount; ++edge) {
+				if (!openEdges[edge]) {
+					continue;
+				}
+				int[] edgesA = edgesOf.get(owners[edge][0]);
+				int[] edgesB = edgesOf.get(owners[edge][1]);
+				long cost = (1L << (edgesA.length + edgesB.length - 2 * countShared(edgesA, edgesB)))
+						- (1L << edgesA.length) - (1L << edgesB.length);
+				if (cost < bestCost) {
+					bestCost = cost;
+					tensorA = owners[edge][0];
+					tensorB = owners[edge][1];
+				}
+			}
+			if (tensorA == -1) {
+				// only scalars of unconnected parts are left.
+				tensorA = live.get(0);
+				tensorB = live.get(1);
+			}
+			int[] edgesA = edgesOf.get(tensorA);
+			int[] edgesB = edgesOf.get(tensorB);
+			int[] result = resultEdges(edgesA, edgesB);
+			if (result.length > MAX_RANK) {
+				throw new IllegalStateException("The contraction needs a tensor of " + result.length + " edges.");
+			}
+			totalFlops += Math.pow(2, edgesA.length + edgesB.length - countShared(edgesA, edgesB));
+			int resultTensor = addTensor(result, null);
+			steps.add(new int[] { tensorA, tensorB, resultTensor });
+			for (int edge : edgesA) {
+				openEdges[edge] = false;
+			}
+			for (int edge : edgesB) {
+				openEdges[edge] = false;
+			}
+			for (int edge : result) {
+				openEdges[edge] = true;
+				for (int side = 0; side < 2; ++side) {
+					if (owners[edge][side] == tensorA || owners[edge][side] == tensorB) {
+						owners[edge][side] = resultTensor;
+					}
+				}
+			}
+			live.remove(Integer.valueOf(tensorA));
+			live.remove(Integer.valueOf(tensorB));
+			live.add(resultTensor);
+			liveEntries += 1L << result.length;
+			peak = Math.max(peak, liveEntries);
+			liveEntries -= (1L << edgesA.length) + (1L << edgesB.length);
+		}
+		flops = totalFlops;
+		peakEntries = peak;
+	}
+
+	/**
+	 * @param bitstring A basis state with wire zero as the most significant bit.
+	 * @return The amplitude of the basis state after all gates have ran.
+	 */
+	public Complex amplitude(final long bitstring) {
+		double[][] data = new double[edgesOf.size()][];
+		for (int tensor = 0; tensor < fixedData.size(); ++tensor) {
+			data[tensor] = fixedData.get(tensor);
+		}
+		for (int wire = 0; wire < numberOfWires; ++wire) {
+			double[] projection = new double[4];
+			projection[2 * (int) ((bitstring >>> (numberOfWires - 1 - wire)) & 1)] = 1;
+			data[outputTensors[wire]] = projection;
+		}
+		int last = outputTensors.length > 0 ? outputTensors[outputTensors.length - 1] : -1;
+		for (int[] step : steps) {
+			data[step[2]] = contract(data[step[0]], edgesOf.get(step[0]), data[step[1]], edgesOf.get(step[1]),
+					edgesOf.get(step[2]));
+			data[step[0]] = null;
+			data[step[1]] = null;
+			last = step[2];
+		}
+		if (last == -1) {
+			return Complex.ONE;
+		}
+		return Complex.valueOf(data[last][0], data[last][1]);
+	}
+
+	/**
+	 * Computes several amplitudes in parallel, one contraction each.
+	 * 
+	 * @param bitstrings Basis states with wire zero as the most significant bit.
+	 * @return The amplitude of each basis state after all gates have ran.
+	 */
+	public Complex[] amplitudes(final long[] bitstrings) {
+		return Arrays.stream(bitstrings).parallel().mapToObj(this::amplitude).toArray(Complex[]::new);
+	}
+
+	/**
+	 * @return The estimated number of complex multiply adds per amplitude.
+	 */
+	public double getEstimatedFlops() {
+		return flops;
+	}
+
+	/**
+	 * @return The estimated peak memory of one contraction in bytes.
+	 */
+	public long getEstimatedPeakBytes() {
+		return peakEntries * 2 * Double.BYTES;
+	}
+
+	/**
+	 * @return The number of tensors before contraction.
+	 */
+	public int getTensorCount() {
+		return edgesOf.size() - steps.size();
+	}
+
+	/**
+	 * Adds a tensor.
+	 * 
+	 * @param edges The edges of the tensor, most significant index bit first.
+	 * @param data  The interleaved data of the tensor, or null if it depends on the
+	 *              query.
+	 * @return The id of the tensor.
+	 */
+	private int addTensor(final int[] edges, final double[] data) {
+		edgesOf.add(edges);
+		if (data != null) {
+			fixedData.add(data);
+		}
+		return edgesOf.size() - 1;
+	}
+
+	/**
+	 * Contracts two tensors over their shared edges.
+	 * 
+	 * @param dataA  The data of the first tensor.
+	 * @param edgesA The edges of the first tensor.
+	 * @param dataB  The data of the second tensor.
+	 * @param edgesB The edges of the second tensor.
+	 * @param result The edges of the result.
+	 * @return The data of the result.
+	 */
+	private double[] contract(final double[] dataA, final int[] edgesA, final double[] dataB, final int[] edgesB,
+			final int[] result) {
+		int[] shared = Arrays.stream(edgesA).filter(edge -> Arrays.stream(edgesB).anyMatch(x -> x == edge))
+				.toArray();
+		// the index contribution of each result and shared index to either tensor.
+		int[] resultToA = indexMap(result, edgesA);
+		int[] resultToB = indexMap(result, edgesB);
+		int[] sharedToA = indexMap(shared, edgesA);
+		int[] sharedToB = indexMap(shared, edgesB);
+		double[] returnValue = new double[2 << result.length];
+		IntStream indexes = IntStream.range(0, 1 << result.length);
+		if (returnValue.length >= 2 * PARALLEL_SIZE) {
+			indexes = indexes.parallel();
+		}
+		indexes.forEach(index -> {
+			for (int sum = 0; sum < sharedToA.length; ++sum) {
+				int a = 2 * (resultToA[index] + sharedToA[sum]);
+				int b = 2 * (resultToB[index] + sharedToB[sum]);
+				ComplexArray.multiplyAccumulate(returnValue, 2 * index, dataA[a], dataA[a + 1], dataB[b], dataB[b + 1]);
+			}
+		});
+		return returnValue;
+	}
+}
@@ -0,0 +1,220 @@
+package model;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maps the wires of a circuit onto the bits of the state vector index. The
+ * default layout puts wire zero on the most significant bit. A relabeled layout
+ * puts wires that often share a gate on neighbouring bits and the busiest wires
+ * on the low order bits, so the amplitudes a gate touches sit close together in
+ * memory.
+ *
+ * @author cdberkstresser
+ *
+ */
+public final class WireLayout implements Serializable {
+	/** Serializable ID. */
+	private static final long serialVersionUID = -3925616981011917224L;
+
+	/**
+	 * Builds a layout from the gates of a circuit. The busiest wire goes on bit
+	 * zero, then each following bit gets the unplaced wire sharing the most gates
+	 * with the wire on the bit before it, with ties going to the busier wire.
+	 *
+	 * @param numberOfWires The number of wires in the circuit.
+	 * @param gates         The gates of the circuit.
+	 * @return The relabeled layout.
+	 */
+	public static WireLayout fromGates(final int numberOfWires, final Collection<QuantumGate> gates) {
+		long[] usage = new long[numberOfWires];
+		long[][] interactions = new long[numberOfWires][numberOfWires];
+		for (QuantumGate gate : gates) {
+			List<Integer> gateWires = gate.getWires();
+			for (int wire : gateWires) {
+				if (wire < numberOfWires) {
+					++usage[wire];
+					for (int other : gateWires) {
+						if (other != wire && other < numberOfWires) {
+							++interactions[wire][other];
+						}
+					}
+				}
+			}
+		}
+		int[] bits = new int[numberOfWires];
+		boolean[] placed = new boolean[numberOfWires];
+		int previous = -1;
+		for (int bit = 0; bit < numberOfWires; ++bit) {
+			int best = -1;
+			for (int wire = 0; wire < numberOfWires; ++wire) {
+				if (!placed[wire] && (best == -1 || isBetter(wire, best, previous, usage, interactions))) {
+					best = wire;
+				}
+			}
+			placed[best] = true;
+			bits[best] = bit;
+			previous = best;
+		}
+		return new WireLayout(bits);
+	}
+
+	/**
+	 * @param numberOfWires The number of wires in the circuit.
+	 * @return The default layout with wire zero on the most significant bit.
+	 */
+	public static WireLayout identity(final int numberOfWires) {
+		int[] bits = new int[numberOfWires];
+		for (int wire = 0; wire < numberOfWires; ++wire) {
+			bits[wire] = numberOfWires - 1 - wire;
+		}
+		return new WireLayout(bits);
+	}
+
+	/**
+	 * Decides which of two wires to place next.
+	 *
+	 * @param wire         The candidate wire.
+	 * @param best         The best wire so far.
+	 * @param previous     The wire placed on the bit before, or -1.
+	 * @param usage        The number of gates on each wire.
+	 * @param interactions The number of gates shared by each pair of wires.
+	 * @return True if the candidate should be placed before the best wire so far.
+	 */
+	private static boolean isBetter(final int wire, final int best, final int previous, final long[] usage,
+			final long[][] interactions) {
+		if (previous != -1 && interactions[previous][wire] != interactions[previous][best]) {
+			return interactions[previous][wire] > interactions[previous][best];
+		}
+		return usage[wire] > usage[best];
+	}
+
+	/** The bit of the state index each wire lives on. */
+	private final int[] bits;
+	/** The wire living on each bit of the state index. */
+	private final int[] wires;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param bits The bit of the state index for each wire. Must be a permutation.
+	 */
+	public WireLayout(final int[] bits) {
+		this.bits = bits.clone();
+		wires = new int[bits.length];
+		boolean[] seen = new boolean[bits.length];
+		for (int wire = 0; wire < bits.length; ++wire) {
+			if (bits[wire] < 0 || bits[wire] >= bits.length || seen[bits[wire]]) {
+				throw new IllegalArgumentException("The bits must be a permutation of the wires.");
+			}
+			seen[bits[wire]] = true;
+			wires[bits[wire]] = wire;
+		}
+	}
+
+	/**
+	 * @param wire The wire to look up.
+	 * @return The bit of the state index the wire lives on.
+	 */
+	public int getBit(final int wire) {
+		return bits[wire];
+	}
+
+	/**
+	 * @return The number of wires in the layout.
+	 */
+	public int getNumberOfWires() {
+		return bits.length;
+	}
+
+	/**
+	 * @param bit The bit of the state index to look up.
+	 * @return The wire living on that bit.
+	 */
+	public int getWire(final int bit) {
+		return wires[bit];
+	}
+
+	/**
+	 * @return True if this is the default layout.
+	 */
+	public boolean isIdentity() {
+		for (int wire = 0; wire < bits.length; ++wire) {
+			if (bits[wire] != bits.length - 1 - wire) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Converts a state index in the default layout to this layout.
+	 *
+	 * @param index A state index with wire zero as the most significant bit.
+	 * @return The same basis state indexed by this layout.
+	 */
+	public int fromDefaultIndex(final int index) {
+		int returnValue = 0;
+		for (int wire = 0; wire < bits.length; ++wire) {
+			if ((index & (1 << (bits.length - 1 - wire))) != 0) {
+				returnValue |= 1 << bits[wire];
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Converts a state index in this layout to the default layout.
+	 *
+	 * @param index A state index in this layout.
+	 * @return The same basis state indexed with wire zero as the most significant
+	 *         bit.
+	 */
+	public int toDefaultIndex(final int index) {
+		int returnValue = 0;
+		for (int wire = 0; wire < bits.length; ++wire) {
+			if ((index & (1 << bits[wire])) != 0) {
+				returnValue |= 1 << (bits.length - 1 - wire);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Reorders a state in the default layout into this layout.
+	 * 
+	 * @param state A state vector with wire zero as the most significant bit.
+	 * @return A new state vector indexed by this layout, or the same state if this
+	 *         is the default layout.
+	 */
+	public ComplexArray fromDefaultOrder(final ComplexArray state) {
+		if (isIdentity()) {
+			return state;
+		}
+		ComplexArray returnValue = new ComplexArray(state.length());
+		for (int index = 0; index < state.length(); ++index) {
+			int defaultIndex = toDefaultIndex(index);
+			returnValue.set(index, state.getReal(defaultIndex), state.getImaginary(defaultIndex));
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Reorders a state in this layout into the default layout.
+	 *
+	 * @param state A state vector indexed by this layout.
+	 * @return A new state vector with wire zero as the most significant bit, or the
+	 *         same state if this is the default layout.
+	 */
+	public ComplexArray toDefaultOrder(final ComplexArray state) {
+		if (isIdentity()) {
+			return state;
+		}
+		ComplexArray returnValue = new ComplexArray(state.length());
+		for (int index = 0; index < state.length(); ++index) {
+			returnValue.set(toDefaultIndex(index), state.getReal(index), state.getImaginary(index));
+		}
+		return returnValue;
+	}
+}
@@ -0,0 +1,8 @@
+module quantum.core {
+	requires transitive java.xml;
+	requires jdk.httpserver;
+
+	exports batch;
+	exports model;
+	exports service;
+}
@@ -0,0 +1,115 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a circuit may be simulated, based on its number of qubits and
+ * on the memory its state vectors would take. Gates are compiled over their own
+ * wires only, so their kernels are small next to the states. The memory of
+ * admitted jobs is reserved until they finish, so concurrent jobs cannot
+ * together exceed the budget.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class AdmissionControl {
+	/** The bytes of one amplitude, a real and an imaginary double. */
+	private static final long BYTES_PER_AMPLITUDE = 16;
+	/**
+	 * The state vectors held at once by one job: the initial state and the latest
+	 * position, the only ones the server keeps cached, and the copy the next
+	 * position is computed in.
+	 */
+	private static final long STATE_COPIES = 3;
+
+	/**
+	 * @param qubits The number of qubits of a circuit.
+	 * @return The estimated peak memory of simulating it in bytes, or
+	 *         {@link Long#MAX_VALUE} if it cannot be indexed at all.
+	 */
+	public static long estimateBytes(final int qubits) {
+		if (qubits > 30) {
+			return Long.MAX_VALUE;
+		}
+		return STATE_COPIES * BYTES_PER_AMPLITUDE << qubits;
+	}
+
+	/** The largest number of qubits admitted. */
+	private final int maxQubits;
+	/** The memory shared by all running and queued jobs in bytes. */
+	private final long memoryBudget;
+	/** The memory reserved by running and queued jobs in bytes. */
+	private final AtomicLong reserved = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxQubits    The largest number of qubits admitted.
+	 * @param memoryBudget The memory shared by all running and queued jobs in
+	 *                     bytes.
+	 */
+	public AdmissionControl(final int maxQubits, final long memoryBudget) {
+		this.maxQubits = maxQubits;
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * @param qubits The number of qubits of a circuit.
+	 * @return Whether the circuit could ever be admitted, when no other job runs.
+	 */
+	public boolean fits(final int qubits) {
+		return qubits <= maxQubits && estimateBytes(qubits) <= memoryBudget;
+	}
+
+	/**
+	 * @return The largest number of qubits admitted.
+	 */
+	public int getMaxQubits() {
+		return maxQubits;
+	}
+
+	/**
+	 * @return The memory shared by all running and queued jobs in bytes.
+	 */
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * @return The memory reserved by running and queued jobs in bytes.
+	 */
+	public long getReserved() {
+		return reserved.get();
+	}
+
+	/**
+	 * Gives back the memory of a finished or rejected job.
+	 * 
+	 * @param bytes The bytes returned by {@link #tryReserve(int)}.
+	 */
+	public void release(final long bytes) {
+		reserved.addAndGet(-bytes);
+	}
+
+	/**
+	 * Reserves the memory of a circuit if the budget has room for it.
+	 * 
+	 * @param qubits The number of qubits of the circuit.
+	 * @return The reserved bytes, to be released when the job finishes, or -1 if
+	 *         the budget is taken by other jobs or the circuit does not fit.
+	 */
+	public long tryReserve(final int qubits) {
+		if (!fits(qubits)) {
+			return -1;
+		}
+		long bytes = estimateBytes(qubits);
+		long current;
+		do {
+			current = reserved.get();
+			if (current + bytes > memoryBudget) {
+				return -1;
+			}
+		} while (!reserved.compareAndSet(current, current + bytes));
+		return bytes;
+	}
+}
@@ -0,0 +1,181 @@
+package service;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import model.Amplitude;
+import model.Complex;
+import model.Outcome;
+import model.QuantumCircuit;
+
+/**
+ * What a client asks of a posted circuit. Each kind is served at its own path
+ * and answers with one JSON object about the state after all gates.
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public enum JobKind {
+	/** The probability of each qubit measuring one. */
+	PROBABILITIES {
+		@Override
+		public String run(final QuantumCircuit qc, final Map<String, String> query) {
+			List<Complex> probabilities = qc.getFinalQubitProbabilities();
+			return "{\"wires\":" + qc.getWires().size() + ",\"probabilities\":" + probabilities.stream()
+					.map(probability -> String.valueOf(probability.getReal())).collect(Collectors.joining(",", "[", "]"))
+					+ "}";
+		}
+	},
+	/**
+	 * Measurements of every qubit. Query parameters: {@code shots}, the number of
+	 * measurements, and {@code seed}, to repeat a run.
+	 */
+	SAMPLES {
+		@Override
+		public String run(final QuantumCircuit qc, final Map<String, String> query) {
+			int shots = getInt(query, "shots", 1024, 1, MAX_SHOTS);
+			Random random = query.containsKey("seed") ? new Random(getLong(query, "seed")) : new Random();
+			double[] draws = new double[shots];
+			for (int n = 0; n < shots; ++n) {
+				draws[n] = random.nextDouble();
+			}
+			Arrays.sort(draws);
+			// one pass over the state, handing each sorted draw to the amplitude whose
+			// share of the cumulative probability it falls in.
+			Map<Long, Integer> counts = new TreeMap<>();
+			int numberOfWires = qc.getWires().size();
+			int drawn = 0;
+			double cumulative = 0;
+			long last = 0;
+			try (Stream<Amplitude> amplitudes = qc.amplitudes(qc.getMaxWireGatePosition() + 1, 0)) {
+				Iterator<Amplitude> iterator = amplitudes.iterator();
+				while (drawn < shots && iterator.hasNext()) {
+					Amplitude amplitude = iterator.next();
+					if (amplitude.getProbability() == 0) {
+						continue;
+					}
+					cumulative += amplitude.getProbability();
+					last = amplitude.getIndex();
+					int first = drawn;
+					while (drawn < shots && draws[drawn] < cumulative) {
+						++drawn;
+					}
+					if (drawn > first) {
+						counts.merge(last, drawn - first, Integer::sum);
+					}
+				}
+			}
+			if (drawn < shots) {
+				// rounding left the cumulative probability just short of one.
+				counts.merge(last, shots - drawn, Integer::sum);
+			}
+			return "{\"wires\":" + numberOfWires + ",\"shots\":" + shots + ",\"counts\":"
+					+ counts.entrySet().stream()
+							.map(count -> "\"" + new Outcome(count.getKey(), numberOfWires, 0).getBitString() + "\":"
+									+ count.getValue())
+							.collect(Collectors.joining(",", "{", "}"))
+					+ "}";
+		}
+	},
+	/**
+	 * The amplitudes of the basis states. Query parameters: {@code threshold}, the
+	 * smallest probability of a returned amplitude, and {@code limit}, the largest
+	 * number returned.
+	 */
+	AMPLITUDES {
+		@Override
+		public String run(final QuantumCircuit qc, final Map<String, String> query) {
+			double threshold = getDouble(query, "threshold", 1e-12);
+			int limit = getInt(query, "limit", 1 << 16, 0, MAX_AMPLITUDES);
+			int numberOfWires = qc.getWires().size();
+			StringBuilder returnValue = new StringBuilder("{\"wires\":").append(numberOfWires)
+					.append(",\"amplitudes\":[");
+			boolean truncated = false;
+			int count = 0;
+			try (Stream<Amplitude> amplitudes = qc.amplitudes(qc.getMaxWireGatePosition() + 1, threshold)) {
+				Iterator<Amplitude> iterator = amplitudes.iterator();
+				while (iterator.hasNext()) {
+					Amplitude amplitude = iterator.next();
+					if (count == limit) {
+						truncated = true;
+						break;
+					}
+					if (count++ > 0) {
+						returnValue.append(',');
+					}
+					returnValue.append("{\"bits\":\"")
+							.append(new Outcome(amplitude.getIndex(), numberOfWires, 0).getBitString())
+							.append("\",\"real\":").append(amplitude.getReal()).append(",\"imaginary\":")
+							.append(amplitude.getImaginary()).append('}');
+				}
+			}
+			return returnValue.append("],\"truncated\":").append(truncated).append('}').toString();
+		}
+	};
+
+	/** The largest number of amplitudes one response may hold. */
+	public static final int MAX_AMPLITUDES = 1 << 20;
+	/** The largest number of measurements one response may hold. */
+	public static final int MAX_SHOTS = 1 << 20;
+
+	/**
+	 * @param query        The query parameters of a request.
+	 * @param name         The parameter to read.
+	 * @param defaultValue The value if the parameter is missing.
+	 * @return The parameter as a number.
+	 */
+	static double getDouble(final Map<String, String> query, final String name, final double defaultValue) {
+		try {
+			return query.containsKey(name) ? Double.parseDouble(query.get(name)) : defaultValue;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Parameter " + name + " is not a number.");
+		}
+	}
+
+	/**
+	 * @param query        The query parameters of a request.
+	 * @param name         The parameter to read.
+	 * @param defaultValue The value if the parameter is missing.
+	 * @param min          The smallest allowed value.
+	 * @param max          The largest allowed value.
+	 * @return The parameter as a whole number.
+	 */
+	static int getInt(final Map<String, String> query, final String name, final int defaultValue, final int min,
+			final int max) {
+		long returnValue = query.containsKey(name) ? getLong(query, name) : defaultValue;
+		if (returnValue < min || returnValue > max) {
+			throw new IllegalArgumentException(
+					String.format(Locale.ROOT, "Parameter %s must be from %d to %d.", name, min, max));
+		}
+		return (int) returnValue;
+	}
+
+	/**
+	 * @param query The query parameters of a request.
+	 * @param name  The parameter to read.
+	 * @return The parameter as a whole number.
+	 */
+	static long getLong(final Map<String, String> query, final String name) {
+		try {
+			return Long.parseLong(query.get(name));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Parameter " + name + " is not a whole number.");
+		}
+	}
+
+	/**
+	 * Simulates a circuit and describes the result.
+	 * 
+	 * @param qc    The circuit.
+	 * @param query The query parameters of the request.
+	 * @return The result as one JSON object.
+	 */
+	public abstract String run(QuantumCircuit qc, Map<String, String> query);
+}
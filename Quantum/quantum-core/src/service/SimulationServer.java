@@ -0,0 +1,391 @@
+package service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.w3c.dom.Document;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import model.QuantumCircuit;
+
+/**
+ * Simulates circuits posted over HTTP, so tools can share one warm JVM. A
+ * circuit is posted in the format written by
+ * {@link QuantumCircuit#getAsXML(java.io.OutputStream)} to
+ * {@code /probabilities}, {@code /samples} or {@code /amplitudes}, see
+ * {@link JobKind}, and {@code GET /status} describes the load.
+ * 
+ * Requests are handled on virtual threads when the JVM has them, and on a
+ * cached pool otherwise. They only parse and wait: simulations run on a fixed
+ * pool of one thread per processor behind a bounded queue. A circuit is
+ * measured before it is loaded, since loading already compiles its gates. It is
+ * rejected with 413 if it can never fit the admission limits, and with 503 if
+ * the queue or the memory budget is taken by other jobs.
+ * 
+ * Usage:
+ * {@code SimulationServer [--port n] [--threads n] [--queue n] [--max-qubits n] [--memory mb]}
+ * 
+ * @author cdberkstresser
+ * 
+ */
+public final class SimulationServer {
+	/** The largest accepted circuit document in bytes. */
+	public static final int MAX_BODY_BYTES = 4 << 20;
+	/** The seconds a rejected client is asked to wait before retrying. */
+	private static final String RETRY_AFTER = "1";
+	/** The answer to a circuit that cannot be read. */
+	private static final String UNREADABLE = "The circuit cannot be read.";
+
+	/**
+	 * Main launcher.
+	 * 
+	 * @param args command line arguments.
+	 */
+	public static void main(final String[] args) {
+		int port = 8080;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int queue = 64;
+		int maxQubits = 26;
+		long memory = Runtime.getRuntime().maxMemory() / 2;
+		try {
+			for (int n = 0; n < args.length; ++n) {
+				if (n + 1 == args.length) {
+					throw new IllegalArgumentException("Unknown argument " + args[n]);
+				}
+				switch (args[n]) {
+				case "--port":
+					port = Integer.parseInt(args[++n]);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++n]);
+					break;
+				case "--queue":
+					queue = Integer.parseInt(args[++n]);
+					break;
+				case "--max-qubits":
+					maxQubits = Integer.parseInt(args[++n]);
+					break;
+				case "--memory":
+					memory = Long.parseLong(args[++n]) << 20;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument " + args[n]);
+				}
+			}
+			if (threads < 1 || queue < 1) {
+				throw new IllegalArgumentException("The thread count and queue length must be positive.");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(
+					"Usage: SimulationServer [--port n] [--threads n] [--queue n] [--max-qubits n] [--memory mb]");
+			System.exit(2);
+			return;
+		}
+		try {
+			SimulationServer server = new SimulationServer(new InetSocketAddress(port), threads, queue,
+					new AdmissionControl(maxQubits, memory));
+			server.start();
+			System.err.println("Listening on " + server.getAddress());
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * @return An executor starting one virtual thread per task if the JVM has
+	 *         them, otherwise a cached thread pool.
+	 */
+	static ExecutorService newRequestExecutor() {
+		try {
+			// looked up by name so the build keeps its release level.
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * @param query The raw query of a request, or null.
+	 * @return The decoded query parameters.
+	 */
+	static Map<String, String> parseQuery(final String query) {
+		Map<String, String> returnValue = new HashMap<>();
+		if (query == null || query.isEmpty()) {
+			return returnValue;
+		}
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals < 0) {
+				returnValue.put(URLDecoder.decode(pair, StandardCharsets.UTF_8), "");
+			} else {
+				returnValue.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+						URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @param text Any text.
+	 * @return The text as a JSON string.
+	 */
+	private static String quote(final String text) {
+		StringBuilder returnValue = new StringBuilder("\"");
+		for (char c : text.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				returnValue.append('\\').append(c);
+			} else if (c < ' ') {
+				returnValue.append(String.format("\\u%04x", (int) c));
+			} else {
+				returnValue.append(c);
+			}
+		}
+		return returnValue.append('"').toString();
+	}
+
+	/**
+	 * @param input The body of a request.
+	 * @return The body, or null if it is longer than {@link #MAX_BODY_BYTES}.
+	 * @throws IOException If the body cannot be read.
+	 */
+	private static byte[] readBody(final InputStream input) throws IOException {
+		ByteArrayOutputStream returnValue = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			if (returnValue.size() + read > MAX_BODY_BYTES) {
+				return null;
+			}
+			returnValue.write(buffer, 0, read);
+		}
+		return returnValue.toByteArray();
+	}
+
+	/** Limits the size and memory of admitted circuits. */
+	private final AdmissionControl admission;
+	/** The number of circuits rejected by admission control or a full queue. */
+	private final AtomicInteger rejected = new AtomicInteger();
+	/** The executor handling requests. */
+	private final ExecutorService requests;
+	/** The HTTP server. */
+	private final HttpServer server;
+	/** The executor running simulations, behind a bounded queue. */
+	private final ThreadPoolExecutor simulations;
+
+	/**
+	 * Constructor. The server does not listen until {@link #start()}.
+	 * 
+	 * @param address   The address to listen on. Port zero picks a free port.
+	 * @param threads   The number of circuits simulated at once.
+	 * @param queue     The number of circuits allowed to wait for a simulation
+	 *                  thread.
+	 * @param admission Limits the size and memory of admitted circuits.
+	 * @throws IOException If the address cannot be bound.
+	 */
+	public SimulationServer(final InetSocketAddress address, final int threads, final int queue,
+			final AdmissionControl admission) throws IOException {
+		this.admission = admission;
+		AtomicInteger threadNumber = new AtomicInteger();
+		simulations = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queue), runnable -> {
+					Thread thread = new Thread(runnable, "simulation-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		requests = newRequestExecutor();
+		server = HttpServer.create(address, 0);
+		server.setExecutor(requests);
+		for (JobKind kind : JobKind.values()) {
+			server.createContext("/" + kind.name().toLowerCase(Locale.ROOT), exchange -> handle(exchange, kind));
+		}
+		server.createContext("/status", this::handleStatus);
+	}
+
+	/**
+	 * @return The address the server listens on.
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Parses a posted circuit, admits it and waits for its simulation.
+	 * 
+	 * @param exchange The request.
+	 * @param kind     What the client asks of the circuit.
+	 * @throws IOException If the response cannot be written.
+	 */
+	private void handle(final HttpExchange exchange, final JobKind kind) throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				respondError(exchange, 405, "Post a circuit.");
+				return;
+			}
+			byte[] body = readBody(exchange.getRequestBody());
+			if (body == null) {
+				respondError(exchange, 413, "Circuits are limited to " + MAX_BODY_BYTES + " bytes.");
+				return;
+			}
+			Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+			// loading compiles the gate kernels, so the circuit is measured before it is
+			// admitted and only loaded by the admitted job.
+			Document doc;
+			int qubits;
+			try {
+				doc = QuantumCircuit.parseXML(new ByteArrayInputStream(body));
+				qubits = QuantumCircuit.getWireCount(doc);
+			} catch (Exception e) {
+				// the parser's message may quote the document, so it is not echoed.
+				respondError(exchange, 400, UNREADABLE);
+				return;
+			}
+			if (!admission.fits(qubits)) {
+				rejected.incrementAndGet();
+				respondError(exchange, 413, String.format(Locale.ROOT,
+						"The circuit has %d qubits, beyond the limits of %d qubits or %d bytes.", qubits,
+						admission.getMaxQubits(), admission.getMemoryBudget()));
+				return;
+			}
+			long reserved = admission.tryReserve(qubits);
+			if (reserved < 0) {
+				rejected.incrementAndGet();
+				exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER);
+				respondError(exchange, 503, "The memory budget is taken by other circuits.");
+				return;
+			}
+			Future<String> result;
+			try {
+				result = simulations.submit(() -> {
+					try {
+						QuantumCircuit qc = new QuantumCircuit();
+						try {
+							qc.loadFromXML(doc);
+						} catch (RuntimeException e) {
+							throw new IllegalArgumentException(UNREADABLE, e);
+						}
+						// the states in between are never read again, and caching them all would
+						// take one vector per position instead of the reserved copies.
+						qc.setMaxCachedStates(2);
+						return kind.run(qc, query);
+					} finally {
+						admission.release(reserved);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				admission.release(reserved);
+				rejected.incrementAndGet();
+				exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER);
+				respondError(exchange, 503, "The simulation queue is full.");
+				return;
+			}
+			try {
+				respond(exchange, 200, result.get());
+			} catch (InterruptedException e) {
+				result.cancel(true);
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof OutOfMemoryError) {
+					// the estimate fell short, so the next attempt may find more room.
+					exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER);
+					respondError(exchange, 503, "The server ran out of memory for the circuit.");
+				} else if (cause instanceof IllegalArgumentException) {
+					respondError(exchange, 400, cause.getMessage());
+				} else {
+					respondError(exchange, 500, cause.getClass().getSimpleName() + ": " + cause.getMessage());
+				}
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Describes the load of the server.
+	 * 
+	 * @param exchange The request.
+	 * @throws IOException If the response cannot be written.
+	 */
+	private void handleStatus(final HttpExchange exchange) throws IOException {
+		try {
+			respond(exchange, 200,
+					"{\"running\":" + simulations.getActiveCount() + ",\"queued\":" + simulations.getQueue().size()
+							+ ",\"queueCapacity\":"
+							+ (simulations.getQueue().size() + simulations.getQueue().remainingCapacity())
+							+ ",\"completed\":" + simulations.getCompletedTaskCount() + ",\"rejected\":"
+							+ rejected.get() + ",\"reservedBytes\":" + admission.getReserved()
+							+ ",\"memoryBudget\":" + admission.getMemoryBudget() + ",\"maxQubits\":"
+							+ admission.getMaxQubits() + "}");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * @param exchange The request.
+	 * @param status   The HTTP status.
+	 * @param json     The response body.
+	 * @throws IOException If the response cannot be written.
+	 */
+	private void respond(final HttpExchange exchange, final int status, final String json) throws IOException {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+
+	/**
+	 * @param exchange The request.
+	 * @param status   The HTTP status.
+	 * @param message  Why the request failed.
+	 * @throws IOException If the response cannot be written.
+	 */
+	private void respondError(final HttpExchange exchange, final int status, final String message)
+			throws IOException {
+		respond(exchange, status, "{\"error\":" + quote(String.valueOf(message)) + "}");
+	}
+
+	/**
+	 * Starts listening.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops listening, waits for running requests up to a delay and stops the
+	 * executors.
+	 * 
+	 * @param delay The seconds to wait for running requests.
+	 */
+	public void stop(final int delay) {
+		server.stop(delay);
+		simulations.shutdownNow();
+		requests.shutdownNow();
+	}
+}
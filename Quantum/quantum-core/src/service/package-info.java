@@ -0,0 +1,5 @@
+/**
+ * Package containing the embedded simulation service, which simulates circuits
+ * posted over HTTP in one shared JVM.
+ */
+package service;
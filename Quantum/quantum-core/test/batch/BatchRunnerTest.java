@@ -0,0 +1,106 @@
+package batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import model.ControlledQuantumGate;
+import model.QuantumCircuit;
+import model.SingleQuantumGate;
+
+/**
+ * Tests of {@link BatchRunner}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class BatchRunnerTest {
+	/** The directory of saved circuits, made for each test. */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Saves a circuit of an H on the first wire and a CNOT to the second.
+	 * 
+	 * @param name The file name.
+	 * @throws Exception If the circuit cannot be written.
+	 */
+	private void save(final String name) throws Exception {
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(2);
+		qc.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		qc.setGate(new ControlledQuantumGate("CNOT", 1, Arrays.asList(0, 1)));
+		try (OutputStream output = Files.newOutputStream(directory.resolve(name))) {
+			qc.getAsXML(output);
+		}
+	}
+
+	/**
+	 * Only saved circuits are listed, by name.
+	 * 
+	 * @throws Exception If the files cannot be written or listed.
+	 */
+	@Test
+	public void listsSavedCircuitsByName() throws Exception {
+		save("b.qcdxml");
+		save("a.qcdxml");
+		Files.writeString(directory.resolve("notes.txt"), "not a circuit");
+		List<Path> files = new BatchRunner(directory, OutputFormat.CSV, 1).getFiles();
+		assertEquals(Arrays.asList(directory.resolve("a.qcdxml"), directory.resolve("b.qcdxml")), files);
+	}
+
+	/**
+	 * A circuit is simulated to its final probabilities, and a file that is not a
+	 * circuit gives its error instead of stopping the batch.
+	 * 
+	 * @throws Exception If the files cannot be written.
+	 */
+	@Test
+	public void simulateReportsProbabilitiesOrError() throws Exception {
+		save("bell.qcdxml");
+		Files.writeString(directory.resolve("broken.qcdxml"), "not a circuit");
+		BatchRunner runner = new BatchRunner(directory, OutputFormat.JSON, 1);
+		BatchResult bell = runner.simulate(directory.resolve("bell.qcdxml"));
+		assertNull(bell.getError());
+		assertEquals(2, bell.getWires());
+		assertEquals(2, bell.getGates());
+		assertEquals(0.5, bell.getProbabilities().get(0), 1e-12);
+		assertEquals(0.5, bell.getProbabilities().get(1), 1e-12);
+		BatchResult broken = runner.simulate(directory.resolve("broken.qcdxml"));
+		assertTrue(broken.getError() != null);
+		assertTrue(broken.getProbabilities().isEmpty());
+	}
+
+	/**
+	 * A batch writes a line per circuit and counts the circuits that failed.
+	 * 
+	 * @throws Exception If the files cannot be written.
+	 */
+	@Test
+	public void runCountsFailures() throws Exception {
+		save("a.qcdxml");
+		save("b.qcdxml");
+		Files.writeString(directory.resolve("broken.qcdxml"), "not a circuit");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		LatencySummary summary = new BatchRunner(directory, OutputFormat.CSV, 2)
+				.run(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+		List<String> lines = Arrays.asList(bytes.toString(StandardCharsets.UTF_8).split("\\R"));
+		assertEquals(4, lines.size());
+		assertEquals(OutputFormat.CSV.header(), lines.get(0));
+		assertEquals(1, lines.stream().filter(line -> line.contains("broken.qcdxml")).count());
+		assertTrue(summary.toString().startsWith("3 circuits, 1 failed"));
+		assertTrue(summary.getPercentile(100) > 0);
+	}
+}
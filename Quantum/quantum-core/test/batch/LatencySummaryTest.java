@@ -0,0 +1,55 @@
+package batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link LatencySummary}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class LatencySummaryTest {
+	/**
+	 * Percentiles take the nearest rank of the sorted latencies, whatever order
+	 * the circuits finished in.
+	 */
+	@Test
+	public void percentilesTakeTheNearestRank() {
+		long[] latencies = { 50, 10, 40, 20, 30 };
+		LatencySummary summary = new LatencySummary(latencies, 0, 1_000_000_000L);
+		assertEquals(10, summary.getPercentile(0));
+		assertEquals(10, summary.getPercentile(20));
+		assertEquals(20, summary.getPercentile(21));
+		assertEquals(30, summary.getPercentile(50));
+		assertEquals(50, summary.getPercentile(90));
+		assertEquals(50, summary.getPercentile(100));
+		assertEquals(50, latencies[0]);
+		assertEquals(5.0, summary.getThroughput(), 1e-12);
+	}
+
+	/**
+	 * An empty batch has zero latencies and throughput.
+	 */
+	@Test
+	public void emptyBatchIsZero() {
+		LatencySummary summary = new LatencySummary(new long[0], 0, 0);
+		assertEquals(0, summary.getPercentile(50));
+		assertEquals(0, summary.getThroughput(), 0);
+		assertTrue(summary.toString().startsWith("0 circuits, 0 failed"));
+	}
+
+	/**
+	 * The summary line counts the failures and reports the percentiles in
+	 * milliseconds.
+	 */
+	@Test
+	public void summaryLineCountsFailures() {
+		LatencySummary summary = new LatencySummary(new long[] { 2_000_000, 1_000_000, 3_000_000, 4_000_000 }, 1,
+				2_000_000_000L);
+		assertEquals("4 circuits, 1 failed, 2000.000 ms, 2.00 circuits/s, p50 2.000 ms, p90 4.000 ms, p99 4.000 ms, "
+				+ "max 4.000 ms", summary.toString());
+	}
+}
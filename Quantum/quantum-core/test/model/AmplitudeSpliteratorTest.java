@@ -0,0 +1,113 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link AmplitudeSpliterator}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class AmplitudeSpliteratorTest {
+	/** The number of wires of the test states, four chunks long. */
+	private static final int WIRES = 14;
+
+	/**
+	 * @return A state of {@link #WIRES} wires where every amplitude differs and
+	 *         every sixteenth is large.
+	 */
+	private static ComplexArray state() {
+		ComplexArray returnValue = new ComplexArray(1 << WIRES);
+		for (int index = 0; index < returnValue.length(); ++index) {
+			returnValue.set(index, index % 16 == 0 ? 0.5 : 1e-3, index * 1e-9);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * @param spliterator A traversal.
+	 * @return The basis states it gives, one at a time.
+	 */
+	private static List<Long> advance(final Spliterator<Amplitude> spliterator) {
+		List<Long> returnValue = new ArrayList<>();
+		while (spliterator.tryAdvance(amplitude -> returnValue.add(amplitude.getIndex()))) {
+			// keeps advancing.
+		}
+		return returnValue;
+	}
+
+	/**
+	 * States split in halves down to two chunks, and the halves cover the state.
+	 */
+	@Test
+	public void splitsInHalvesDownToMinChunk() {
+		assertEquals(4 * AmplitudeSpliterator.MIN_CHUNK, 1 << WIRES);
+		AmplitudeSpliterator whole = new AmplitudeSpliterator(state(), WireLayout.identity(WIRES), 0);
+		assertTrue(whole.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+		Spliterator<Amplitude> firstHalf = whole.trySplit();
+		assertEquals(2 * AmplitudeSpliterator.MIN_CHUNK, firstHalf.estimateSize());
+		assertEquals(2 * AmplitudeSpliterator.MIN_CHUNK, whole.estimateSize());
+		Spliterator<Amplitude> firstQuarter = firstHalf.trySplit();
+		assertEquals(AmplitudeSpliterator.MIN_CHUNK, firstQuarter.estimateSize());
+		assertNull(firstQuarter.trySplit());
+		assertEquals(0L, (long) advance(firstQuarter).get(0));
+		assertEquals((long) AmplitudeSpliterator.MIN_CHUNK, (long) advance(firstHalf).get(0));
+		assertEquals(2L * AmplitudeSpliterator.MIN_CHUNK, (long) advance(whole).get(0));
+		assertNull(new AmplitudeSpliterator(new ComplexArray(2 * AmplitudeSpliterator.MIN_CHUNK - 1),
+				WireLayout.identity(WIRES), 0).trySplit());
+	}
+
+	/**
+	 * A threshold skips the small amplitudes, in one traversal or in parallel, and
+	 * the size is then only an estimate.
+	 */
+	@Test
+	public void thresholdSkipsSmallAmplitudes() {
+		AmplitudeSpliterator large = new AmplitudeSpliterator(state(), WireLayout.identity(WIRES), 0.2);
+		assertEquals(0, large.characteristics() & Spliterator.SIZED);
+		List<Long> expected = new ArrayList<>();
+		for (long index = 0; index < 1 << WIRES; index += 16) {
+			expected.add(index);
+		}
+		assertEquals(expected, advance(large));
+		List<Long> parallel = StreamSupport
+				.stream(new AmplitudeSpliterator(state(), WireLayout.identity(WIRES), 0.2), true)
+				.map(Amplitude::getIndex).collect(Collectors.toList());
+		assertEquals(expected, parallel);
+		List<Long> each = new ArrayList<>();
+		new AmplitudeSpliterator(state(), WireLayout.identity(WIRES), 0)
+				.forEachRemaining(amplitude -> each.add(amplitude.getIndex()));
+		assertEquals(1 << WIRES, each.size());
+	}
+
+	/**
+	 * Amplitudes of a relabeled state report their basis states, and a basis
+	 * state is traversed without a vector.
+	 */
+	@Test
+	public void reportsBasisStates() {
+		WireLayout layout = new WireLayout(new int[] { 0, 2, 1 });
+		ComplexArray state = new ComplexArray(8);
+		for (int index = 0; index < 8; ++index) {
+			state.set(index, index, 0);
+		}
+		List<Amplitude> amplitudes = new ArrayList<>();
+		new AmplitudeSpliterator(state, layout, 0).forEachRemaining(amplitudes::add);
+		for (int index = 0; index < 8; ++index) {
+			assertEquals(layout.toDefaultIndex(index), amplitudes.get(index).getIndex());
+			assertEquals(index, amplitudes.get(index).getReal());
+		}
+		assertEquals(Arrays.asList(5L), advance(new AmplitudeSpliterator(5, 0.5)));
+	}
+}
@@ -0,0 +1,81 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link BlockedScheduler}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class BlockedSchedulerTest {
+	/** The largest difference allowed between two amplitudes. */
+	private static final double TOLERANCE = 1e-12;
+
+	/**
+	 * Writes the description of one cache the way Linux does.
+	 * 
+	 * @param caches The cache directory of a CPU.
+	 * @param index  The number of the cache.
+	 * @param level  The cache level.
+	 * @param type   The cache type.
+	 * @param size   The cache size.
+	 * @throws IOException If the files cannot be written.
+	 */
+	private static void writeCache(final Path caches, final int index, final String level, final String type,
+			final String size) throws IOException {
+		Path directory = Files.createDirectories(caches.resolve("index" + index));
+		Files.write(directory.resolve("level"), Arrays.asList(level));
+		Files.write(directory.resolve("type"), Arrays.asList(type));
+		Files.write(directory.resolve("size"), Arrays.asList(size));
+	}
+
+	/**
+	 * The L2 size is read from the unified or data cache of level 2.
+	 * 
+	 * @param caches A directory for the cache descriptions.
+	 * @throws IOException If the files cannot be written.
+	 */
+	@Test
+	public void detectsL2Size(@TempDir final Path caches) throws IOException {
+		writeCache(caches, 0, "1", "Data", "48K");
+		writeCache(caches, 1, "1", "Instruction", "32K");
+		writeCache(caches, 2, "2", "Unified", "2048K");
+		assertEquals(2048L << 10, BlockedScheduler.detectL2Bytes(caches));
+		assertEquals(-1, BlockedScheduler.detectL2Bytes(caches.resolve("missing")));
+	}
+
+	/**
+	 * Running block by block gives the state of running gate by gate.
+	 */
+	@Test
+	public void blocksMatchWholeSweeps() {
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(6);
+		List<QuantumGate> gates = Arrays.asList(new SingleQuantumGate("H", 0, Arrays.asList(5)),
+				new SingleQuantumGate("H", 0, Arrays.asList(4)), new SingleQuantumGate("S", 0, Arrays.asList(3)),
+				new ControlledQuantumGate("CNOT", 1, Arrays.asList(5, 3)),
+				new SingleQuantumGate("T", 1, Arrays.asList(4)), new SingleQuantumGate("H", 2, Arrays.asList(0)),
+				new ControlledQuantumGate("CNOT", 3, Arrays.asList(0, 5)),
+				new SingleQuantumGate("Z", 3, Arrays.asList(4)));
+		WireLayout layout = WireLayout.identity(6);
+		ComplexArray blocked = qc.getStateArray(0).copy();
+		ComplexArray swept = blocked.copy();
+		BlockedScheduler scheduler = new BlockedScheduler(gates, layout, 3);
+		scheduler.run(blocked);
+		new BlockedScheduler(gates, layout, 6).run(swept);
+		for (int index = 0; index < swept.length(); ++index) {
+			assertEquals(swept.getReal(index), blocked.getReal(index), TOLERANCE);
+			assertEquals(swept.getImaginary(index), blocked.getImaginary(index), TOLERANCE);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link CircuitOptimizer} against the state vector of the circuit it
+ * optimized.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class CircuitOptimizerTest {
+	/**
+	 * Optimized circuits keep their final state.
+	 */
+	@Test
+	public void keepsFinalState() {
+		for (int wires = 1; wires <= 5; ++wires) {
+			for (long seed = 0; seed < 8; ++seed) {
+				QuantumCircuit qc = QuantumCircuitTest.randomCircuit(seed, wires, 20);
+				QuantumCircuit optimized = new CircuitOptimizer().optimize(qc);
+				QuantumCircuitTest.assertFinalState(qc, optimized.getFinalStateArray().toRow());
+			}
+		}
+	}
+
+	/**
+	 * Self-inverse pairs cancel across gates they commute with, and rotations on
+	 * the same wire merge.
+	 */
+	@Test
+	public void cancelsAndMerges() {
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(2);
+		qc.setGate(new ControlledQuantumGate("CNOT", 0, Arrays.asList(0, 1)));
+		qc.setGate(new SingleQuantumGateWithParameter("Rz", 0.5, 1, Arrays.asList(0)));
+		qc.setGate(new ControlledQuantumGate("CNOT", 2, Arrays.asList(0, 1)));
+		qc.setGate(new SingleQuantumGateWithParameter("Rz", 0.25, 3, Arrays.asList(0)));
+		CircuitOptimizer optimizer = new CircuitOptimizer();
+		QuantumCircuit optimized = optimizer.optimize(qc);
+		assertEquals(1, optimizer.getCancelledPairs());
+		assertEquals(1, optimizer.getMergedRotations());
+		assertEquals(1, optimized.getGates().size());
+		QuantumCircuitTest.assertFinalState(qc, optimized.getFinalStateArray().toRow());
+	}
+}
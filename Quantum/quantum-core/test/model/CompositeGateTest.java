@@ -0,0 +1,119 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link CompositeGate}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class CompositeGateTest {
+	/**
+	 * @param bodyGate The only gate of the oracle body, on local wire 0.
+	 * @return A two wire circuit with H on wire 0 and an oracle named Oracle on
+	 *         both wires.
+	 */
+	private static QuantumCircuit withOracle(final QuantumGate bodyGate) {
+		QuantumCircuit body = new QuantumCircuit();
+		body.setNumberOfQubits(2);
+		body.setGate(bodyGate);
+		QuantumCircuit returnValue = new QuantumCircuit();
+		returnValue.setNumberOfQubits(2);
+		returnValue.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		returnValue.setGate(new CompositeGate(returnValue.define("Oracle", body), 1, Arrays.asList(0, 1)));
+		return returnValue;
+	}
+
+	/**
+	 * @param bodyGate The only gate of the oracle body.
+	 * @return The circuit of {@link #withOracle(QuantumGate)} with the body laid
+	 *         out gate by gate.
+	 */
+	private static QuantumCircuit expanded(final QuantumGate bodyGate) {
+		QuantumCircuit returnValue = new QuantumCircuit();
+		returnValue.setNumberOfQubits(2);
+		returnValue.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		returnValue.setGate(bodyGate.withGatePosition(1));
+		return returnValue;
+	}
+
+	/**
+	 * @param qc A circuit.
+	 * @return The circuit saved and loaded again into a new circuit.
+	 * @throws Exception If the circuit cannot be saved or loaded.
+	 */
+	private static QuantumCircuit reload(final QuantumCircuit qc) throws Exception {
+		ByteArrayOutputStream xml = new ByteArrayOutputStream();
+		qc.getAsXML(xml);
+		QuantumCircuit returnValue = new QuantumCircuit();
+		returnValue.loadFromXML(new ByteArrayInputStream(xml.toByteArray()));
+		return returnValue;
+	}
+
+	/**
+	 * Two circuits may give one name to different bodies, and each simulates its
+	 * own body, loaded from a file or not.
+	 * 
+	 * @throws Exception If a circuit cannot be saved or loaded.
+	 */
+	@Test
+	public void circuitsKeepTheirOwnDefinitions() throws Exception {
+		QuantumGate first = new ControlledQuantumGate("CNOT", 0, Arrays.asList(0, 1));
+		QuantumGate second = new SingleQuantumGate("Z", 0, Arrays.asList(0));
+		QuantumCircuit firstCircuit = withOracle(first);
+		QuantumCircuit secondCircuit = withOracle(second);
+		QuantumCircuitTest.assertSameStates(expanded(first), firstCircuit);
+		QuantumCircuitTest.assertSameStates(expanded(second), secondCircuit);
+		QuantumCircuitTest.assertSameStates(expanded(first), reload(firstCircuit));
+		QuantumCircuitTest.assertSameStates(expanded(second), reload(secondCircuit));
+		QuantumCircuitTest.assertSameStates(expanded(first), firstCircuit.copy());
+	}
+
+	/**
+	 * A body with an empty column, saved with its gates out of order, loads with
+	 * all of its gates.
+	 * 
+	 * @throws Exception If the circuit cannot be saved or loaded.
+	 */
+	@Test
+	public void bodiesKeepGatesAfterEmptyColumn() throws Exception {
+		QuantumCircuit body = new QuantumCircuit();
+		body.setNumberOfQubits(2);
+		body.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		body.setGate(new SingleQuantumGate("X", 1, Arrays.asList(0)));
+		body.setGate(new SingleQuantumGate("Y", 2, Arrays.asList(1)));
+		body.setGate(new SingleQuantumGate("Z", 3, Arrays.asList(0)));
+		body.setGate(new SingleQuantumGate("T", 2, Arrays.asList(0)));
+		body.setGate(new SingleQuantumGate("I", 1, Arrays.asList(0)));
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(2);
+		qc.setGate(new CompositeGate(qc.define("Oracle", body), 0, Arrays.asList(0, 1)));
+		QuantumCircuit loaded = reload(qc);
+		assertEquals(4, loaded.getDefinition("Oracle").getGates().size());
+		QuantumCircuitTest.assertSameStates(qc, loaded);
+	}
+
+	/**
+	 * One circuit refuses a second body for a name it already defined.
+	 */
+	@Test
+	public void circuitRefusesAnotherBodyForOneName() {
+		QuantumCircuit qc = withOracle(new SingleQuantumGate("X", 0, Arrays.asList(0)));
+		QuantumCircuit sameBody = new QuantumCircuit();
+		sameBody.setNumberOfQubits(2);
+		sameBody.setGate(new SingleQuantumGate("X", 0, Arrays.asList(0)));
+		assertEquals(qc.getDefinition("Oracle"), qc.define("Oracle", sameBody));
+		QuantumCircuit otherBody = new QuantumCircuit();
+		otherBody.setNumberOfQubits(2);
+		otherBody.setGate(new SingleQuantumGate("Y", 0, Arrays.asList(0)));
+		assertThrows(IllegalArgumentException.class, () -> qc.define("Oracle", otherBody));
+	}
+}
@@ -0,0 +1,98 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link ControlledQuantumGate} and
+ * {@link ControlledQuantumGateWithParameter}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class ControlledQuantumGateTest {
+	/** The largest difference allowed between two amplitudes. */
+	private static final double TOLERANCE = 1e-12;
+
+	/**
+	 * Checks that the kernel of a gate is its dense matrix, for a gate with no
+	 * wires in between, so both cover the same wires.
+	 * 
+	 * @param gate The gate to check.
+	 */
+	private static void assertKernelIsMatrix(final QuantumGate gate) {
+		Complex[][] expected = gate.getGateMatrix();
+		Complex[][] actual = gate.buildKernel().toMatrix();
+		assertEquals(expected.length, actual.length);
+		for (int row = 0; row < expected.length; ++row) {
+			for (int col = 0; col < expected.length; ++col) {
+				assertEquals(expected[row][col].getReal(), actual[row][col].getReal(), TOLERANCE);
+				assertEquals(expected[row][col].getImaginary(), actual[row][col].getImaginary(), TOLERANCE);
+			}
+		}
+	}
+
+	/**
+	 * The kernels built from the controls match the dense matrices.
+	 */
+	@Test
+	public void kernelsMatchDenseMatrices() {
+		for (String type : Arrays.asList("CNOT", "C0NOT", "CH", "C0H")) {
+			assertKernelIsMatrix(new ControlledQuantumGate(type, 0, Arrays.asList(0, 1)));
+		}
+		assertKernelIsMatrix(new ControlledQuantumGate("CNOT", 0, Arrays.asList(1, 0)));
+		for (String type : Arrays.asList("CCNOT", "CC00NOT", "CCH", "CC00H")) {
+			assertKernelIsMatrix(new ControlledQuantumGate(type, 0, Arrays.asList(1, 0, 2)));
+		}
+		for (String type : Arrays.asList("CCCNOT", "CCC000NOT")) {
+			assertKernelIsMatrix(new ControlledQuantumGate(type, 0, Arrays.asList(0, 2, 1, 3)));
+		}
+		for (String type : Arrays.asList("CRx", "CRy", "CRz", "C0Rx", "C0Ry", "C0Rz")) {
+			assertKernelIsMatrix(new ControlledQuantumGateWithParameter(type, 0.7, 0, Arrays.asList(0, 1)));
+		}
+	}
+
+	/**
+	 * Layouts the gates do not support are still refused.
+	 */
+	@Test
+	public void unsupportedLayoutsAreRefused() {
+		assertThrows(UnsupportedOperationException.class,
+				() -> new ControlledQuantumGate("CH", 0, Arrays.asList(1, 0)).buildKernel());
+		assertThrows(UnsupportedOperationException.class,
+				() -> new ControlledQuantumGate("CCNOT", 0, Arrays.asList(0, 2, 3)).buildKernel());
+		assertThrows(UnsupportedOperationException.class,
+				() -> new ControlledQuantumGateWithParameter("CRz", 1, 0, Arrays.asList(1, 0)).buildKernel());
+	}
+
+	/**
+	 * Gates spanning the whole of a wide circuit only cost their own wires.
+	 */
+	@Test
+	public void wideGatesOnlyCoverTheirWires() {
+		final int wires = 21;
+		List<QuantumGate> gates = Arrays.asList(new ControlledQuantumGate("CNOT", 1, Arrays.asList(0, 20)),
+				new ControlledQuantumGate("CCNOT", 2, Arrays.asList(0, 1, 19)),
+				new ControlledQuantumGateWithParameter("CRz", Math.PI, 3, Arrays.asList(0, 20)));
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(wires);
+		qc.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		qc.setGate(new SingleQuantumGate("X", 0, Arrays.asList(1)));
+		for (QuantumGate gate : gates) {
+			qc.setGate(gate);
+			assertEquals(gate.getWires().size(),
+					GateMatrixRegistry.getInstance().getKernel(gate).getWires().length);
+		}
+		StateView state = qc.getStateView(4);
+		long untouched = 1L << (wires - 2);
+		long flipped = untouched | 1L << (wires - 1) | 1L << 1 | 1L;
+		assertEquals(1 / Math.sqrt(2), state.getReal(untouched), TOLERANCE);
+		assertEquals(0, state.getReal(flipped), TOLERANCE);
+		assertEquals(1 / Math.sqrt(2), state.getImaginary(flipped), TOLERANCE);
+	}
+}
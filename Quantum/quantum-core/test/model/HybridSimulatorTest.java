@@ -0,0 +1,51 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link HybridSimulator} against the state vector of
+ * {@link QuantumCircuit}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class HybridSimulatorTest {
+	/**
+	 * The cut found for circuits of every width gives the final state.
+	 */
+	@Test
+	public void matchesFinalState() {
+		for (int wires = 1; wires <= 6; ++wires) {
+			for (long seed = 0; seed < 4; ++seed) {
+				QuantumCircuit qc = QuantumCircuitTest.randomCircuit(seed, wires, 12);
+				QuantumCircuitTest.assertFinalState(qc,
+						new HybridSimulator(qc).amplitudes(QuantumCircuitTest.allBasisStates(wires)));
+			}
+		}
+	}
+
+	/**
+	 * Every cut gives the final state, empty halves included.
+	 */
+	@Test
+	public void everyCutMatchesFinalState() {
+		QuantumCircuit qc = QuantumCircuitTest.randomCircuit(7, 4, 16);
+		for (int cut = 0; cut <= 4; ++cut) {
+			HybridSimulator simulator = new HybridSimulator(qc, cut);
+			assertEquals(cut, simulator.getCut());
+			QuantumCircuitTest.assertFinalState(qc, simulator.amplitudes(QuantumCircuitTest.allBasisStates(4)));
+		}
+	}
+
+	/**
+	 * A circuit of one wire is simulated without a cut.
+	 */
+	@Test
+	public void simulatesOneWire() {
+		QuantumCircuit qc = QuantumCircuitTest.randomCircuit(3, 1, 5);
+		assertEquals(0, HybridSimulator.findCut(qc));
+		QuantumCircuitTest.assertFinalState(qc, new HybridSimulator(qc).amplitudes(new long[] { 0, 1 }));
+	}
+}
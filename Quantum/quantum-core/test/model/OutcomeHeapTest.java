@@ -0,0 +1,109 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link OutcomeHeap}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class OutcomeHeapTest {
+	/**
+	 * @param outcomes Drained outcomes.
+	 * @return Their basis states, in order.
+	 */
+	private static List<Long> indexes(final Outcome[] outcomes) {
+		return Arrays.stream(outcomes).map(Outcome::getIndex).collect(Collectors.toList());
+	}
+
+	/**
+	 * @param probabilities The probability of each basis state.
+	 * @param k             The number of basis states to keep.
+	 * @return The k most probable basis states by a full sort, lower basis states
+	 *         first among ties.
+	 */
+	private static List<Long> sorted(final double[] probabilities, final int k) {
+		return IntStream.range(0, probabilities.length).boxed()
+				.sorted(Comparator.comparingDouble((Integer index) -> -probabilities[index])
+						.thenComparing(Comparator.naturalOrder()))
+				.limit(k).map(Integer::longValue).collect(Collectors.toList());
+	}
+
+	/**
+	 * @param seed The seed of the probabilities.
+	 * @return Probabilities of 200 basis states, with many ties.
+	 */
+	private static double[] randomProbabilities(final long seed) {
+		Random random = new Random(seed);
+		double[] returnValue = new double[200];
+		for (int index = 0; index < returnValue.length; ++index) {
+			returnValue[index] = random.nextInt(20) / 20.0;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * A full heap keeps the lower basis state among equal probabilities, and
+	 * drains them lower first.
+	 */
+	@Test
+	public void tiesKeepTheLowerBasisState() {
+		OutcomeHeap heap = new OutcomeHeap(2);
+		heap.offer(5, 0.25);
+		heap.offer(7, 0.25);
+		heap.offer(2, 0.25);
+		heap.offer(1, 0.125);
+		assertFalse(heap.accepts(0.125));
+		assertTrue(heap.accepts(0.25));
+		assertEquals(Arrays.asList(2L, 5L), indexes(heap.drain(3)));
+	}
+
+	/**
+	 * Draining gives the k most probable entries, most probable first, whatever
+	 * the order they were offered in.
+	 */
+	@Test
+	public void drainGoesMostProbableFirst() {
+		for (long seed = 1; seed <= 4; ++seed) {
+			double[] probabilities = randomProbabilities(seed);
+			OutcomeHeap heap = new OutcomeHeap(16);
+			for (int index = probabilities.length - 1; index >= 0; --index) {
+				heap.offer(index, probabilities[index]);
+			}
+			Outcome[] outcomes = heap.drain(8);
+			assertEquals(sorted(probabilities, 16), indexes(outcomes));
+			for (Outcome outcome : outcomes) {
+				assertEquals(probabilities[(int) outcome.getIndex()], outcome.getProbability());
+			}
+		}
+		assertEquals(0, new OutcomeHeap(4).drain(2).length);
+	}
+
+	/**
+	 * Merged heaps of separate chunks keep what one heap over every entry keeps.
+	 */
+	@Test
+	public void mergeKeepsTheBestOfBoth() {
+		for (long seed = 1; seed <= 4; ++seed) {
+			double[] probabilities = randomProbabilities(seed);
+			OutcomeHeap first = new OutcomeHeap(8);
+			OutcomeHeap second = new OutcomeHeap(8);
+			for (int index = 0; index < probabilities.length; ++index) {
+				(index < 120 ? first : second).offer(index, probabilities[index]);
+			}
+			assertEquals(sorted(probabilities, 8), indexes(second.merge(first).drain(8)));
+		}
+	}
+}
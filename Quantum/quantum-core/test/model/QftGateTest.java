@@ -0,0 +1,151 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link QftGate} and {@link FourierKernel} against the Hadamard and
+ * controlled phase ladder they stand for.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class QftGateTest {
+	/** The largest difference allowed between two amplitudes. */
+	private static final double TOLERANCE = 1e-9;
+
+	/**
+	 * Lays out the quantum Fourier transform gate by gate: a Hadamard on each wire
+	 * followed by phases controlled by the less significant wires, then swaps that
+	 * reverse the wires. A controlled phase is a CRz and an Rz of half the angle
+	 * on the control, which only adds a global phase.
+	 * 
+	 * @param qc       The circuit.
+	 * @param wires    The wires of the transform, most significant first.
+	 * @param position The first position to use.
+	 * @return The position after the transform.
+	 */
+	private static int expandedQft(final QuantumCircuit qc, final List<Integer> wires, final int position) {
+		int next = position;
+		for (int first = 0; first < wires.size(); ++first) {
+			qc.setGate(new SingleQuantumGate("H", next++, Arrays.asList(wires.get(first))));
+			for (int second = first + 1; second < wires.size(); ++second) {
+				double angle = Math.PI / (1 << (second - first));
+				int control = Math.min(wires.get(first), wires.get(second));
+				int target = Math.max(wires.get(first), wires.get(second));
+				qc.setGate(
+						new ControlledQuantumGateWithParameter("CRz", angle, next++, Arrays.asList(control, target)));
+				qc.setGate(new SingleQuantumGateWithParameter("Rz", angle / 2, next++, Arrays.asList(control)));
+			}
+		}
+		for (int first = 0; first < wires.size() / 2; ++first) {
+			int a = wires.get(first);
+			int b = wires.get(wires.size() - 1 - first);
+			qc.setGate(new ControlledQuantumGate("CNOT", next++, Arrays.asList(a, b)));
+			qc.setGate(new ControlledQuantumGate("CNOT", next++, Arrays.asList(b, a)));
+			qc.setGate(new ControlledQuantumGate("CNOT", next++, Arrays.asList(a, b)));
+		}
+		return next;
+	}
+
+	/**
+	 * @param wires The number of wires.
+	 * @return A circuit of rotations and a CNOT, so the transform sees an
+	 *         entangled state with no zero amplitudes.
+	 */
+	private static QuantumCircuit prepared(final int wires) {
+		QuantumCircuit returnValue = new QuantumCircuit();
+		returnValue.setNumberOfQubits(wires);
+		for (int wire = 0; wire < wires; ++wire) {
+			returnValue.setGate(new SingleQuantumGateWithParameter("Ry", 0.3 + 0.4 * wire, 0, Arrays.asList(wire)));
+			returnValue.setGate(new SingleQuantumGateWithParameter("Rz", 0.5 + 0.2 * wire, 1, Arrays.asList(wire)));
+		}
+		returnValue.setGate(new ControlledQuantumGate("CNOT", 2, Arrays.asList(0, wires - 1)));
+		return returnValue;
+	}
+
+	/**
+	 * Checks that two states are equal up to a global phase.
+	 * 
+	 * @param expected The expected state.
+	 * @param actual   The state to check.
+	 */
+	private static void assertSameUpToPhase(final Complex[][] expected, final Complex[][] actual) {
+		assertEquals(expected.length, actual.length);
+		double real = 0;
+		double imaginary = 0;
+		for (int row = 0; row < expected.length; ++row) {
+			Complex e = expected[row][0];
+			Complex a = actual[row][0];
+			real += e.getReal() * a.getReal() + e.getImaginary() * a.getImaginary();
+			imaginary += e.getReal() * a.getImaginary() - e.getImaginary() * a.getReal();
+		}
+		// the overlap of two unit states only has modulus one if they match.
+		assertEquals(1, Math.hypot(real, imaginary), TOLERANCE);
+	}
+
+	/**
+	 * The gate transforms a state as the expanded circuit does, on any wires in
+	 * any order, and its inverse undoes it.
+	 */
+	@Test
+	public void qftGateMatchesExpandedCircuit() {
+		for (List<Integer> wires : Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(1, 3, 4),
+				Arrays.asList(4, 0, 2, 1), Arrays.asList(0, 1, 2, 3, 4))) {
+			QuantumCircuit gate = prepared(5);
+			gate.setGate(new QftGate("QFT", 3, wires));
+			assertTrue(GateMatrixRegistry.getInstance().getKernel(gate.getGates().stream()
+					.filter(g -> g instanceof QftGate).findFirst().get()) instanceof FourierKernel);
+			QuantumCircuit expanded = prepared(5);
+			expandedQft(expanded, wires, 3);
+			assertSameUpToPhase(expanded.getFinalState(), gate.getFinalState());
+			gate.setGate(new QftGate("IQFT", 4, wires));
+			QuantumCircuit reference = prepared(5);
+			Complex[][] expected = reference.getFinalState();
+			Complex[][] actual = gate.getFinalState();
+			for (int row = 0; row < expected.length; ++row) {
+				assertEquals(expected[row][0].getReal(), actual[row][0].getReal(), TOLERANCE);
+				assertEquals(expected[row][0].getImaginary(), actual[row][0].getImaginary(), TOLERANCE);
+			}
+		}
+	}
+
+	/**
+	 * The dense matrix of the kernel is the unitary of the expanded circuit, up to
+	 * one global phase for every column, and the inverse is its adjoint.
+	 */
+	@Test
+	public void fourierKernelMatchesExpandedCircuit() {
+		final int wires = 3;
+		Complex[][] matrix = new FourierKernel(new int[] { 0, 1, 2 }, false).toMatrix();
+		Complex[][] inverse = new FourierKernel(new int[] { 0, 1, 2 }, true).toMatrix();
+		double real = 0;
+		double imaginary = 0;
+		for (int col = 0; col < 1 << wires; ++col) {
+			QuantumCircuit qc = new QuantumCircuit();
+			qc.setNumberOfQubits(wires);
+			for (int wire = 0; wire < wires; ++wire) {
+				if ((col & (1 << (wires - 1 - wire))) != 0) {
+					qc.getWires().get(wire).xStart();
+				}
+			}
+			expandedQft(qc, Arrays.asList(0, 1, 2), 0);
+			Complex[][] column = qc.getFinalState();
+			for (int row = 0; row < 1 << wires; ++row) {
+				Complex e = column[row][0];
+				Complex a = matrix[row][col];
+				real += e.getReal() * a.getReal() + e.getImaginary() * a.getImaginary();
+				imaginary += e.getReal() * a.getImaginary() - e.getImaginary() * a.getReal();
+				assertEquals(a.getReal(), inverse[col][row].getReal(), TOLERANCE);
+				assertEquals(-a.getImaginary(), inverse[col][row].getImaginary(), TOLERANCE);
+			}
+		}
+		// each column overlaps by one, which only sums to modulus 2^k with one phase.
+		assertEquals(1 << wires, Math.hypot(real, imaginary), TOLERANCE);
+	}
+}
@@ -0,0 +1,358 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link QuantumCircuit}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class QuantumCircuitTest {
+	/** The largest difference allowed between two amplitudes. */
+	private static final double TOLERANCE = 1e-12;
+
+	/**
+	 * Checks that two circuits have the same state at every position.
+	 * 
+	 * @param expected The reference circuit.
+	 * @param actual   The circuit to check.
+	 */
+	static void assertSameStates(final QuantumCircuit expected, final QuantumCircuit actual) {
+		assertEquals(expected.getMaxWireGatePosition(), actual.getMaxWireGatePosition());
+		for (int position = 0; position <= expected.getMaxWireGatePosition() + 1; ++position) {
+			Complex[][] expectedState = expected.getState(position);
+			Complex[][] actualState = actual.getState(position);
+			assertEquals(expectedState.length, actualState.length);
+			for (int row = 0; row < expectedState.length; ++row) {
+				assertEquals(expectedState[row][0].getReal(), actualState[row][0].getReal(), TOLERANCE);
+				assertEquals(expectedState[row][0].getImaginary(), actualState[row][0].getImaginary(), TOLERANCE);
+			}
+		}
+	}
+
+	/**
+	 * Builds a circuit of random single, rotation and controlled gates, with some
+	 * wires starting at one.
+	 * 
+	 * @param seed      The seed of the gates.
+	 * @param wires     The number of wires.
+	 * @param positions The number of positions.
+	 * @return The circuit.
+	 */
+	static QuantumCircuit randomCircuit(final long seed, final int wires, final int positions) {
+		final List<String> singles = Arrays.asList("H", "X", "Y", "Z", "S", "T");
+		final List<String> rotations = Arrays.asList("Rx", "Ry", "Rz");
+		final List<String> controlled = Arrays.asList("CNOT", "C0NOT", "CH");
+		Random random = new Random(seed);
+		QuantumCircuit returnValue = new QuantumCircuit();
+		returnValue.setNumberOfQubits(wires);
+		for (int wire = 0; wire < wires; ++wire) {
+			if (random.nextBoolean()) {
+				returnValue.getWires().get(wire).xStart();
+			}
+		}
+		for (int position = 0; position < positions; ++position) {
+			int wire = random.nextInt(wires);
+			int kind = random.nextInt(wires > 1 ? 3 : 2);
+			if (kind == 0) {
+				returnValue.setGate(new SingleQuantumGate(singles.get(random.nextInt(singles.size())), position,
+						Arrays.asList(wire)));
+			} else if (kind == 1) {
+				returnValue.setGate(new SingleQuantumGateWithParameter(rotations.get(random.nextInt(rotations.size())),
+						random.nextDouble() * 2 * Math.PI, position, Arrays.asList(wire)));
+			} else {
+				// controls sit above the target.
+				int other = (wire + 1 + random.nextInt(wires - 1)) % wires;
+				returnValue.setGate(new ControlledQuantumGate(controlled.get(random.nextInt(controlled.size())),
+						position, Arrays.asList(Math.min(wire, other), Math.max(wire, other))));
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Checks amplitudes against the final state of a circuit.
+	 * 
+	 * @param qc         The reference circuit.
+	 * @param amplitudes The amplitude of every basis state, with wire zero as the
+	 *                   most significant bit.
+	 */
+	static void assertFinalState(final QuantumCircuit qc, final Complex[] amplitudes) {
+		Complex[][] expected = qc.getFinalState();
+		assertEquals(expected.length, amplitudes.length);
+		for (int row = 0; row < expected.length; ++row) {
+			assertEquals(expected[row][0].getReal(), amplitudes[row].getReal(), TOLERANCE);
+			assertEquals(expected[row][0].getImaginary(), amplitudes[row].getImaginary(), TOLERANCE);
+		}
+	}
+
+	/**
+	 * @param numberOfWires The number of wires.
+	 * @return Every basis state of the wires.
+	 */
+	static long[] allBasisStates(final int numberOfWires) {
+		return LongStream.range(0, 1L << numberOfWires).toArray();
+	}
+
+	/**
+	 * @return A circuit of H, X and H on one wire, whose X was then removed so the
+	 *         middle column is empty.
+	 */
+	private static QuantumCircuit withEmptyColumn() {
+		QuantumCircuit returnValue = new QuantumCircuit();
+		returnValue.setNumberOfQubits(2);
+		returnValue.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		returnValue.setGate(new SingleQuantumGate("X", 1, Arrays.asList(0)));
+		returnValue.setGate(new SingleQuantumGate("H", 2, Arrays.asList(1)));
+		returnValue.setGate(new SingleQuantumGate("I", 1, Arrays.asList(0)));
+		return returnValue;
+	}
+
+	/**
+	 * A copy keeps the gates after an empty column.
+	 */
+	@Test
+	public void copyKeepsGatesAfterEmptyColumn() {
+		QuantumCircuit qc = withEmptyColumn();
+		assertEquals(2, qc.getGates().size());
+		QuantumCircuit copy = qc.copy();
+		assertEquals(2, copy.getGates().size());
+		assertSameStates(qc, copy);
+	}
+
+	/**
+	 * A saved circuit loads with the gates after an empty column.
+	 * 
+	 * @throws Exception If the circuit cannot be saved or loaded.
+	 */
+	@Test
+	public void loadKeepsGatesAfterEmptyColumn() throws Exception {
+		QuantumCircuit qc = withEmptyColumn();
+		ByteArrayOutputStream xml = new ByteArrayOutputStream();
+		qc.getAsXML(xml);
+		QuantumCircuit loaded = new QuantumCircuit();
+		loaded.loadFromXML(new ByteArrayInputStream(xml.toByteArray()));
+		assertEquals(2, loaded.getGates().size());
+		assertSameStates(qc, loaded);
+	}
+
+	/**
+	 * Repeating a segment keeps the gates after an empty column further on, and
+	 * keeps the segment itself after an empty column before it.
+	 */
+	@Test
+	public void repeatSegmentKeepsGatesAfterEmptyColumn() {
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(2);
+		qc.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		qc.setGate(new ControlledQuantumGate("CNOT", 1, Arrays.asList(0, 1)));
+		qc.setGate(new SingleQuantumGate("S", 2, Arrays.asList(1)));
+		qc.setGate(new SingleQuantumGate("X", 3, Arrays.asList(0)));
+		qc.setGate(new SingleQuantumGate("H", 4, Arrays.asList(1)));
+		qc.setGate(new SingleQuantumGate("I", 3, Arrays.asList(0)));
+		qc.repeatSegment("RepeatedSegment", 0, 1, 2);
+		assertEquals(3, qc.getGates().size());
+
+		QuantumCircuit expanded = new QuantumCircuit();
+		expanded.setNumberOfQubits(2);
+		expanded.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		expanded.setGate(new ControlledQuantumGate("CNOT", 1, Arrays.asList(0, 1)));
+		expanded.setGate(new SingleQuantumGate("H", 2, Arrays.asList(0)));
+		expanded.setGate(new ControlledQuantumGate("CNOT", 3, Arrays.asList(0, 1)));
+		expanded.setGate(new SingleQuantumGate("S", 4, Arrays.asList(1)));
+		expanded.setGate(new SingleQuantumGate("H", 5, Arrays.asList(1)));
+		Complex[][] expected = expanded.getFinalState();
+		Complex[][] actual = qc.getFinalState();
+		for (int row = 0; row < expected.length; ++row) {
+			assertEquals(expected[row][0].getReal(), actual[row][0].getReal(), TOLERANCE);
+			assertEquals(expected[row][0].getImaginary(), actual[row][0].getImaginary(), TOLERANCE);
+		}
+
+		QuantumCircuit gapBefore = new QuantumCircuit();
+		gapBefore.setNumberOfQubits(1);
+		gapBefore.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		gapBefore.setGate(new SingleQuantumGate("X", 1, Arrays.asList(0)));
+		gapBefore.setGate(new SingleQuantumGate("S", 2, Arrays.asList(0)));
+		gapBefore.setGate(new SingleQuantumGate("T", 3, Arrays.asList(0)));
+		gapBefore.setGate(new SingleQuantumGate("I", 1, Arrays.asList(0)));
+		gapBefore.repeatSegment("SEG", 2, 3, 3);
+		assertEquals(2, gapBefore.getGates().size());
+
+		QuantumCircuit repeated = new QuantumCircuit();
+		repeated.setNumberOfQubits(1);
+		repeated.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		for (int repetition = 0; repetition < 3; ++repetition) {
+			repeated.setGate(new SingleQuantumGate("S", 1 + 2 * repetition, Arrays.asList(0)));
+			repeated.setGate(new SingleQuantumGate("T", 2 + 2 * repetition, Arrays.asList(0)));
+		}
+		expected = repeated.getFinalState();
+		actual = gapBefore.getFinalState();
+		for (int row = 0; row < expected.length; ++row) {
+			assertEquals(expected[row][0].getReal(), actual[row][0].getReal(), TOLERANCE);
+			assertEquals(expected[row][0].getImaginary(), actual[row][0].getImaginary(), TOLERANCE);
+		}
+	}
+
+	/**
+	 * Classical states follow edits to the gates and to the wire starts.
+	 */
+	@Test
+	public void reversibleStatesFollowEdits() {
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(3);
+		qc.setGate(new SingleQuantumGate("X", 0, Arrays.asList(0)));
+		qc.setGate(new ControlledQuantumGate("CNOT", 1, Arrays.asList(0, 1)));
+		qc.setGate(new ControlledQuantumGate("CNOT", 2, Arrays.asList(1, 2)));
+		assertEquals(true, qc.isReversible());
+		assertEquals(1.0, qc.getQubitProbabilities(3).get(2).getReal(), TOLERANCE);
+		qc.setGate(new SingleQuantumGate("X", 1, Arrays.asList(0)));
+		assertEquals(0.0, qc.getQubitProbabilities(3).get(2).getReal(), TOLERANCE);
+		qc.getWires().get(1).xStart();
+		assertEquals(1.0, qc.getQubitProbabilities(3).get(2).getReal(), TOLERANCE);
+		qc.setGate(new SingleQuantumGate("H", 0, Arrays.asList(2)));
+		assertEquals(false, qc.isReversible());
+		qc.setGate(new SingleQuantumGate("I", 0, Arrays.asList(2)));
+		assertEquals(true, qc.isReversible());
+		assertEquals(1.0, qc.getQubitProbabilities(3).get(2).getReal(), TOLERANCE);
+	}
+
+	/**
+	 * Checks that two circuits give the same qubit probabilities at every
+	 * position, visiting the positions in order.
+	 * 
+	 * @param expected  The reference circuit.
+	 * @param actual    The circuit to check.
+	 * @param ascending Whether to visit the positions from first to last.
+	 */
+	private static void assertSameProbabilities(final QuantumCircuit expected, final QuantumCircuit actual,
+			final boolean ascending) {
+		int last = expected.getMaxWireGatePosition() + 1;
+		for (int n = 0; n <= last; ++n) {
+			int position = ascending ? n : last - n;
+			List<Complex> expectedProbabilities = expected.getQubitProbabilities(position);
+			List<Complex> actualProbabilities = actual.getQubitProbabilities(position);
+			for (int wire = 0; wire < expectedProbabilities.size(); ++wire) {
+				assertEquals(expectedProbabilities.get(wire).getReal(), actualProbabilities.get(wire).getReal(),
+						TOLERANCE);
+			}
+		}
+	}
+
+	/**
+	 * Wide circuits, which try a factorized state and relabel their wires, give
+	 * the probabilities and states of narrow ones, in any order and after edits.
+	 */
+	@Test
+	public void wideCircuitPathsMatchStateVector() {
+		for (long seed = 1; seed <= 4; ++seed) {
+			QuantumCircuit reference = randomCircuit(seed, 8, 30);
+			reference.setRelabelThreshold(Integer.MAX_VALUE);
+			QuantumCircuit wide = randomCircuit(seed, 8, 30);
+			wide.setRelabelThreshold(4);
+			assertSameProbabilities(reference, wide, true);
+			assertSameProbabilities(reference, wide, false);
+			for (QuantumCircuit qc : Arrays.asList(reference, wide)) {
+				qc.setGate(new SingleQuantumGate("H", 3, Arrays.asList(2)));
+				qc.getWires().get(0).xStart();
+			}
+			assertSameProbabilities(reference, wide, true);
+			assertSameStates(reference, wide);
+		}
+	}
+
+	/**
+	 * A classical circuit too wide for a state vector still gives its
+	 * probabilities, and refuses its state instead of allocating a wrapped size.
+	 */
+	@Test
+	public void wideClassicalCircuitRefusesStateVector() {
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(31);
+		qc.setGate(new SingleQuantumGate("X", 0, Arrays.asList(0)));
+		qc.setGate(new ControlledQuantumGate("CNOT", 1, Arrays.asList(0, 30)));
+		assertEquals(true, qc.isReversible());
+		assertEquals(1.0, qc.getQubitProbabilities(2).get(30).getReal(), TOLERANCE);
+		assertThrows(IllegalStateException.class, () -> qc.getState(2));
+		assertThrows(IllegalStateException.class, () -> qc.getFinalStateArray());
+	}
+
+	/**
+	 * The UI still only appends one column past the last gate.
+	 */
+	@Test
+	public void setGateAppendsOneColumnAtMost() {
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(1);
+		qc.setGate(new SingleQuantumGate("H", 2, Arrays.asList(0)));
+		assertEquals(0, qc.getGates().size());
+	}
+
+	/**
+	 * The most probable outcomes of a state scanned in several chunks are those of
+	 * a sort of the whole state, lower basis states first among ties.
+	 */
+	@Test
+	public void topKMatchesSortedState() {
+		QuantumCircuit qc = randomCircuit(5, 15, 40);
+		int position = qc.getMaxWireGatePosition() + 1;
+		Complex[][] state = qc.getState(position);
+		double[] probabilities = new double[state.length];
+		for (int row = 0; row < state.length; ++row) {
+			probabilities[row] = state[row][0].getReal() * state[row][0].getReal()
+					+ state[row][0].getImaginary() * state[row][0].getImaginary();
+		}
+		List<Long> expected = IntStream.range(0, state.length).boxed()
+				.sorted(Comparator.comparingDouble((Integer row) -> -probabilities[row])
+						.thenComparing(Comparator.naturalOrder()))
+				.limit(10).map(Integer::longValue).collect(Collectors.toList());
+		List<Outcome> outcomes = qc.topK(10, position);
+		assertEquals(expected, outcomes.stream().map(Outcome::getIndex).collect(Collectors.toList()));
+		for (Outcome outcome : outcomes) {
+			assertEquals(probabilities[(int) outcome.getIndex()], outcome.getProbability(), TOLERANCE);
+		}
+	}
+
+	/**
+	 * Equally probable outcomes keep the lower basis states, a classical state
+	 * has one outcome, and both return a list the caller may change.
+	 */
+	@Test
+	public void topKKeepsLowerTiesAndReturnsNewLists() {
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(3);
+		for (int wire = 0; wire < 3; ++wire) {
+			qc.setGate(new SingleQuantumGate("H", 0, Arrays.asList(wire)));
+		}
+		List<Outcome> outcomes = qc.topK(3, 1);
+		assertEquals(Arrays.asList(0L, 1L, 2L), outcomes.stream().map(Outcome::getIndex).collect(Collectors.toList()));
+		assertEquals(0.125, outcomes.get(0).getProbability(), TOLERANCE);
+		assertEquals(8, qc.topK(20, 1).size());
+		assertEquals(0, qc.topK(0, 1).size());
+		outcomes.remove(0);
+		assertEquals(2, outcomes.size());
+		QuantumCircuit classical = new QuantumCircuit();
+		classical.setNumberOfQubits(3);
+		classical.setGate(new SingleQuantumGate("X", 0, Arrays.asList(0)));
+		assertEquals(true, classical.isReversible());
+		outcomes = classical.topK(3, 1);
+		assertEquals(1, outcomes.size());
+		assertEquals(4, outcomes.get(0).getIndex());
+		assertEquals("100", outcomes.get(0).getBitString());
+		outcomes.remove(0);
+		assertEquals(0, outcomes.size());
+	}
+}
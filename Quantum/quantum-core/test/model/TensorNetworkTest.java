@@ -0,0 +1,35 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link TensorNetwork} against the state vector of
+ * {@link QuantumCircuit}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class TensorNetworkTest {
+	/**
+	 * Contracting circuits of every width gives the final state.
+	 */
+	@Test
+	public void matchesFinalState() {
+		for (int wires = 1; wires <= 6; ++wires) {
+			for (long seed = 0; seed < 4; ++seed) {
+				QuantumCircuit qc = QuantumCircuitTest.randomCircuit(seed, wires, 12);
+				QuantumCircuitTest.assertFinalState(qc,
+						new TensorNetwork(qc).amplitudes(QuantumCircuitTest.allBasisStates(wires)));
+			}
+		}
+	}
+
+	/**
+	 * A circuit without gates gives its initial state.
+	 */
+	@Test
+	public void matchesInitialState() {
+		QuantumCircuit qc = QuantumCircuitTest.randomCircuit(5, 3, 0);
+		QuantumCircuitTest.assertFinalState(qc, new TensorNetwork(qc).amplitudes(QuantumCircuitTest.allBasisStates(3)));
+	}
+}
@@ -0,0 +1,62 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link AdmissionControl}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class AdmissionControlTest {
+	/**
+	 * The estimate covers the reserved state copies, and circuits that cannot be
+	 * indexed never fit.
+	 */
+	@Test
+	public void estimatesStateMemory() {
+		assertEquals(3 * 16 << 10, AdmissionControl.estimateBytes(10));
+		assertEquals(2 * AdmissionControl.estimateBytes(10), AdmissionControl.estimateBytes(11));
+		assertEquals(Long.MAX_VALUE, AdmissionControl.estimateBytes(31));
+	}
+
+	/**
+	 * A circuit fits if it is within both the qubit limit and the budget.
+	 */
+	@Test
+	public void fitsWithinQubitsAndBudget() {
+		AdmissionControl admission = new AdmissionControl(12, AdmissionControl.estimateBytes(10));
+		assertTrue(admission.fits(10));
+		assertFalse(admission.fits(11));
+		AdmissionControl wide = new AdmissionControl(12, Long.MAX_VALUE);
+		assertTrue(wide.fits(12));
+		assertFalse(wide.fits(13));
+		assertFalse(wide.fits(40));
+	}
+
+	/**
+	 * Reservations share the budget until they are released, and a refused
+	 * reservation takes nothing.
+	 */
+	@Test
+	public void reservationsShareTheBudget() {
+		long job = AdmissionControl.estimateBytes(10);
+		AdmissionControl admission = new AdmissionControl(20, 2 * job);
+		assertEquals(job, admission.tryReserve(10));
+		assertEquals(job, admission.tryReserve(10));
+		assertEquals(2 * job, admission.getReserved());
+		assertEquals(-1, admission.tryReserve(10));
+		assertEquals(-1, admission.tryReserve(20));
+		assertEquals(2 * job, admission.getReserved());
+		admission.release(job);
+		assertEquals(job, admission.getReserved());
+		assertEquals(job, admission.tryReserve(10));
+		admission.release(job);
+		admission.release(job);
+		assertEquals(0, admission.getReserved());
+	}
+}
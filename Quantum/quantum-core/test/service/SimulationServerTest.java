@@ -0,0 +1,170 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import model.ControlledQuantumGate;
+import model.QuantumCircuit;
+import model.SingleQuantumGate;
+
+/**
+ * Tests of the answers of {@link SimulationServer}.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class SimulationServerTest {
+	/** The server under test, stopped after each test. */
+	private SimulationServer server;
+
+	/**
+	 * An answer of the server.
+	 */
+	private static final class Answer {
+		/** The HTTP status. */
+		private final int status;
+		/** The response body. */
+		private final String body;
+		/** The Retry-After header, or null. */
+		private final String retryAfter;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param status     The HTTP status.
+		 * @param body       The response body.
+		 * @param retryAfter The Retry-After header, or null.
+		 */
+		private Answer(final int status, final String body, final String retryAfter) {
+			this.status = status;
+			this.body = body;
+			this.retryAfter = retryAfter;
+		}
+	}
+
+	/**
+	 * @param wires The number of wires.
+	 * @return A circuit of H on the first wire and a CNOT from the first wire to
+	 *         the last, as posted by clients.
+	 * @throws Exception If the circuit cannot be written.
+	 */
+	private static byte[] circuit(final int wires) throws Exception {
+		QuantumCircuit qc = new QuantumCircuit();
+		qc.setNumberOfQubits(wires);
+		qc.setGate(new SingleQuantumGate("H", 0, Arrays.asList(0)));
+		qc.setGate(new ControlledQuantumGate("CNOT", 1, Arrays.asList(0, wires - 1)));
+		ByteArrayOutputStream returnValue = new ByteArrayOutputStream();
+		qc.getAsXML(returnValue);
+		return returnValue.toByteArray();
+	}
+
+	/**
+	 * Starts a server on a free port of the loopback address.
+	 * 
+	 * @param admission The admission control of the server.
+	 * @throws IOException If the server cannot be bound.
+	 */
+	private void start(final AdmissionControl admission) throws IOException {
+		server = new SimulationServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 4, admission);
+		server.start();
+	}
+
+	/**
+	 * Posts a circuit to the probabilities path.
+	 * 
+	 * @param body The posted document.
+	 * @return The answer.
+	 * @throws IOException If the request fails.
+	 */
+	private Answer post(final byte[] body) throws IOException {
+		URL url = new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(),
+				"/probabilities");
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		try {
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			try (OutputStream output = connection.getOutputStream()) {
+				output.write(body);
+			}
+			int status = connection.getResponseCode();
+			try (InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+				return new Answer(status, new String(input.readAllBytes(), StandardCharsets.UTF_8),
+						connection.getHeaderField("Retry-After"));
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Stops the server of the test.
+	 */
+	@AfterEach
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+
+	/**
+	 * A document that is not a circuit is refused with 400.
+	 * 
+	 * @throws IOException If a request fails.
+	 */
+	@Test
+	public void unreadableCircuitIsBadRequest() throws IOException {
+		start(new AdmissionControl(20, Long.MAX_VALUE));
+		Answer answer = post("not a circuit".getBytes(StandardCharsets.UTF_8));
+		assertEquals(400, answer.status);
+		assertTrue(answer.body.contains("cannot be read"));
+	}
+
+	/**
+	 * A circuit over the qubit limit or the whole budget is refused with 413.
+	 * 
+	 * @throws Exception If a request fails.
+	 */
+	@Test
+	public void circuitBeyondLimitsIsTooLarge() throws Exception {
+		start(new AdmissionControl(8, AdmissionControl.estimateBytes(6)));
+		assertEquals(413, post(circuit(10)).status);
+		assertEquals(413, post(circuit(7)).status);
+		assertEquals(200, post(circuit(6)).status);
+	}
+
+	/**
+	 * A circuit that fits but finds the budget taken is refused with 503 until the
+	 * memory is released, and its refusal reserves nothing.
+	 * 
+	 * @throws Exception If a request fails.
+	 */
+	@Test
+	public void takenBudgetIsUnavailable() throws Exception {
+		AdmissionControl admission = new AdmissionControl(20, AdmissionControl.estimateBytes(12));
+		start(admission);
+		long taken = admission.tryReserve(12);
+		Answer answer = post(circuit(12));
+		assertEquals(503, answer.status);
+		assertEquals("1", answer.retryAfter);
+		assertEquals(taken, admission.getReserved());
+		admission.release(taken);
+		answer = post(circuit(12));
+		assertEquals(200, answer.status);
+		assertTrue(answer.body.startsWith("{\"wires\":12"));
+		assertEquals(0, admission.getReserved());
+	}
+}
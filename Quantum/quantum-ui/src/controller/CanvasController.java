@@ -6,13 +6,15 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.canvas.Canvas;
@@ -20,12 +22,14 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.RadioMenuItem;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextInputDialog;
 import javafx.scene.control.ToggleGroup;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.stage.FileChooser;
 import model.Complex;
 import model.ControlledQuantumGate;
@@ -44,15 +48,12 @@ import model.SingleQuantumGateWithParameter;
 public final class CanvasController {
 	/** height and width of the gates. */
 	public static final int GATE_HEIGHT = 50;
-	/**
-	 * The maximum number of quantum wires we want to potentially support on the
-	 * canvas.
-	 */
-	public static final int MAX_WIRES_AND_STATES = 11;
 	/** 3/5 of the gate height. */
 	public static final int THREE_FIFTHS_HEIGHT = GATE_HEIGHT * 3 / 5;
 	/** length of each wire segment. */
 	public static final int WIRE_SEGMENT_WIDTH = 150;
+	/** The zoom factor of one notch of the mouse wheel. */
+	public static final double ZOOM_STEP = 1.25;
 
 	/**
 	 * Main canvas.
@@ -61,8 +62,15 @@ public final class CanvasController {
 	private Canvas canvas;
 	/** Graphics context of the main canvas. */
 	private QuantumGraphicsContext graphicsContext;
+	/** Draws the circuit on the main canvas, redrawing only what changed. */
+	private CircuitRenderer renderer;
+	/** Scrolls the main canvas along the positions. */
+	@FXML
+	private ScrollBar sbPositions;
 	/** Quantum circuit backing the drawing on the canvas. */
 	private QuantumCircuit qc = new QuantumCircuit();
+	/** The positions shown by both tables, or null. */
+	private StateColumnCache stateColumns;
 
 	/**
 	 * Table for displaying the probability that a qubit measures one. Has
@@ -82,83 +90,19 @@ public final class CanvasController {
 	private int position;
 
 	/**
-	 * Draw the circuit on the canvas.
+	 * Scrolls the canvas with its scroll bar.
 	 */
-	private void drawCanvas() {
-		graphicsContext.clearAll();
-		if (qc != null && qc.getWires().size() > 0) {
-			for (int wire = 0; wire < qc.getWires().size(); ++wire) {
-				graphicsContext.setQubitLabel(qc.getWires().get(wire).getStart().toString(), wire);
-				for (int position = 0; position < qc.getMaxWireGatePosition() + 2; ++position) {
-					graphicsContext.setNextWireSegment(wire, position);
-					if (position == this.position && wires.contains(wire)) {
-						graphicsContext.setControlDot(wire, position);
-					} else if (qc.getGate(wire, position) == null) {
-						graphicsContext.setEmptyGate(wire, position);
-					} else {
-						String gateType = qc.getGate(wire, position).getGateType();
-						// if single simple gate
-						if (SingleQuantumGate.getGateTypes().contains(gateType)) {
-							graphicsContext.setGateLabel("  " + qc.getGate(wire, position).getGateType(), wire,
-									position);
-							// if single parameter gate
-						} else if (SingleQuantumGateWithParameter.getGateTypes().contains(gateType)) {
-							String gateTypeSublabel = "("
-									+ ((SingleQuantumGateWithParameter) qc.getGate(wire, position)).getValue() + ")";
-							graphicsContext.setGateLabel(gateType, wire, position);
-							graphicsContext.setGateSublabel(gateTypeSublabel, wire, position);
-							// if controlled gate
-						} else if (ControlledQuantumGate.getGateTypes().contains(gateType)) {
-							int targetWire = qc.getGate(wire, position).getWires()
-									.get(qc.getGate(wire, position).getWires().size() - 1);
-							// if control bit
-							if (targetWire != wire) {
-								graphicsContext.setControlDot(wire, position);
-								if (qc.getGate(wire, position).getGateType().contains("0")) {
-									graphicsContext.setGateSublabel("(On 0)", wire, position);
-								}
-							} else { // if not control bit
-								if (gateType.contains("NOT")) {
-									graphicsContext.setCNOTTargetDot(wire, position);
-								} else {
-									graphicsContext.setGateLabel("|H|", wire, position);
-								}
-								graphicsContext.setControlWire(
-										qc.getGate(wire, position).getWires().stream().min(Comparator.naturalOrder())
-												.get(),
-										qc.getGate(wire, position).getWires().stream().max(Comparator.naturalOrder())
-												.get(),
-										position);
-
-							}
-						} else if (ControlledQuantumGateWithParameter.getGateTypes().contains(gateType)) {
-							int targetWire = qc.getGate(wire, position).getWires()
-									.get(qc.getGate(wire, position).getWires().size() - 1);
-							// if control bit
-							if (targetWire != wire) {
-								graphicsContext.setControlDot(wire, position);
-								if (qc.getGate(wire, position).getGateType().contains("0")) {
-									graphicsContext.setGateSublabel("(On 0)", wire, position);
-								}
-							} else { // if not control bit
-								graphicsContext.setGateLabel(gateType.replace("C", "").replace("0", ""), wire,
-										position);
-								String gateTypeSublabel = "("
-										+ ((ControlledQuantumGateWithParameter) qc.getGate(wire, position)).getValue()
-										+ ")";
-								graphicsContext.setGateSublabel(gateTypeSublabel, wire, position);
-								graphicsContext.setControlWire(
-										qc.getGate(wire, position).getWires().stream().min(Comparator.naturalOrder())
-												.get(),
-										qc.getGate(wire, position).getWires().stream().max(Comparator.naturalOrder())
-												.get(),
-										position);
-							}
-						}
-					}
-				}
+	@FXML
+	private void initialize() {
+		graphicsContext = new QuantumGraphicsContext(canvas.getGraphicsContext2D(), qc.getWires().size());
+		renderer = new CircuitRenderer(graphicsContext, qc);
+		sbPositions.setUnitIncrement(WIRE_SEGMENT_WIDTH);
+		sbPositions.valueProperty().addListener((observable, oldValue, value) -> {
+			if (value.doubleValue() != graphicsContext.getOffset()) {
+				renderer.setViewport(value.doubleValue(), graphicsContext.getZoom());
+				renderer.render();
 			}
-		}
+		});
 	}
 
 	/**
@@ -168,15 +112,27 @@ public final class CanvasController {
 	 */
 	@FXML
 	void handleCanvasClick(final MouseEvent event) {
-		int wireSpacing = (int) (canvas.getHeight() / (qc.getWires().size() + 1));
+		double x = graphicsContext.toCircuitX(event.getX());
+		double y = graphicsContext.toCircuitY(event.getY());
+		int wireSpacing = graphicsContext.getWireSpacing();
+		int gatePosition = (int) (x / WIRE_SEGMENT_WIDTH) - 1;
+		int wire;
+		boolean onGate;
+		if (graphicsContext.isDetailed()) {
+			wire = (int) ((y - 15) / wireSpacing);
+			onGate = x % WIRE_SEGMENT_WIDTH <= GATE_HEIGHT && (y - 15) % wireSpacing >= wireSpacing - GATE_HEIGHT;
+		} else { // zoomed out, the gate blocks fill the strips
+			wire = (int) Math.round((y + 10) / wireSpacing) - 1;
+			onGate = x % WIRE_SEGMENT_WIDTH <= WIRE_SEGMENT_WIDTH - GATE_HEIGHT / 2;
+		}
 		String gateType = ((RadioMenuItem) tgGates.getSelectedToggle()).getText();
+		// clicks that only pick a control, or cancel a dialog, leave the gates as they were.
+		List<QuantumGate> gatesBefore = new ArrayList<>(qc.getGates());
 		try {
-			if (event.getX() % WIRE_SEGMENT_WIDTH <= GATE_HEIGHT
-					&& (event.getY() - 15) % wireSpacing >= wireSpacing - GATE_HEIGHT) {
-				int gatePosition = (int) (event.getX() / WIRE_SEGMENT_WIDTH) - 1;
-				int wire = (int) ((event.getY() - 15) / wireSpacing);
+			if (onGate && wire >= 0 && wire < qc.getWires().size()) {
 				if (gatePosition == -1) { // clicked on a qubit
 					qc.getWires().get(wire).xStart();
+					refresh(gatePosition, true);
 				} else {
 					if (SingleQuantumGate.getGateTypes().contains(gateType)) {
 						qc.setGate(new SingleQuantumGate(gateType, gatePosition, Arrays.asList(wire)));
@@ -239,8 +195,8 @@ public final class CanvasController {
 						}
 
 					}
+					refresh(gatePosition, !gatesBefore.equals(new ArrayList<>(qc.getGates())));
 				}
-				rebind();
 			}
 		} catch (UnsupportedOperationException e) {
 			Alert error = new Alert(AlertType.ERROR);
@@ -248,9 +204,35 @@ public final class CanvasController {
 			error.setContentText("That gate configuration is not allowed yet!");
 			error.showAndWait();
 			wires.clear();
+			refresh(gatePosition, !gatesBefore.equals(new ArrayList<>(qc.getGates())));
 		}
 	}
 
+	/**
+	 * Handles the mouse wheel over the canvas: scrolls along the positions, or
+	 * zooms around the mouse with control held.
+	 * 
+	 * @param event The event source.
+	 */
+	@FXML
+	void handleCanvasScroll(final ScrollEvent event) {
+		double zoom = graphicsContext.getZoom();
+		double offset = graphicsContext.getOffset();
+		if (event.isControlDown()) {
+			double x = graphicsContext.toCircuitX(event.getX());
+			zoom = Math.max(QuantumGraphicsContext.MIN_ZOOM,
+					Math.min(QuantumGraphicsContext.MAX_ZOOM, zoom * Math.pow(ZOOM_STEP, event.getDeltaY() / 40)));
+			offset = x - event.getX() / zoom;
+		} else {
+			offset -= (event.getDeltaX() != 0 ? event.getDeltaX() : event.getDeltaY()) / zoom;
+		}
+		double maxOffset = WIRE_SEGMENT_WIDTH * (renderer.getPositions() + 1) - canvas.getWidth() / zoom;
+		renderer.setViewport(Math.max(0, Math.min(maxOffset, offset)), zoom);
+		renderer.render();
+		updateScrollBar();
+		event.consume();
+	}
+
 	/**
 	 * Handles clearing the circuit.
 	 * 
@@ -273,13 +255,80 @@ public final class CanvasController {
 	}
 
 	/**
-	 * Rebinds the whole canvas.
+	 * Redraws the position that a click changed, and rebinds the tables if the
+	 * circuit changed. The positions before the click keep their states.
+	 * 
+	 * @param gatePosition The position clicked on, or -1 for the qubit labels.
+	 * @param edited       Whether the click changed the circuit.
+	 */
+	private void refresh(final int gatePosition, final boolean edited) {
+		renderer.setPending(position, wires);
+		renderer.invalidateColumn(gatePosition);
+		renderer.render();
+		updateScrollBar();
+		if (edited) {
+			rebindTables(Math.max(0, gatePosition));
+		}
+	}
+
+	/**
+	 * Rebinds the whole canvas, and the tables.
 	 */
 	private void rebind() {
-		graphicsContext = new QuantumGraphicsContext(canvas.getGraphicsContext2D(), qc.getWires().size());
-		drawCanvas();
-		setStatesTable();
-		setQubitsTable();
+		renderer.setCircuit(qc);
+		renderer.setPending(position, wires);
+		renderer.render();
+		updateScrollBar();
+		rebindTables(0);
+	}
+
+	/**
+	 * Fits the scroll bar to the length of the circuit and the zoom, which scrolls
+	 * back if the circuit got shorter.
+	 */
+	private void updateScrollBar() {
+		double viewportWidth = graphicsContext.getViewportWidth();
+		sbPositions.setMax(Math.max(0, WIRE_SEGMENT_WIDTH * (renderer.getPositions() + 1) - viewportWidth));
+		sbPositions.setVisibleAmount(viewportWidth);
+		sbPositions.setBlockIncrement(viewportWidth);
+		sbPositions.setValue(Math.min(graphicsContext.getOffset(), sbPositions.getMax()));
+	}
+
+	/**
+	 * Rebinds the tables. They are filled in the background, as their visible
+	 * positions are simulated.
+	 * 
+	 * @param edited The first position the edit changed. The positions before it
+	 *               keep what the tables already hold.
+	 */
+	private void rebindTables(final int edited) {
+		int positions = qc.getMaxWireGatePosition() + 2;
+		setStatesTable(positions);
+		setQubitsTable(positions);
+		StateColumnCache previous = stateColumns;
+		if (previous != null) {
+			previous.close();
+			stateColumns = null;
+		}
+		if (qc.getWires().size() > 0) {
+			stateColumns = new StateColumnCache(qc, () -> {
+				tbvStates.refresh();
+				tbvQubits.refresh();
+			}, exception -> {
+				Alert error = new Alert(AlertType.ERROR);
+				error.setTitle("Error in simulation");
+				error.setContentText("The circuit could not be simulated: " + exception.getMessage());
+				error.show();
+			});
+			if (previous != null) {
+				stateColumns.keepBefore(previous, edited);
+			}
+			tbvStates.setItems(new StateRowList(qc.getWires().size(), stateColumns));
+			tbvQubits.getItems().setAll(stateColumns.getQubitRows());
+		} else {
+			tbvQubits.getItems().clear();
+			tbvStates.setItems(FXCollections.observableArrayList());
+		}
 	}
 
 	/**
@@ -292,70 +341,65 @@ public final class CanvasController {
 		rebind();
 	}
 
-	private void setQubitsTable() {
-		List<QuantumQubitViewer> table = new ArrayList<>();
-		tbvQubits.getColumns().clear();
-
-		if (qc.getWires().size() > 0) {
-			// add qubits row header
-			tbvQubits.getColumns().add(new TableColumn<>("Qubit"));
-			tbvQubits.getColumns().get(0).setCellValueFactory(new PropertyValueFactory<>("qubit"));
-
-			// add state changes for each qubit configuration
-			for (int n = 0; n < MAX_WIRES_AND_STATES; ++n) {
-				tbvQubits.getColumns().add(new TableColumn<>("State" + n));
-				tbvQubits.getColumns().get(n + 1).setCellValueFactory(new PropertyValueFactory<>("state" + n));
-			}
-
-			// hide unused wire configurations
-			for (int n = qc.getMaxWireGatePosition() + 3; n <= MAX_WIRES_AND_STATES; ++n) {
-				tbvQubits.getColumns().get(n).setVisible(false);
-			}
-			tbvQubits.getColumns().forEach(x -> x.setPrefWidth(WIRE_SEGMENT_WIDTH));
-
-			for (int n = 0; n < qc.getQubitProbabilities(0).size(); ++n) {
-				List<Complex> states = new ArrayList<>();
-				for (int state = 0; state < MAX_WIRES_AND_STATES; ++state) {
-					states.add(qc.getQubitProbabilities(state).get(n));
-				}
-
-				table.add(new QuantumQubitViewer(n, states));
-			}
-			tbvQubits.getItems().setAll(table);
+	/**
+	 * Fits the columns of a table to the number of positions, after a header
+	 * column. Column n + 1 shows position n whatever the circuit, so only the
+	 * columns past the shorter of the old and new circuits are added or removed.
+	 * 
+	 * @param <T>       The type of the rows.
+	 * @param table     The table.
+	 * @param header    The title of the header column.
+	 * @param property  The row property shown by the header column.
+	 * @param positions The number of positions.
+	 * @param state     Reads the value of a row at a position.
+	 * @param sortable  Whether the rows can be sorted by a column.
+	 */
+	private <T> void setColumns(final TableView<T> table, final String header, final String property,
+			final int positions, final BiFunction<T, Integer, Complex> state, final boolean sortable) {
+		if (qc.getWires().isEmpty()) {
+			table.getColumns().clear();
+			return;
+		}
+		if (table.getColumns().isEmpty()) {
+			// add row header
+			TableColumn<T, Object> headerColumn = new TableColumn<>(header);
+			headerColumn.setCellValueFactory(new PropertyValueFactory<>(property));
+			headerColumn.setPrefWidth(WIRE_SEGMENT_WIDTH);
+			headerColumn.setSortable(sortable);
+			table.getColumns().add(headerColumn);
+		}
+		int shown = table.getColumns().size() - 1;
+		if (shown > positions) {
+			table.getColumns().remove(positions + 1, shown + 1);
+		}
+		// add state changes for each new position
+		for (int n = shown; n < positions; ++n) {
+			final int position = n;
+			TableColumn<T, Complex> column = new TableColumn<>("State" + n);
+			column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(state.apply(cell.getValue(), position)));
+			column.setPrefWidth(WIRE_SEGMENT_WIDTH);
+			column.setSortable(sortable);
+			table.getColumns().add(column);
 		}
 	}
 
-	private void setStatesTable() {
-		List<QuantumStateViewer> table = new ArrayList<>();
-		tbvStates.getColumns().clear();
-
-		if (qc.getWires().size() > 0) {
-			// add qubits row header
-			tbvStates.getColumns().add(new TableColumn<>("Qubits"));
-			tbvStates.getColumns().get(0).setCellValueFactory(new PropertyValueFactory<>("qubits"));
-
-			// add state changes for each qubit configuration
-			for (int n = 0; n < MAX_WIRES_AND_STATES; ++n) {
-				tbvStates.getColumns().add(new TableColumn<>("State" + n));
-				tbvStates.getColumns().get(n + 1).setCellValueFactory(new PropertyValueFactory<>("state" + n));
-			}
-
-			// hide unused wire configurations
-			for (int n = qc.getMaxWireGatePosition() + 3; n <= MAX_WIRES_AND_STATES; ++n) {
-				tbvStates.getColumns().get(n).setVisible(false);
-			}
-			tbvStates.getColumns().forEach(x -> x.setPrefWidth(WIRE_SEGMENT_WIDTH));
-
-			for (int n = 0; n < qc.getState(0).length; ++n) {
-				List<Complex> states = new ArrayList<>();
-				for (int state = 0; state < MAX_WIRES_AND_STATES; ++state) {
-					states.add(qc.getState(state)[n][0]);
-				}
+	/**
+	 * Sets the columns of the qubits table, one per position.
+	 * 
+	 * @param positions The number of positions.
+	 */
+	private void setQubitsTable(final int positions) {
+		setColumns(tbvQubits, "Qubit", "qubit", positions, QuantumQubitViewer::getState, true);
+	}
 
-				table.add(new QuantumStateViewer(qc.getWires().size(), n, states));
-			}
-			tbvStates.getItems().setAll(table);
-		}
+	/**
+	 * Sets the columns of the states table, one per position. The rows cannot be
+	 * sorted, as they are made on demand.
+	 * 
+	 * @param positions The number of positions.
+	 */
+	private void setStatesTable(final int positions) {
+		setColumns(tbvStates, "Qubits", "qubits", positions, QuantumStateViewer::getState, false);
 	}
 
 	@FXML
@@ -0,0 +1,266 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import model.CompositeGate;
+import model.ControlledQuantumGate;
+import model.ControlledQuantumGateWithParameter;
+import model.QftGate;
+import model.QuantumCircuit;
+import model.QuantumGate;
+import model.SingleQuantumGate;
+import model.SingleQuantumGateWithParameter;
+
+/**
+ * Keeps the drawing of a circuit on the canvas up to date. Edits mark the
+ * positions they touch as dirty, and {@link #render()} clears and draws only
+ * the strips of those positions, see {@link QuantumGraphicsContext}, so an edit
+ * costs the wires of the positions it changed rather than the whole circuit.
+ * Only positions inside the viewport are drawn, so scrolling or zooming costs
+ * the visible positions whatever the length of the circuit. Zoomed out, gates
+ * are drawn as blocks instead of glyphs.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public final class CircuitRenderer {
+	/** The position of the qubit labels. */
+	public static final int LABELS = -1;
+
+	/** Whether everything must be drawn again. */
+	private boolean allDirty = true;
+	/** The positions to draw again, {@link #LABELS} included. */
+	private final TreeSet<Integer> dirty = new TreeSet<>();
+	/** The number of positions on the canvas. */
+	private int drawnPositions;
+	/** Draws on the canvas. */
+	private final QuantumGraphicsContext graphicsContext;
+	/** The position of the wires picked for a controlled gate. */
+	private int pendingPosition = LABELS;
+	/** The wires picked for a controlled gate that is not placed yet. */
+	private List<Integer> pendingWires = new ArrayList<>();
+	/** The circuit to draw. */
+	private QuantumCircuit qc;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param graphicsContext Draws on the canvas.
+	 * @param qc              The circuit to draw.
+	 */
+	public CircuitRenderer(final QuantumGraphicsContext graphicsContext, final QuantumCircuit qc) {
+		this.graphicsContext = graphicsContext;
+		this.qc = qc;
+	}
+
+	/**
+	 * Draw the gates of one position, and the wire segments to the next position.
+	 * 
+	 * @param position  The position to draw.
+	 * @param positions The number of positions on the canvas.
+	 */
+	private void drawColumn(final int position, final int positions) {
+		boolean detailed = graphicsContext.isDetailed();
+		for (int wire = 0; wire < qc.getWires().size(); ++wire) {
+			if (position + 1 < positions) {
+				graphicsContext.setNextWireSegment(wire, position + 1);
+			}
+			QuantumGate gate = qc.getGate(wire, position);
+			if (!detailed) {
+				if (gate != null || position == pendingPosition && pendingWires.contains(wire)) {
+					graphicsContext.setGateBlock(wire, position);
+				}
+				if (gate != null && wire == gate.getMinWire() && gate.getMaxWire() != wire) {
+					graphicsContext.setControlWire(gate.getMinWire(), gate.getMaxWire(), position);
+				}
+			} else if (position == pendingPosition && pendingWires.contains(wire)) {
+				graphicsContext.setControlDot(wire, position);
+			} else if (gate == null) {
+				graphicsContext.setEmptyGate(wire, position);
+			} else {
+				drawGate(gate, wire, position);
+			}
+		}
+	}
+
+	/**
+	 * Draws the part of a gate on one wire.
+	 * 
+	 * @param gate     The gate to draw.
+	 * @param wire     The wire on which to draw the gate.
+	 * @param position The position of the gate.
+	 */
+	private void drawGate(final QuantumGate gate, final int wire, final int position) {
+		String gateType = gate.getGateType();
+		// if single simple gate
+		if (SingleQuantumGate.getGateTypes().contains(gateType)) {
+			graphicsContext.setGateLabel("  " + gateType, wire, position);
+			// if single parameter gate
+		} else if (SingleQuantumGateWithParameter.getGateTypes().contains(gateType)) {
+			String gateTypeSublabel = "(" + ((SingleQuantumGateWithParameter) gate).getValue() + ")";
+			graphicsContext.setGateLabel(gateType, wire, position);
+			graphicsContext.setGateSublabel(gateTypeSublabel, wire, position);
+			// if controlled gate
+		} else if (ControlledQuantumGate.getGateTypes().contains(gateType)) {
+			int targetWire = gate.getWires().get(gate.getWires().size() - 1);
+			// if control bit
+			if (targetWire != wire) {
+				graphicsContext.setControlDot(wire, position);
+				if (gateType.contains("0")) {
+					graphicsContext.setGateSublabel("(On 0)", wire, position);
+				}
+			} else { // if not control bit
+				if (gateType.contains("NOT")) {
+					graphicsContext.setCNOTTargetDot(wire, position);
+				} else {
+					graphicsContext.setGateLabel("|H|", wire, position);
+				}
+				graphicsContext.setControlWire(gate.getMinWire(), gate.getMaxWire(), position);
+			}
+		} else if (ControlledQuantumGateWithParameter.getGateTypes().contains(gateType)) {
+			int targetWire = gate.getWires().get(gate.getWires().size() - 1);
+			// if control bit
+			if (targetWire != wire) {
+				graphicsContext.setControlDot(wire, position);
+				if (gateType.contains("0")) {
+					graphicsContext.setGateSublabel("(On 0)", wire, position);
+				}
+			} else { // if not control bit
+				graphicsContext.setGateLabel(gateType.replace("C", "").replace("0", ""), wire, position);
+				String gateTypeSublabel = "(" + ((ControlledQuantumGateWithParameter) gate).getValue() + ")";
+				graphicsContext.setGateSublabel(gateTypeSublabel, wire, position);
+				graphicsContext.setControlWire(gate.getMinWire(), gate.getMaxWire(), position);
+			}
+			// if Fourier transform or composite gate
+		} else if (QftGate.getGateTypes().contains(gateType) || gate instanceof CompositeGate) {
+			if (gate.getWires().contains(wire)) {
+				graphicsContext.setGateLabel(gate.toString(), wire, position);
+				graphicsContext.setGateSublabel("(" + gate.getWires().indexOf(wire) + ")", wire, position);
+			}
+			if (wire == gate.getMinWire()) {
+				graphicsContext.setControlWire(gate.getMinWire(), gate.getMaxWire(), position);
+			}
+		}
+	}
+
+	/**
+	 * Draws the qubit labels, and the wire segments to the first position.
+	 */
+	private void drawLabels() {
+		for (int wire = 0; wire < qc.getWires().size(); ++wire) {
+			graphicsContext.setQubitLabel(qc.getWires().get(wire).getStart().toString(), wire);
+			graphicsContext.setNextWireSegment(wire, 0);
+		}
+	}
+
+	/**
+	 * Marks everything to be drawn again, after the wires changed.
+	 */
+	public void invalidateAll() {
+		allDirty = true;
+		dirty.clear();
+	}
+
+	/**
+	 * Marks a position to be drawn again.
+	 * 
+	 * @param position The position that changed, or {@link #LABELS}.
+	 */
+	public void invalidateColumn(final int position) {
+		if (!allDirty) {
+			dirty.add(Math.max(LABELS, position));
+		}
+	}
+
+	/**
+	 * @return The number of positions drawn, the last one always empty.
+	 */
+	public int getPositions() {
+		return qc.getWires().isEmpty() ? 0 : qc.getMaxWireGatePosition() + 2;
+	}
+
+	/**
+	 * Draws everything that changed since the last call, inside the viewport.
+	 * 
+	 * @return The number of strips drawn.
+	 */
+	public int render() {
+		int positions = getPositions();
+		int first = Math.max(LABELS, graphicsContext.getFirstVisiblePosition());
+		int last = Math.min(positions - 1, graphicsContext.getLastVisiblePosition());
+		int returnValue = 0;
+		if (allDirty) {
+			graphicsContext.setNumberOfQubits(qc.getWires().size());
+			graphicsContext.clearAll();
+			for (int position = first; position <= last; ++position) {
+				if (position == LABELS) {
+					drawLabels();
+				} else {
+					drawColumn(position, positions);
+				}
+				++returnValue;
+			}
+		} else {
+			if (positions != drawnPositions) {
+				// the last strip gains or loses the segment to the new last position.
+				for (int position = Math.min(positions, drawnPositions) - 2; position < Math.max(positions,
+						drawnPositions); ++position) {
+					invalidateColumn(position);
+				}
+			}
+			// positions outside the viewport are drawn when they are scrolled to.
+			for (int position : dirty.subSet(first, true, Math.max(first, graphicsContext.getLastVisiblePosition()), true)) {
+				graphicsContext.clearColumn(position);
+				if (position == LABELS && positions > 0) {
+					drawLabels();
+				} else if (position < positions) {
+					drawColumn(position, positions);
+				}
+				++returnValue;
+			}
+		}
+		allDirty = false;
+		dirty.clear();
+		drawnPositions = positions;
+		return returnValue;
+	}
+
+	/**
+	 * Sets the circuit to draw, which is drawn from scratch.
+	 * 
+	 * @param qc The circuit to draw.
+	 */
+	public void setCircuit(final QuantumCircuit qc) {
+		this.qc = qc;
+		invalidateAll();
+	}
+
+	/**
+	 * Scrolls and zooms the drawing, which is drawn again.
+	 * 
+	 * @param offset The circuit x coordinate at the left of the canvas.
+	 * @param zoom   The canvas pixels per circuit unit.
+	 */
+	public void setViewport(final double offset, final double zoom) {
+		graphicsContext.setViewport(offset, zoom);
+		invalidateAll();
+	}
+
+	/**
+	 * Sets the wires picked for a controlled gate that is not placed yet, which
+	 * are drawn as control dots.
+	 * 
+	 * @param position The position of the wires.
+	 * @param wires    The picked wires.
+	 */
+	public void setPending(final int position, final List<Integer> wires) {
+		if (position != pendingPosition || !wires.equals(pendingWires)) {
+			invalidateColumn(pendingPosition);
+			invalidateColumn(position);
+			pendingPosition = position;
+			pendingWires = new ArrayList<>(wires);
+		}
+	}
+}
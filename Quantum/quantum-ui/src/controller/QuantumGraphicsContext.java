@@ -0,0 +1,293 @@
+package controller;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.text.Font;
+
+/**
+ * Utility method for drawing on canvas. Would like to have extended
+ * GraphicsContext, but it was marked final :(.
+ * 
+ * Each position owns a strip of the canvas, see {@link #clearColumn(int)},
+ * holding its gates and the wire segments that follow them, so a position can
+ * be redrawn alone. Gate glyphs are copied from a {@link SpriteCache}.
+ * 
+ * Drawing happens in circuit coordinates. The canvas is a viewport onto them,
+ * scrolled to an offset and zoomed, see {@link #setViewport(double, double)}.
+ * The wires always span the height of the canvas, so zooming out shows more
+ * positions rather than leaving the canvas empty below them.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public class QuantumGraphicsContext {
+	/** font size for the drawing. */
+	public static final int FONT_SIZE = 30;
+	/** height and width of the gates. */
+	public static final int GATE_HEIGHT = 50;
+	/** length of each wire segment. */
+	public static final int WIRE_SEGMENT_WIDTH = 150;
+	/** 3/5 of the gate height. */
+	public static final int THREE_FIFTHS_HEIGHT = GATE_HEIGHT * 3 / 5;
+	/** The zoom below which gates are drawn as blocks instead of glyphs. */
+	public static final double DETAIL_ZOOM = 0.35;
+	/** The smallest zoom. */
+	public static final double MIN_ZOOM = 0.02;
+	/** The largest zoom. */
+	public static final double MAX_ZOOM = 1;
+
+	/** Placeholder for the underlying GraphicsContext. */
+	private GraphicsContext graphicsContext;
+
+	/** Pre-rendered gate glyphs. */
+	private final SpriteCache sprites = new SpriteCache(FONT_SIZE);
+
+	/** The number of qubits on the canvas. */
+	private int numberOfQubits;
+	/** The circuit x coordinate at the left of the canvas. */
+	private double offset;
+	/** The length of wires between gates. */
+	private int wireSpacing;
+	/** The canvas pixels per circuit unit. */
+	private double zoom = 1;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param graphicsContext The underlying graphics context to utilize.
+	 * @param numberOfQubits  The number of qubits on the canvas.
+	 */
+	public QuantumGraphicsContext(final GraphicsContext graphicsContext, final int numberOfQubits) {
+		this.graphicsContext = graphicsContext;
+		this.graphicsContext.setFont(Font.font(FONT_SIZE));
+		setNumberOfQubits(numberOfQubits);
+	}
+
+	/**
+	 * Spreads the wires over the height of the canvas.
+	 * 
+	 * @param numberOfQubits The number of qubits on the canvas.
+	 */
+	public void setNumberOfQubits(final int numberOfQubits) {
+		this.numberOfQubits = numberOfQubits;
+		this.wireSpacing = (int) (graphicsContext.getCanvas().getHeight() / zoom / (numberOfQubits + 1));
+	}
+
+	/**
+	 * Scrolls and zooms the canvas. Whatever was drawn must be drawn again.
+	 * 
+	 * @param offset The circuit x coordinate at the left of the canvas.
+	 * @param zoom   The canvas pixels per circuit unit, from {@link #MIN_ZOOM} to
+	 *               {@link #MAX_ZOOM}.
+	 */
+	public void setViewport(final double offset, final double zoom) {
+		this.offset = offset;
+		this.zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+		graphicsContext.setTransform(this.zoom, 0, 0, this.zoom, -offset * this.zoom, 0);
+		setNumberOfQubits(numberOfQubits);
+	}
+
+	/**
+	 * @return The circuit x coordinate at the left of the canvas.
+	 */
+	public double getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return The canvas pixels per circuit unit.
+	 */
+	public double getZoom() {
+		return zoom;
+	}
+
+	/**
+	 * @return The distance between wires in circuit units.
+	 */
+	public int getWireSpacing() {
+		return wireSpacing;
+	}
+
+	/**
+	 * @return The width of the canvas in circuit units.
+	 */
+	public double getViewportWidth() {
+		return graphicsContext.getCanvas().getWidth() / zoom;
+	}
+
+	/**
+	 * @return Whether gates are drawn as glyphs, rather than as blocks.
+	 */
+	public boolean isDetailed() {
+		return zoom >= DETAIL_ZOOM;
+	}
+
+	/**
+	 * @return The first position whose strip shows on the canvas, or -1 for the
+	 *         qubit labels.
+	 */
+	public int getFirstVisiblePosition() {
+		return (int) Math.floor(offset / WIRE_SEGMENT_WIDTH) - 1;
+	}
+
+	/**
+	 * @return The last position whose strip shows on the canvas.
+	 */
+	public int getLastVisiblePosition() {
+		return (int) Math.floor((offset + getViewportWidth()) / WIRE_SEGMENT_WIDTH) - 1;
+	}
+
+	/**
+	 * @param x A canvas x coordinate, as in a mouse event.
+	 * @return The circuit x coordinate.
+	 */
+	public double toCircuitX(final double x) {
+		return x / zoom + offset;
+	}
+
+	/**
+	 * @param y A canvas y coordinate, as in a mouse event.
+	 * @return The circuit y coordinate.
+	 */
+	public double toCircuitY(final double y) {
+		return y / zoom;
+	}
+
+	/**
+	 * Clear the canvas.
+	 */
+	public void clearAll() {
+		graphicsContext.save();
+		graphicsContext.setTransform(1, 0, 0, 1, 0, 0);
+		graphicsContext.clearRect(0, 0, graphicsContext.getCanvas().getWidth(),
+				graphicsContext.getCanvas().getHeight());
+		graphicsContext.restore();
+	}
+
+	/**
+	 * Clears the strip of a position: its gates, and the wire segments between
+	 * them and the next position.
+	 * 
+	 * @param position The position to clear, or -1 for the qubit labels and the
+	 *                 wire segments that follow them.
+	 */
+	public void clearColumn(final int position) {
+		graphicsContext.clearRect(WIRE_SEGMENT_WIDTH * (position + 1), 0, WIRE_SEGMENT_WIDTH,
+				graphicsContext.getCanvas().getHeight() / zoom);
+	}
+
+	/**
+	 * Draws a text sprite.
+	 * 
+	 * @param text     The text to draw.
+	 * @param x        The left of the text.
+	 * @param y        The baseline of the text.
+	 * @param maxWidth The width the text is squeezed into.
+	 */
+	private void drawText(final String text, final double x, final double y, final double maxWidth) {
+		sprites.draw(graphicsContext, sprites.getText(text, maxWidth), x, y - sprites.getBaseline());
+	}
+
+	/**
+	 * Draws a gate zoomed out, as a block over its wire nearly as wide as the
+	 * strip of the position, so busy stretches of the circuit show as dense areas.
+	 * 
+	 * @param wire     The wire on which to draw the gate.
+	 * @param position The position on the wire to draw the gate.
+	 */
+	public void setGateBlock(final int wire, final int position) {
+		graphicsContext.fillRect(WIRE_SEGMENT_WIDTH * (position + 1), (wire + 1) * wireSpacing - 10 - wireSpacing / 4,
+				WIRE_SEGMENT_WIDTH - GATE_HEIGHT / 2, wireSpacing / 2);
+	}
+
+	/**
+	 * Creates an empty gate on the canvas.
+	 * 
+	 * @param wire     The wire on which to draw the gate.
+	 * @param position The position on the wire to draw the gate.
+	 */
+	public void setEmptyGate(final int wire, final int position) {
+		drawText("  ☐", WIRE_SEGMENT_WIDTH * (position + 1), (wire + 1) * wireSpacing, WIRE_SEGMENT_WIDTH);
+	}
+
+	/**
+	 * Creates a control dot on the canvas for controlled gates.
+	 * 
+	 * @param wire     The wire on which to draw the gate.
+	 * @param position The position on the wire to draw the gate.
+	 */
+	public void setControlDot(final int wire, final int position) {
+		sprites.draw(graphicsContext, sprites.getDot(GATE_HEIGHT / 2),
+				WIRE_SEGMENT_WIDTH * (position + 1) + GATE_HEIGHT / 4,
+				(wire + 1) * wireSpacing - THREE_FIFTHS_HEIGHT - 5 + GATE_HEIGHT / 4);
+	}
+
+	/**
+	 * Creates a controlled not gate target dot on the canvas.
+	 * 
+	 * @param wire     The wire on which to draw the gate.
+	 * @param position The position on the wire to draw the gate.
+	 */
+	public void setCNOTTargetDot(final int wire, final int position) {
+		// the sprite has a margin of one for the stroke.
+		sprites.draw(graphicsContext, sprites.getTarget(GATE_HEIGHT), WIRE_SEGMENT_WIDTH * (position + 1) - 1,
+				(wire + 1) * wireSpacing - THREE_FIFTHS_HEIGHT - 5 - 1);
+	}
+
+	/**
+	 * Creates a controlled not gate target dot on the canvas.
+	 * 
+	 * @param qubitLabel The label for the qubit to draw.
+	 * @param wire       The wire on which to draw the gate.
+	 */
+	public void setQubitLabel(final String qubitLabel, final int wire) {
+		drawText(qubitLabel, 0, (wire + 1) * wireSpacing, WIRE_SEGMENT_WIDTH);
+	}
+
+	/**
+	 * Creates a wire segment going from this wire/position on down the score.
+	 * 
+	 * @param wire     The wire on which to draw the gate.
+	 * @param position The position on the wire to draw the gate.
+	 */
+	public void setNextWireSegment(final int wire, final int position) {
+		graphicsContext.strokeLine(GATE_HEIGHT + WIRE_SEGMENT_WIDTH * position, (wire + 1) * wireSpacing - 10,
+				WIRE_SEGMENT_WIDTH * (position + 1), (wire + 1) * wireSpacing - 10);
+	}
+
+	/**
+	 * Sets a gate label for a given gate.
+	 * 
+	 * @param gateLabel The gate label to put on the gate.
+	 * @param wire      The wire on which to draw the gate.
+	 * @param position  The position on the wire to draw the gate.
+	 */
+	public void setGateLabel(final String gateLabel, final int wire, final int position) {
+		drawText(gateLabel, WIRE_SEGMENT_WIDTH * (position + 1), (wire + 1) * wireSpacing, WIRE_SEGMENT_WIDTH);
+	}
+
+	/**
+	 * Sets a gate sub-label for a given gate. It is squeezed to end with the strip
+	 * of the position.
+	 * 
+	 * @param subLabel The gate label to put on the gate.
+	 * @param wire     The wire on which to draw the gate.
+	 * @param position The position on the wire to draw the gate.
+	 */
+	public void setGateSublabel(final String subLabel, final int wire, final int position) {
+		drawText(subLabel, WIRE_SEGMENT_WIDTH * (position + 1) + GATE_HEIGHT / 4,
+				(wire + 1) * wireSpacing + THREE_FIFTHS_HEIGHT + GATE_HEIGHT / 4, WIRE_SEGMENT_WIDTH - GATE_HEIGHT / 4);
+	}
+
+	/**
+	 * Draws a wire between two points.
+	 * 
+	 * @param wire1    The first wire from which to draw the control wire.
+	 * @param wire2    The second wire from which to draw the control wire.
+	 * @param position The position on the wires to connect.
+	 */
+	public void setControlWire(final int wire1, final int wire2, final int position) {
+		graphicsContext.strokeLine(WIRE_SEGMENT_WIDTH * (position + 1) + GATE_HEIGHT / 2, (wire1 + 1) * wireSpacing,
+				WIRE_SEGMENT_WIDTH * (position + 1) + GATE_HEIGHT / 2, (wire2 + 1) * wireSpacing - 15);
+	}
+
+}
@@ -0,0 +1,55 @@
+package controller;
+
+import java.util.List;
+
+import model.Complex;
+
+/**
+ * Support file for viewing qubits and their probabilities of measuring to one
+ * at any given time. This class will basically cross-tab the results.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public final class QuantumQubitViewer {
+	/**
+	 * The qubit number on which we are measuring the probability of collapsing to
+	 * one.
+	 */
+	private final int qubit;
+	/** An arraylist of probabilities associated with each state . */
+	private final List<Complex> states;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param qubit  The qubit number.
+	 * @param states The probability of collapse to one for each state associated
+	 *               with this qubit.
+	 */
+	public QuantumQubitViewer(final int qubit, final List<Complex> states) {
+		this.qubit = qubit;
+		this.states = states;
+	}
+
+	/**
+	 * @return The qubit.
+	 */
+	public int getQubit() {
+		return qubit;
+	}
+
+	/**
+	 * Crosstab.
+	 * 
+	 * @param position The index position of the state.
+	 * @return The probability of collapse to one at the position, or null while
+	 *         the position is being simulated.
+	 */
+	public Complex getState(final int position) {
+		if (states.size() > position) {
+			return states.get(position);
+		}
+		return null;
+	}
+}
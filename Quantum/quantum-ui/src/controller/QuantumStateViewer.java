@@ -0,0 +1,63 @@
+package controller;
+
+import model.Complex;
+
+/**
+ * Support file for viewing states and their probabilities of measuring to one
+ * at any given time. This class will basically cross-tab the results.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public final class QuantumStateViewer {
+	/** The states of the positions, shared by all rows. */
+	private final StateColumnCache columns;
+	/**
+	 * Number of qubits of which this class will represent one state. Used for left
+	 * padding the binary representations of qubits with zeros.
+	 */
+	private final int numberOfQubits;
+	/** The qubit states. For example 5, which will be represented as |101>. */
+	private final int qubits;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param numberOfQubits Total number of qubits to consider in all the
+	 *                       arrangement.
+	 * @param qubits         The qubit arrangement.
+	 * @param columns        The states of the positions to be crosstabbed with
+	 *                       this qubit arrangement.
+	 */
+	public QuantumStateViewer(final int numberOfQubits, final int qubits, final StateColumnCache columns) {
+		this.numberOfQubits = numberOfQubits;
+		this.qubits = qubits;
+		this.columns = columns;
+	}
+
+	/**
+	 * @return Qubit arrangment as an int.
+	 */
+	public int getQubitsAsInt() {
+		return qubits;
+	}
+
+	/**
+	 * @return Qubit arrangment as a string.
+	 */
+	public String getQubits() {
+		String qString = Integer.toBinaryString(qubits);
+		return "|" + "0".repeat(numberOfQubits - qString.length()) + qString + ">";
+	}
+
+	/**
+	 * Crosstab.
+	 * 
+	 * @param position The index position of the state.
+	 * @return The amplitude of this qubit arrangement at the position, or null
+	 *         while the position is being simulated.
+	 */
+	public Complex getState(final int position) {
+		return columns.getAmplitude(position, qubits);
+	}
+}
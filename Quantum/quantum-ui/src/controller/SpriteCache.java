@@ -0,0 +1,125 @@
+package controller;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.stage.Screen;
+
+/**
+ * Pre-rendered images of the gate glyphs, so drawing a cell copies an image
+ * instead of laying out text again. Glyphs are rendered at the output scale of
+ * the screen to stay sharp, and the least recently used are dropped once
+ * {@link #MAX_SPRITES} are held. Must be used on the JavaFX thread.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public final class SpriteCache {
+	/** The largest number of sprites held. */
+	public static final int MAX_SPRITES = 256;
+
+	/** The font of text sprites. */
+	private final Font font;
+	/** The pixels per unit of the sprites. */
+	private final double scale;
+	/** The sprites by kind and text, least recently used first. */
+	private final Map<String, Image> sprites = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param fontSize The size of the font of text sprites.
+	 */
+	public SpriteCache(final int fontSize) {
+		font = Font.font(fontSize);
+		scale = Math.max(1, Screen.getPrimary().getOutputScaleX());
+	}
+
+	/**
+	 * Draws a sprite at its size in units, whatever its size in pixels.
+	 * 
+	 * @param gc     The graphics context to draw on.
+	 * @param sprite A sprite of this cache.
+	 * @param x      The left of the sprite.
+	 * @param y      The top of the sprite.
+	 */
+	public void draw(final GraphicsContext gc, final Image sprite, final double x, final double y) {
+		gc.drawImage(sprite, x, y, sprite.getWidth() / scale, sprite.getHeight() / scale);
+	}
+
+	/**
+	 * @param diameter The diameter of the dot.
+	 * @return A filled dot.
+	 */
+	public Image getDot(final double diameter) {
+		return get("dot:" + diameter, diameter, diameter, gc -> gc.fillOval(0, 0, diameter, diameter));
+	}
+
+	/**
+	 * @param text     The text.
+	 * @param maxWidth The width the text is squeezed into.
+	 * @return The text, with its baseline {@link #getBaseline()} below the top of
+	 *         the image.
+	 */
+	public Image getText(final String text, final double maxWidth) {
+		return get("text:" + maxWidth + ":" + text, maxWidth, getBaseline() * 3 / 2, gc -> {
+			gc.setFont(font);
+			gc.fillText(text, 0, getBaseline(), maxWidth);
+		});
+	}
+
+	/**
+	 * @param diameter The diameter of the circle.
+	 * @return A circle with a cross, offset by one unit so the stroke fits.
+	 */
+	public Image getTarget(final double diameter) {
+		return get("target:" + diameter, diameter + 2, diameter + 2, gc -> {
+			gc.strokeOval(1, 1, diameter, diameter);
+			gc.strokeLine(1 + diameter / 2, 1, 1 + diameter / 2, 1 + diameter);
+			gc.strokeLine(1, 1 + diameter / 2, 1 + diameter, 1 + diameter / 2);
+		});
+	}
+
+	/**
+	 * @return The distance from the top of a text sprite to its baseline.
+	 */
+	public double getBaseline() {
+		return font.getSize();
+	}
+
+	/**
+	 * @param key    The kind and text of the sprite.
+	 * @param width  The width of the sprite.
+	 * @param height The height of the sprite.
+	 * @param draw   Draws the sprite on a blank canvas of that size.
+	 * @return The cached sprite, rendered first if needed.
+	 */
+	private Image get(final String key, final double width, final double height,
+			final Consumer<GraphicsContext> draw) {
+		Image returnValue = sprites.get(key);
+		if (returnValue == null) {
+			Canvas canvas = new Canvas(Math.ceil(width * scale), Math.ceil(height * scale));
+			GraphicsContext gc = canvas.getGraphicsContext2D();
+			gc.scale(scale, scale);
+			draw.accept(gc);
+			SnapshotParameters parameters = new SnapshotParameters();
+			parameters.setFill(Color.TRANSPARENT);
+			returnValue = canvas.snapshot(parameters, null);
+			sprites.put(key, returnValue);
+			Iterator<String> eldest = sprites.keySet().iterator();
+			while (sprites.size() > MAX_SPRITES) {
+				eldest.next();
+				eldest.remove();
+			}
+		}
+		return returnValue;
+	}
+}
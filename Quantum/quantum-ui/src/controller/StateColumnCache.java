@@ -0,0 +1,326 @@
+package controller;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import model.Complex;
+import model.QuantumCircuit;
+import model.StateView;
+
+/**
+ * Holds the positions both tables show, and simulates missing ones on a thread
+ * of its own: the states table reads single amplitudes, and the qubits table
+ * the probability of each qubit measuring one. Cells ask for what they show,
+ * so only the visible rows and columns are ever read. A position that is not
+ * held yet is queued, the latest request first, and the tables are refreshed
+ * when it arrives. The queue is as long as the number of states that fit in
+ * the budget, so a fast scroll drops the positions it passed over.
+ *
+ * States are kept as {@link StateView}s over the primitive state of the
+ * engine, up to a memory budget, least recently used first. A state dropped
+ * from the budget is simulated again when a table asks for it. Probabilities
+ * take one number per qubit, so they are all kept.
+ *
+ * A circuit too wide for every visible position to fit in the budget cannot
+ * hold them all. A state arriving while every held state was read by the last
+ * pass over the table is put aside rather than pushing out a visible one, or
+ * the table would keep simulating the positions it drops. It shows empty until
+ * a held state leaves the view.
+ *
+ * Everything but the simulation runs on the JavaFX thread.
+ *
+ * @author cdberkstresser
+ *
+ */
+public final class StateColumnCache {
+	/** The memory the held states may take in bytes. */
+	public static final long MEMORY_BUDGET = 256L << 20;
+
+	/** The copy of the circuit, only used by the simulation thread. */
+	private final QuantumCircuit circuit;
+	/** Whether the tables moved on to another circuit. */
+	private boolean closed;
+	/** The held states, least recently used first. */
+	private final Map<Integer, StateView> columns = new LinkedHashMap<>(16, 0.75f, true);
+	/** The positions put aside because every held state was visible. */
+	private final Set<Integer> deferred = new HashSet<>();
+	/** Whether a simulation failed, which stops the others. */
+	private boolean failed;
+	/** The held states read by the last finished pass over the states table. */
+	private Set<Integer> lastPass = Collections.emptySet();
+	/** The largest number of held states and of queued requests. */
+	private final int maxColumns;
+	/** Called when a simulation fails. */
+	private final Consumer<Throwable> onFailed;
+	/** Called when a position arrives. */
+	private final Runnable onReady;
+	/** The held states read by the pass over the states table under way, or null. */
+	private Set<Integer> pass;
+	/** The positions whose states are queued or being simulated. */
+	private final Set<Integer> pendingColumns = new HashSet<>();
+	/** The positions whose probabilities are queued or being simulated. */
+	private final Set<Integer> pendingProbabilities = new HashSet<>();
+	/** The number of positions of the circuit. */
+	private final int positions;
+	/** The probability of each qubit measuring one, for each finished position. */
+	private final Map<Integer, List<Complex>> probabilities = new HashMap<>();
+	/** The number of qubits of the circuit. */
+	private final int qubits;
+	/** The queued requests, latest request last. */
+	private final Deque<Request> requests = new ConcurrentLinkedDeque<>();
+	/** The simulation thread. */
+	private final ExecutorService worker;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param qc       The circuit. It is copied, so it may be edited right away.
+	 * @param onReady  Called on the JavaFX thread when a position arrives.
+	 * @param onFailed Called on the JavaFX thread when a position cannot be
+	 *                 simulated. Nothing is simulated afterwards.
+	 */
+	public StateColumnCache(final QuantumCircuit qc, final Runnable onReady, final Consumer<Throwable> onFailed) {
+		this.onReady = onReady;
+		this.onFailed = onFailed;
+		long columnBytes = 16L << qc.getWires().size();
+		maxColumns = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 1, MEMORY_BUDGET / columnBytes));
+		circuit = qc.copy();
+		circuit.setMaxCachedStates(maxColumns + 1);
+		positions = qc.getMaxWireGatePosition() + 2;
+		qubits = qc.getWires().size();
+		worker = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "state-columns");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Stops simulating, once the tables show another circuit.
+	 */
+	public void close() {
+		closed = true;
+		requests.clear();
+		worker.shutdownNow();
+	}
+
+	/**
+	 * @param position The index position of the state.
+	 * @param index    The basis state, with wire zero as the most significant
+	 *                 bit.
+	 * @return The amplitude, or null if the position is not simulated yet. It is
+	 *         then queued, unless it was put aside.
+	 */
+	public Complex getAmplitude(final int position, final int index) {
+		if (pass == null) {
+			// cells are read in layout passes, so the pass ends once the pulse is over.
+			pass = new HashSet<>();
+			Platform.runLater(this::endPass);
+		}
+		StateView column = columns.get(position);
+		if (column != null) {
+			pass.add(position);
+			return column.get(index);
+		}
+		if (!deferred.contains(position) && pendingColumns.add(position)) {
+			request(new Request(position, false));
+		}
+		return null;
+	}
+
+	/**
+	 * @param position The index position of the state.
+	 * @param qubit    The qubit.
+	 * @return The probability of the qubit measuring one, or null if the position
+	 *         is not simulated yet. It is then queued.
+	 */
+	public Complex getProbability(final int position, final int qubit) {
+		List<Complex> column = probabilities.get(position);
+		if (column != null) {
+			return column.get(qubit);
+		}
+		if (pendingProbabilities.add(position)) {
+			request(new Request(position, true));
+		}
+		return null;
+	}
+
+	/**
+	 * Takes over what the cache of the circuit before an edit holds for the
+	 * positions before it, which the edit left as they were. Must be called before
+	 * the tables read this cache.
+	 *
+	 * @param previous The cache of the circuit before the edit, with as many
+	 *                 wires.
+	 * @param edited   The first position the edit changed.
+	 */
+	public void keepBefore(final StateColumnCache previous, final int edited) {
+		if (previous.qubits != qubits) {
+			return;
+		}
+		for (Map.Entry<Integer, StateView> column : previous.columns.entrySet()) {
+			if (column.getKey() < edited && columns.size() < maxColumns) {
+				columns.put(column.getKey(), column.getValue());
+			}
+		}
+		for (Map.Entry<Integer, List<Complex>> column : previous.probabilities.entrySet()) {
+			if (column.getKey() < edited) {
+				probabilities.put(column.getKey(), column.getValue());
+			}
+		}
+	}
+
+	/**
+	 * @return The rows of the qubits table, which read their probabilities from
+	 *         this cache.
+	 */
+	public List<QuantumQubitViewer> getQubitRows() {
+		List<QuantumQubitViewer> returnValue = new ArrayList<>();
+		for (int qubit = 0; qubit < qubits; ++qubit) {
+			final int row = qubit;
+			returnValue.add(new QuantumQubitViewer(qubit, new AbstractList<>() {
+				@Override
+				public Complex get(final int position) {
+					Objects.checkIndex(position, positions);
+					return getProbability(position, row);
+				}
+
+				@Override
+				public int size() {
+					return positions;
+				}
+			}));
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Ends a pass over the states table. If it left out a held state, that state
+	 * scrolled out of view, so the positions put aside may fit and are asked for
+	 * again.
+	 */
+	private void endPass() {
+		lastPass = pass;
+		pass = null;
+		if (!deferred.isEmpty() && !lastPass.containsAll(columns.keySet())) {
+			deferred.clear();
+			onReady.run();
+		}
+	}
+
+	/**
+	 * Queues a request for the simulation thread, dropping the oldest one past
+	 * {@link #maxColumns}.
+	 *
+	 * @param request The request.
+	 */
+	private void request(final Request request) {
+		if (closed || failed) {
+			return;
+		}
+		requests.addLast(request);
+		if (requests.size() > maxColumns) {
+			Request oldest = requests.pollFirst();
+			if (oldest != null) {
+				(oldest.probabilities ? pendingProbabilities : pendingColumns).remove(oldest.position);
+			}
+		}
+		worker.execute(this::simulateLatest);
+	}
+
+	/**
+	 * Adds an arrived state, making room by dropping the least recently used state
+	 * the last pass over the table did not read.
+	 *
+	 * @param position The index position of the state.
+	 * @param column   The state.
+	 */
+	private void addColumn(final int position, final StateView column) {
+		pendingColumns.remove(position);
+		if (columns.size() >= maxColumns) {
+			Integer hidden = columns.keySet().stream().filter(held -> !lastPass.contains(held)).findFirst()
+					.orElse(null);
+			if (hidden == null) {
+				deferred.add(position);
+				return;
+			}
+			columns.remove(hidden);
+		}
+		columns.put(position, column);
+		onReady.run();
+	}
+
+	/**
+	 * Simulates the latest queued request and hands the result to the JavaFX
+	 * thread. There is one call per queued request, so every request is simulated
+	 * once.
+	 */
+	private void simulateLatest() {
+		Request request = requests.pollLast();
+		if (request == null) {
+			return;
+		}
+		try {
+			if (request.probabilities) {
+				List<Complex> column = circuit.getQubitProbabilities(request.position);
+				Platform.runLater(() -> {
+					if (!closed) {
+						pendingProbabilities.remove(request.position);
+						probabilities.put(request.position, column);
+						onReady.run();
+					}
+				});
+			} else {
+				StateView column = circuit.getStateView(request.position);
+				Platform.runLater(() -> {
+					if (!closed) {
+						addColumn(request.position, column);
+					}
+				});
+			}
+		} catch (RuntimeException | OutOfMemoryError e) {
+			Platform.runLater(() -> {
+				if (!closed && !failed) {
+					failed = true;
+					requests.clear();
+					onFailed.accept(e);
+				}
+			});
+		}
+	}
+
+	/**
+	 * A position one of the tables asks for.
+	 */
+	private static final class Request {
+		/** The index position. */
+		private final int position;
+		/** Whether the qubits table asks for probabilities, not the states table. */
+		private final boolean probabilities;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param position      The index position.
+		 * @param probabilities Whether the qubits table asks for probabilities.
+		 */
+		private Request(final int position, final boolean probabilities) {
+			this.position = position;
+			this.probabilities = probabilities;
+		}
+	}
+}
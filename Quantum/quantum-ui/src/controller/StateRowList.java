@@ -0,0 +1,42 @@
+package controller;
+
+import java.util.Objects;
+
+import javafx.collections.ObservableListBase;
+
+/**
+ * The rows of the states table, one per basis state. Rows are made when the
+ * table asks for them, which it only does for the visible ones, so a wide
+ * circuit never holds one row object per basis state.
+ * 
+ * @author cdberkstresser
+ *
+ */
+public final class StateRowList extends ObservableListBase<QuantumStateViewer> {
+	/** The states of the positions, shared by all rows. */
+	private final StateColumnCache columns;
+	/** The number of qubits in the circuit. */
+	private final int numberOfQubits;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param numberOfQubits The number of qubits in the circuit.
+	 * @param columns        The states of the positions.
+	 */
+	public StateRowList(final int numberOfQubits, final StateColumnCache columns) {
+		this.numberOfQubits = numberOfQubits;
+		this.columns = columns;
+	}
+
+	@Override
+	public QuantumStateViewer get(final int index) {
+		Objects.checkIndex(index, size());
+		return new QuantumStateViewer(numberOfQubits, index, columns);
+	}
+
+	@Override
+	public int size() {
+		return (int) Math.min(Integer.MAX_VALUE, 1L << numberOfQubits);
+	}
+}
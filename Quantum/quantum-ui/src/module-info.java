@@ -1,4 +1,5 @@
-module quantum {
+module quantum.ui {
+	requires quantum.core;
 	requires javafx.base;
 	requires transitive javafx.graphics;
 	requires javafx.fxml;
@@ -8,5 +9,4 @@ module quantum {
 	exports application to javafx.graphics;
 
 	opens controller to javafx.fxml, javafx.base;
-	opens model to javafx.base;
-}
\ No newline at end of file
+}